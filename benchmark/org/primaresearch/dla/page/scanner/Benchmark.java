@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+/**
+ * A single benchmark (one measured operation) run by the {@link BenchmarkRunner}.
+ *
+ * @author Christian Clausner
+ *
+ */
+public abstract class Benchmark {
+
+	private final String name;
+
+	/**
+	 * Constructor
+	 * @param name Benchmark name (used for filtering and in the report)
+	 */
+	protected Benchmark(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the benchmark name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Prepares the benchmark (called once, not measured)
+	 */
+	public void setUp() throws Exception {
+	}
+
+	/**
+	 * Runs the measured operation once.
+	 * @return A value depending on the work done (consumed by the runner so that the JIT cannot remove the work)
+	 */
+	public abstract long run() throws Exception;
+}
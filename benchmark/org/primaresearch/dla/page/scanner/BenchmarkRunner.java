@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Runs benchmarks with warm-up and measurement iterations and prints the average time per operation.<br>
+ * Each iteration runs the operation repeatedly for a fixed time. The results of the operations are
+ * consumed so that the JIT compiler cannot eliminate the measured work.
+ *
+ * @author Christian Clausner
+ *
+ */
+public class BenchmarkRunner {
+
+	/** Consumed results (volatile, so that the JIT has to compute them) */
+	private static volatile long sink;
+
+	private int warmupIterations = 5;
+	private int iterations = 10;
+	private long iterationMillis = 500;
+	private String filter = null;
+	private PrintStream out;
+
+	/**
+	 * Constructor
+	 * @param out Stream for the report
+	 */
+	public BenchmarkRunner(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Sets the number of warm-up iterations (default: 5)
+	 */
+	public void setWarmupIterations(int warmupIterations) {
+		this.warmupIterations = warmupIterations;
+	}
+
+	/**
+	 * Sets the number of measurement iterations (default: 10)
+	 */
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Sets the duration of each iteration in milliseconds (default: 500)
+	 */
+	public void setIterationMillis(long iterationMillis) {
+		this.iterationMillis = iterationMillis;
+	}
+
+	/**
+	 * Only runs benchmarks whose name contains the given text (<code>null</code> for all)
+	 */
+	public void setFilter(String filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Runs the given benchmarks (in list order) and prints one result line per benchmark
+	 */
+	public void run(List<Benchmark> benchmarks) throws Exception {
+		int nameWidth = 10;
+		for (int i=0; i<benchmarks.size(); i++)
+			nameWidth = Math.max(nameWidth, benchmarks.get(i).getName().length());
+		String format = "%-"+nameWidth+"s %5s %12s %12s %8s%n";
+		out.printf(format, "Benchmark", "Cnt", "Score", "Error", "Units");
+
+		for (int i=0; i<benchmarks.size(); i++) {
+			Benchmark benchmark = benchmarks.get(i);
+			if (filter != null && !benchmark.getName().contains(filter))
+				continue;
+
+			double[] scores = new double[iterations];
+			try {
+				benchmark.setUp();
+				for (int w=0; w<warmupIterations; w++)
+					runIteration(benchmark);
+				for (int m=0; m<iterations; m++)
+					scores[m] = runIteration(benchmark);
+			} catch (Exception exc) {
+				//Report and continue with the next benchmark
+				out.printf(format, benchmark.getName(), "", "failed", "", exc.toString());
+				continue;
+			}
+
+			double mean = 0.0;
+			for (int m=0; m<scores.length; m++)
+				mean += scores[m];
+			mean /= scores.length;
+			double variance = 0.0;
+			for (int m=0; m<scores.length; m++)
+				variance += (scores[m] - mean) * (scores[m] - mean);
+			double stdDev = scores.length > 1 ? Math.sqrt(variance / (scores.length - 1)) : 0.0;
+
+			out.printf(format, benchmark.getName(), iterations,
+						String.format("%.3f", mean / 1000.0), String.format("+- %.3f", stdDev / 1000.0), "us/op");
+		}
+	}
+
+	/**
+	 * Runs the operation of the given benchmark for one iteration
+	 * @return Average time per operation in nanoseconds
+	 */
+	private double runIteration(Benchmark benchmark) throws Exception {
+		long result = 0L;
+		long operations = 0L;
+		long start = System.nanoTime();
+		long end = start + iterationMillis * 1000000L;
+		long now;
+		do {
+			result ^= benchmark.run();
+			operations++;
+			now = System.nanoTime();
+		} while (now < end);
+		sink ^= result;
+		return (double)(now - start) / operations;
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.primaresearch.dla.page.Page;
+import org.primaresearch.dla.page.io.UrlInput;
+import org.primaresearch.dla.page.layout.physical.ContentObject;
+import org.primaresearch.dla.page.layout.physical.ContentObjectProcessor;
+import org.primaresearch.dla.page.scanner.element.ScanElement;
+import org.primaresearch.dla.page.scanner.io.ByteArrayPageInput;
+import org.primaresearch.dla.page.scanner.io.PageInputUrl;
+import org.primaresearch.dla.page.scanner.output.ScanOutput;
+
+/**
+ * Benchmarks for the scan pipeline: parsing, traversal ({@link PageScanner#scan(Page)}), output and
+ * complete scans per engine, as well as each scan element on its own.<br>
+ * The benchmarks run for each scan mode ('default', 'characters', 'characters-one-column') over generated
+ * pages with content at region, text line, word and glyph level (see {@link SyntheticPageGenerator}).
+ * <br><br>
+ * Usage: ScanBenchmarks [-level &lt;region|line|word|glyph&gt;] [-regions &lt;n&gt;] [-filter &lt;text&gt;]
+ *        [-warmup &lt;iterations&gt;] [-iterations &lt;n&gt;] [-time &lt;ms per iteration&gt;]
+ *
+ * @author Christian Clausner
+ *
+ */
+public class ScanBenchmarks {
+
+	private static final String[] MODES = new String[] { "default", "characters", "characters-one-column" };
+
+	/**
+	 * Runs the benchmarks
+	 */
+	public static void main(String[] args) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner(System.out);
+		int fromLevel = SyntheticPageGenerator.LEVEL_REGION;
+		int toLevel = SyntheticPageGenerator.LEVEL_GLYPH;
+		int regions = 20;
+
+		for (int i=0; i<args.length; i++) {
+			if ("-level".equals(args[i])) {
+				i++;
+				fromLevel = toLevel = SyntheticPageGenerator.getLevel(args[i]);
+			}
+			else if ("-regions".equals(args[i])) {
+				i++;
+				regions = Integer.parseInt(args[i]);
+			}
+			else if ("-filter".equals(args[i])) {
+				i++;
+				runner.setFilter(args[i]);
+			}
+			else if ("-warmup".equals(args[i])) {
+				i++;
+				runner.setWarmupIterations(Integer.parseInt(args[i]));
+			}
+			else if ("-iterations".equals(args[i])) {
+				i++;
+				runner.setIterations(Integer.parseInt(args[i]));
+			}
+			else if ("-time".equals(args[i])) {
+				i++;
+				runner.setIterationMillis(Long.parseLong(args[i]));
+			}
+			else {
+				System.err.println("Unknown argument: "+args[i]);
+				return;
+			}
+		}
+
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		for (int level=fromLevel; level<=toLevel; level++) {
+			SyntheticPageGenerator generator = new SyntheticPageGenerator(1L);
+			generator.setLevel(level);
+			generator.setRegionCount(regions);
+			addBenchmarks(benchmarks, generator.generate(0), SyntheticPageGenerator.LEVEL_NAMES[level]);
+		}
+		runner.run(benchmarks);
+	}
+
+	/**
+	 * Adds all benchmarks for the given page
+	 * @param fixture PAGE XML
+	 * @param level Name of the content level of the page (part of the benchmark names)
+	 */
+	private static void addBenchmarks(List<Benchmark> benchmarks, final byte[] fixture, String level) {
+		final String name = "page-"+level+".xml";
+
+		//Parsing only (model engine, no validation)
+		benchmarks.add(new Benchmark("parse.model."+level) {
+			@Override
+			public long run() throws Exception {
+				return readPage(name, fixture).getLayout().getRegionCount();
+			}
+		});
+
+		for (int m=0; m<MODES.length; m++) {
+			final String mode = MODES[m];
+
+			//Complete scan (read and traverse) with each engine
+			benchmarks.add(new ScannerBenchmark("scan.model."+mode+"."+level, mode, PageScanner.ENGINE_MODEL) {
+				@Override
+				public long run() throws Exception {
+					scanner.scan(new ByteArrayPageInput(name, fixture));
+					return scanner.getScanElements().size();
+				}
+			});
+			benchmarks.add(new ScannerBenchmark("scan.stream."+mode+"."+level, mode, PageScanner.ENGINE_STREAM) {
+				@Override
+				public long run() throws Exception {
+					scanner.scan(new ByteArrayPageInput(name, fixture));
+					return scanner.getScanElements().size();
+				}
+			});
+
+			//Traversal of the parsed page
+			benchmarks.add(new ScannerBenchmark("traverse."+mode+"."+level, mode, PageScanner.ENGINE_MODEL) {
+				private Page page;
+				@Override
+				public void setUp() throws Exception {
+					super.setUp();
+					page = readPage(name, fixture);
+				}
+				@Override
+				public long run() {
+					scanner.scan(page);
+					return scanner.getScanElements().size();
+				}
+			});
+
+			//Output of the values of the last scan
+			benchmarks.add(new ScannerBenchmark("output.csv."+mode+"."+level, mode, PageScanner.ENGINE_MODEL) {
+				private ScanOutput output;
+				@Override
+				public void setUp() throws Exception {
+					super.setUp();
+					scanner.scan(readPage(name, fixture));
+					output = ScanOutput.create(ScanOutput.FORMAT_CSV, new NullOutputStream(), false);
+				}
+				@Override
+				public long run() throws IOException {
+					String values = scanner.renderValues(output);
+					output.writeRow(name, values);
+					return values.length();
+				}
+			});
+		}
+
+		//Scan elements on their own (all elements of all modes)
+		for (int m=0; m<MODES.length; m++) {
+			PageScanner scanner = new PageScanner();
+			scanner.setMode(MODES[m]);
+			List<ScanElement> elements = scanner.getScanElements();
+			for (int i=0; i<elements.size(); i++) {
+				ScanElement element = elements.get(i);
+				String header = element.getCsvHeader();
+				if (header.indexOf(',') >= 0)
+					header = header.substring(0, header.indexOf(','));
+				String elementName = "element."+element.getClass().getSimpleName()+"("+header+")."+level;
+				benchmarks.add(new ElementBenchmark(elementName, element, name, fixture));
+			}
+		}
+	}
+
+	/**
+	 * Reads the given PAGE XML with the model engine (no validation)
+	 */
+	private static Page readPage(String name, byte[] content) throws Exception {
+		Page page = PageReaderPool.getInstance(false).getReader().read(
+							new UrlInput(PageInputUrl.create(new ByteArrayPageInput(name, content))));
+		if (page == null)
+			throw new IllegalStateException("Could not read generated page");
+		return page;
+	}
+
+
+	/**
+	 * Base class for benchmarks using a page scanner (no validation)
+	 */
+	private static abstract class ScannerBenchmark extends Benchmark {
+
+		private final String mode;
+		private final String engine;
+		protected PageScanner scanner;
+
+		public ScannerBenchmark(String name, String mode, String engine) {
+			super(name);
+			this.mode = mode;
+			this.engine = engine;
+		}
+
+		@Override
+		public void setUp() throws Exception {
+			scanner = new PageScanner();
+			scanner.setMode(mode);
+			scanner.setEngine(engine);
+			scanner.setValidation(false);
+			scanner.getScanElements();
+		}
+	}
+
+
+	/**
+	 * Benchmark for a single scan element.<br>
+	 * For content object handlers, the objects of the handled types are passed to the element
+	 * (collected from the page up front); other elements are initialised with the page.
+	 */
+	private static class ElementBenchmark extends Benchmark {
+
+		private final ScanElement element;
+		private final String pageName;
+		private final byte[] fixture;
+		private Page page;
+		private List<ContentObject> objects;
+
+		public ElementBenchmark(String name, ScanElement element, String pageName, byte[] fixture) {
+			super(name);
+			this.element = element;
+			this.pageName = pageName;
+			this.fixture = fixture;
+		}
+
+		@Override
+		public void setUp() throws Exception {
+			page = readPage(pageName, fixture);
+			element.reset();
+			element.init(page);
+			if (element instanceof ContentObjectHandler) {
+				final ContentObjectHandler handler = (ContentObjectHandler)element;
+				objects = new ArrayList<ContentObject>();
+				ContentObjectProcessor processor = new ContentObjectProcessor() {
+					@Override
+					public void doProcess(ContentObject contentObject) {
+						if (handler.handlesContentType(contentObject.getType()))
+							objects.add(contentObject);
+					}
+				};
+				processor.run(page);
+			}
+		}
+
+		@Override
+		public long run() {
+			if (objects == null) {
+				element.reset();
+				element.init(page);
+				return 1L;
+			}
+			ContentObjectHandler handler = (ContentObjectHandler)element;
+			for (int i=0; i<objects.size(); i++)
+				handler.handleContentObject(objects.get(i));
+			return objects.size();
+		}
+	}
+
+
+	/**
+	 * Output stream discarding all data
+	 */
+	private static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.primaresearch.dla.page.Page;
+import org.primaresearch.dla.page.io.UrlInput;
+import org.primaresearch.dla.page.scanner.io.ByteArrayPageInput;
+import org.primaresearch.dla.page.scanner.io.PageInputUrl;
+
+/**
+ * Writes a reproducible corpus of generated PAGE XML files (see {@link SyntheticPageGenerator}) to a folder.<br>
+ * The files are distributed over sub-folders of 1000 files each. Optionally, each page is read with the
+ * validating PAGE reader before it is written.
+ * <br><br>
+ * Usage: SyntheticCorpus -out &lt;folder&gt; [options], see {@link #showUsage()}
+ *
+ * @author Christian Clausner
+ *
+ */
+public class SyntheticCorpus {
+
+	private static final int FILES_PER_FOLDER = 1000;
+
+	private SyntheticPageGenerator generator = new SyntheticPageGenerator(1L);
+	private int pageCount = 1000;
+	private boolean gzip = false;
+	private boolean validate = false;
+
+	/**
+	 * Writes a corpus
+	 */
+	public static void main(String[] args) {
+		SyntheticCorpus corpus = new SyntheticCorpus();
+		File folder = null;
+		for (int i=0; i<args.length; i++) {
+			if ("-out".equals(args[i]) && i+1 < args.length) {
+				i++;
+				folder = new File(args[i]);
+			}
+			else {
+				int next = corpus.parseOption(args, i);
+				if (next < 0) {
+					System.err.println("Unknown argument: "+args[i]);
+					showUsage();
+					return;
+				}
+				i = next;
+			}
+		}
+		if (folder == null) {
+			showUsage();
+			return;
+		}
+		try {
+			long start = System.nanoTime();
+			List<File> files = corpus.write(folder);
+			long bytes = 0L;
+			for (int i=0; i<files.size(); i++)
+				bytes += files.get(i).length();
+			System.out.println(String.format("%d pages (%.1f MB) written to %s in %.1f s", files.size(), bytes / 1.0e6,
+					folder.getPath(), (System.nanoTime() - start) / 1.0e9));
+		} catch (Exception exc) {
+			exc.printStackTrace();
+		}
+	}
+
+	/**
+	 * Prints the command line options
+	 */
+	static void showUsage() {
+		System.out.println("Options:");
+		System.out.println(" -out <folder>              Target folder");
+		System.out.println(" -pages <n>                 Number of pages (default: 1000)");
+		System.out.println(" -seed <n>                  Seed of the random generator (default: 1)");
+		System.out.println(" -level <l>                 Deepest text level: region, line, word or glyph (default)");
+		System.out.println(" -regions <n>               Regions per page (default: 20)");
+		System.out.println(" -lines <n>                 Text lines per text region (default: 10)");
+		System.out.println(" -words <n>                 Words per text line (default: 8)");
+		System.out.println(" -glyphs <n>                Maximum glyphs per word (default: 6)");
+		System.out.println(" -non-text <share>          Share of non-text regions (default: 0.2)");
+		System.out.println(" -text-types <t1,t2,...>    Text region sub-types (repeat values for a higher weight)");
+		System.out.println(" -graphic-types <t1,...>    Graphic region sub-types");
+		System.out.println(" -chart-types <t1,...>      Chart region sub-types");
+		System.out.println(" -languages <l1,l2,...>     Primary languages of text regions (default: English)");
+		System.out.println(" -unicode <from-to,...>     Hex code point ranges of the text, e.g. 41-5A,391-3C9 (default: Latin)");
+		System.out.println(" -reading-order-depth <n>   Nesting depth of the reading order groups (default: 1)");
+		System.out.println(" -gzip                      Write gzip compressed files (*.xml.gz)");
+		System.out.println(" -validate                  Read each page with the validating PAGE reader before writing it");
+	}
+
+	/**
+	 * Parses the corpus option at the given index
+	 * @return Index of the last argument used by the option or -1 if the option is unknown
+	 */
+	int parseOption(String[] args, int i) {
+		String option = args[i];
+		if ("-gzip".equals(option)) {
+			gzip = true;
+			return i;
+		}
+		if ("-validate".equals(option)) {
+			validate = true;
+			return i;
+		}
+		if (i+1 >= args.length)
+			return -1;
+		String value = args[i+1];
+		if ("-pages".equals(option))
+			pageCount = Integer.parseInt(value);
+		else if ("-seed".equals(option))
+			generator.setSeed(Long.parseLong(value));
+		else if ("-level".equals(option))
+			generator.setLevel(SyntheticPageGenerator.getLevel(value));
+		else if ("-regions".equals(option))
+			generator.setRegionCount(Integer.parseInt(value));
+		else if ("-lines".equals(option))
+			generator.setLinesPerRegion(Integer.parseInt(value));
+		else if ("-words".equals(option))
+			generator.setWordsPerLine(Integer.parseInt(value));
+		else if ("-glyphs".equals(option))
+			generator.setCharsPerWord(Integer.parseInt(value));
+		else if ("-non-text".equals(option))
+			generator.setNonTextRegionShare(Double.parseDouble(value));
+		else if ("-text-types".equals(option))
+			generator.setTextRegionSubTypes(value.split(","));
+		else if ("-graphic-types".equals(option))
+			generator.setGraphicRegionSubTypes(value.split(","));
+		else if ("-chart-types".equals(option))
+			generator.setChartRegionSubTypes(value.split(","));
+		else if ("-languages".equals(option))
+			generator.setLanguages(value.split(","));
+		else if ("-unicode".equals(option))
+			generator.setUnicodeRanges(parseRanges(value));
+		else if ("-reading-order-depth".equals(option))
+			generator.setReadingOrderDepth(Integer.parseInt(value));
+		else
+			return -1;
+		return i+1;
+	}
+
+	/**
+	 * Parses comma separated code point ranges (hex, 'first-last' or a single code point)
+	 */
+	private static int[] parseRanges(String value) {
+		String[] parts = value.split(",");
+		int[] ranges = new int[parts.length * 2];
+		for (int i=0; i<parts.length; i++) {
+			int dash = parts[i].indexOf('-');
+			String first = dash < 0 ? parts[i] : parts[i].substring(0, dash);
+			String last = dash < 0 ? parts[i] : parts[i].substring(dash + 1);
+			ranges[i*2] = Integer.parseInt(first.trim(), 16);
+			ranges[i*2+1] = Integer.parseInt(last.trim(), 16);
+			if (ranges[i*2+1] < ranges[i*2])
+				throw new IllegalArgumentException("Invalid code point range: "+parts[i]);
+		}
+		return ranges;
+	}
+
+	/**
+	 * Returns the generator (to configure it directly)
+	 */
+	public SyntheticPageGenerator getGenerator() {
+		return generator;
+	}
+
+	/**
+	 * Sets the number of pages (default: 1000)
+	 */
+	public void setPageCount(int pageCount) {
+		this.pageCount = pageCount;
+	}
+
+	/**
+	 * If set to <code>true</code>, the files are written gzip compressed (default: <code>false</code>)
+	 */
+	public void setGzip(boolean gzip) {
+		this.gzip = gzip;
+	}
+
+	/**
+	 * If set to <code>true</code>, each page is read with the validating PAGE reader before it is written (default: <code>false</code>)
+	 */
+	public void setValidate(boolean validate) {
+		this.validate = validate;
+	}
+
+	/**
+	 * Generates the pages and writes them to the given folder (created if necessary)
+	 * @return The written files (in page order)
+	 * @throws IOException Write error or generated page not valid
+	 */
+	public List<File> write(File folder) throws IOException {
+		List<File> files = new ArrayList<File>(pageCount);
+		for (int p=0; p<pageCount; p++) {
+			File subFolder = new File(folder, String.format("f%04d", p / FILES_PER_FOLDER));
+			if (!subFolder.isDirectory() && !subFolder.mkdirs())
+				throw new IOException("Cannot create folder: "+subFolder);
+			File file = new File(subFolder, String.format("page%07d.xml", p) + (gzip ? ".gz" : ""));
+
+			byte[] content = generator.generate(p);
+			if (validate)
+				validate(file.getName(), content);
+
+			OutputStream out = new FileOutputStream(file);
+			try {
+				if (gzip)
+					out = new GZIPOutputStream(out, 64 * 1024);
+				out.write(content);
+			} finally {
+				out.close();
+			}
+			files.add(file);
+		}
+		return files;
+	}
+
+	/**
+	 * Reads the given page with the validating PAGE reader
+	 * @throws IOException The page could not be read
+	 */
+	private static void validate(String name, byte[] content) throws IOException {
+		Page page;
+		try {
+			page = PageReaderPool.getInstance(true).getReader().read(
+						new UrlInput(PageInputUrl.create(new ByteArrayPageInput(name, content))));
+		} catch (Exception exc) {
+			throw new IOException("Generated page is not valid: "+name, exc);
+		}
+		if (page == null)
+			throw new IOException("Generated page is not valid: "+name);
+	}
+}
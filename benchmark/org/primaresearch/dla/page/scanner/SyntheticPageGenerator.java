@@ -0,0 +1,449 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Generates PAGE XML documents with random (but reproducible) content for benchmarks and load tests.<br>
+ * The text regions are filled down to the configured granularity (region text only, text lines, words or glyphs),
+ * with the text of each level matching its children. Region sub-types, languages, the characters of the text
+ * (Unicode ranges) and the nesting depth of the reading order can be configured.
+ *
+ * @author Christian Clausner
+ *
+ */
+public class SyntheticPageGenerator {
+
+	/** Text regions with region-level text only */
+	public static final int LEVEL_REGION = 0;
+	/** Text regions with text lines */
+	public static final int LEVEL_LINE = 1;
+	/** Text regions with text lines and words */
+	public static final int LEVEL_WORD = 2;
+	/** Text regions with text lines, words and glyphs */
+	public static final int LEVEL_GLYPH = 3;
+
+	/** Names of the levels (index = level) */
+	public static final String[] LEVEL_NAMES = new String[] { "region", "line", "word", "glyph" };
+
+	private static final String NAMESPACE = "http://schema.primaresearch.org/PAGE/gts/pagecontent/2019-07-15";
+	private static final String[] OTHER_REGIONS = new String[] { "ImageRegion", "GraphicRegion", "ChartRegion", "SeparatorRegion", "TableRegion" };
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private long seed;
+	private int level = LEVEL_GLYPH;
+	private int regionCount = 20;
+	private int linesPerRegion = 10;
+	private int wordsPerLine = 8;
+	private int charsPerWord = 6;
+	private double nonTextRegionShare = 0.2;
+	private String[] textRegionSubTypes = new String[] { "paragraph", "heading", "caption", "header", "footer", "page-number" };
+	private String[] graphicRegionSubTypes = new String[] { "logo", "decoration", "stamp", "signature", "other" };
+	private String[] chartRegionSubTypes = new String[] { "bar", "line", "pie", "other" };
+	private String[] languages = new String[] { "English" };
+	private int[] unicodeRanges = null;
+	private int readingOrderDepth = 1;
+
+	private Random random;
+	private StringBuilder xml;
+	private int nextId;
+	private int nextGroupId;
+
+	/**
+	 * Constructor
+	 * @param seed Seed of the random generator (same seed and settings give the same documents)
+	 */
+	public SyntheticPageGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the level for the given name ('region', 'line', 'word' or 'glyph')
+	 */
+	public static int getLevel(String name) {
+		for (int i=0; i<LEVEL_NAMES.length; i++) {
+			if (LEVEL_NAMES[i].equals(name))
+				return i;
+		}
+		throw new IllegalArgumentException("Unknown level: "+name);
+	}
+
+	/**
+	 * Sets the seed of the random generator
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the deepest level of text content objects (default: glyphs)
+	 * @param level LEVEL_REGION, LEVEL_LINE, LEVEL_WORD or LEVEL_GLYPH
+	 */
+	public void setLevel(int level) {
+		if (level < LEVEL_REGION || level > LEVEL_GLYPH)
+			throw new IllegalArgumentException("Unknown level: "+level);
+		this.level = level;
+	}
+
+	/**
+	 * Sets the number of regions per page (default: 20, see also {@link #setNonTextRegionShare(double)})
+	 */
+	public void setRegionCount(int regionCount) {
+		this.regionCount = regionCount;
+	}
+
+	/**
+	 * Sets the number of text lines per text region (default: 10)
+	 */
+	public void setLinesPerRegion(int linesPerRegion) {
+		this.linesPerRegion = linesPerRegion;
+	}
+
+	/**
+	 * Sets the number of words per text line (default: 8)
+	 */
+	public void setWordsPerLine(int wordsPerLine) {
+		this.wordsPerLine = wordsPerLine;
+	}
+
+	/**
+	 * Sets the maximum number of characters (glyphs) per word (default: 6)
+	 */
+	public void setCharsPerWord(int charsPerWord) {
+		this.charsPerWord = charsPerWord;
+	}
+
+	/**
+	 * Sets the share of non-text regions (image, graphic, chart, separator and table; default: 0.2)
+	 */
+	public void setNonTextRegionShare(double share) {
+		this.nonTextRegionShare = share;
+	}
+
+	/**
+	 * Sets the sub-types for text regions (chosen at random; repeat values to give them a higher weight)
+	 */
+	public void setTextRegionSubTypes(String... subTypes) {
+		this.textRegionSubTypes = subTypes;
+	}
+
+	/**
+	 * Sets the sub-types for graphic regions (chosen at random; repeat values to give them a higher weight)
+	 */
+	public void setGraphicRegionSubTypes(String... subTypes) {
+		this.graphicRegionSubTypes = subTypes;
+	}
+
+	/**
+	 * Sets the sub-types for chart regions (chosen at random; repeat values to give them a higher weight)
+	 */
+	public void setChartRegionSubTypes(String... subTypes) {
+		this.chartRegionSubTypes = subTypes;
+	}
+
+	/**
+	 * Sets the primary languages for text regions (chosen at random; default: English)
+	 */
+	public void setLanguages(String... languages) {
+		this.languages = languages;
+	}
+
+	/**
+	 * Sets the Unicode ranges the characters of the text are chosen from (default: mostly Latin letters, some digits and punctuation).<br>
+	 * Code points that are not allowed in XML and whitespace are skipped.
+	 * @param ranges Pairs of first and last code point (inclusive), e.g. <code>{ 0x41, 0x5A, 0x391, 0x3C9 }</code>
+	 */
+	public void setUnicodeRanges(int[] ranges) {
+		if (ranges != null && (ranges.length == 0 || ranges.length % 2 != 0))
+			throw new IllegalArgumentException("Unicode ranges have to be given as pairs of first and last code point");
+		this.unicodeRanges = ranges;
+	}
+
+	/**
+	 * Sets the depth of the reading order (default: 1 - one ordered group with all regions).
+	 * For higher values, the regions are split into nested ordered groups.
+	 */
+	public void setReadingOrderDepth(int depth) {
+		this.readingOrderDepth = depth;
+	}
+
+	/**
+	 * Generates the page with the given index (UTF-8 encoded XML)
+	 */
+	public byte[] generate(int index) {
+		return generateXml(index).getBytes(UTF8);
+	}
+
+	/**
+	 * Generates the page with the given index. The content only depends on the seed, the settings and the index.
+	 */
+	public String generateXml(int index) {
+		random = new Random(seed * 31 + index);
+		xml = new StringBuilder(1024);
+		nextId = 0;
+		nextGroupId = 0;
+
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		xml.append("<PcGts xmlns=\"").append(NAMESPACE).append("\" pcGtsId=\"pc-").append(seed).append('-').append(index).append("\">\n");
+		xml.append("<Metadata><Creator>SyntheticPageGenerator</Creator><Created>2019-07-15T10:00:00</Created>");
+		xml.append("<LastChange>2019-07-15T10:00:00</LastChange></Metadata>\n");
+
+		int width = 2000;
+		int height = 200 + regionCount * (linesPerRegion + 1) * 40;
+		xml.append("<Page imageFilename=\"page").append(index).append(".tif\" imageWidth=\"").append(width);
+		xml.append("\" imageHeight=\"").append(height).append("\">\n");
+		appendElement("Border", 0, 0, width, height);
+		xml.append("</Border>\n");
+		appendElement("PrintSpace", 50, 50, width - 100, height - 100);
+		xml.append("</PrintSpace>\n");
+
+		//Reading order over all regions
+		if (regionCount > 0) {
+			xml.append("<ReadingOrder><OrderedGroup id=\"ro\">");
+			appendGroupContent(0, regionCount, readingOrderDepth);
+			xml.append("</OrderedGroup></ReadingOrder>\n");
+		}
+
+		int y = 100;
+		for (int r=0; r<regionCount; r++) {
+			int regionHeight = (linesPerRegion + 1) * 40;
+			if (random.nextDouble() < nonTextRegionShare)
+				appendOtherRegion(r, y, regionHeight);
+			else
+				appendTextRegion(r, y, regionHeight);
+			y += regionHeight;
+		}
+		xml.append("</Page>\n</PcGts>\n");
+
+		String ret = xml.toString();
+		xml = null;
+		return ret;
+	}
+
+	/**
+	 * Appends the references to the regions with the given indices (end exclusive) to a reading order group
+	 * @param depth Number of group levels (including the current group)
+	 */
+	private void appendGroupContent(int from, int to, int depth) {
+		int count = to - from;
+		if (depth <= 1 || count < 2) {
+			for (int r=from; r<to; r++)
+				xml.append("<RegionRefIndexed index=\"").append(r - from).append("\" regionRef=\"r").append(r).append("\"/>");
+			return;
+		}
+		//Split into two or three sub-groups
+		int groups = Math.min(count, 2 + random.nextInt(2));
+		for (int g=0; g<groups; g++) {
+			xml.append("<OrderedGroupIndexed id=\"g").append(nextGroupId++).append("\" index=\"").append(g).append("\">");
+			appendGroupContent(from + count * g / groups, from + count * (g+1) / groups, depth - 1);
+			xml.append("</OrderedGroupIndexed>");
+		}
+	}
+
+	/**
+	 * Appends a non-text region
+	 */
+	private void appendOtherRegion(int index, int y, int height) {
+		String type = OTHER_REGIONS[random.nextInt(OTHER_REGIONS.length)];
+		xml.append("<").append(type).append(" id=\"r").append(index).append('"');
+		if ("GraphicRegion".equals(type))
+			xml.append(" type=\"").append(choose(graphicRegionSubTypes)).append('"');
+		else if ("ChartRegion".equals(type))
+			xml.append(" type=\"").append(choose(chartRegionSubTypes)).append('"');
+		xml.append('>');
+		appendCoords(100, y, 1800, height);
+		xml.append("</").append(type).append(">\n");
+	}
+
+	/**
+	 * Appends a text region with content down to the configured level
+	 */
+	private void appendTextRegion(int index, int y, int height) {
+		xml.append("<TextRegion id=\"r").append(index).append("\" type=\"");
+		xml.append(choose(textRegionSubTypes));
+		xml.append("\" primaryLanguage=\"").append(choose(languages)).append("\">");
+		appendCoords(100, y, 1800, height);
+		xml.append('\n');
+
+		StringBuilder regionText = new StringBuilder();
+		for (int l=0; l<linesPerRegion; l++) {
+			if (l > 0)
+				regionText.append('\n');
+			int lineY = y + 20 + l * 40;
+			if (level >= LEVEL_LINE) {
+				appendElement("TextLine", 100, lineY, 1800, 40);
+				xml.append('\n');
+				String lineText = appendLineContent(lineY);
+				appendTextEquiv(lineText);
+				xml.append("</TextLine>\n");
+				regionText.append(lineText);
+			}
+			else
+				regionText.append(randomLine());
+		}
+		appendTextEquiv(regionText.toString());
+		xml.append("</TextRegion>\n");
+	}
+
+	/**
+	 * Appends the words of a text line (if the level is word or glyph) and returns the line text
+	 */
+	private String appendLineContent(int y) {
+		if (level < LEVEL_WORD)
+			return randomLine();
+		StringBuilder lineText = new StringBuilder();
+		int x = 100;
+		for (int w=0; w<wordsPerLine; w++) {
+			if (w > 0)
+				lineText.append(' ');
+			String word = randomWord();
+			int length = word.codePointCount(0, word.length());
+			int wordWidth = length * 20;
+			appendElement("Word", x, y, wordWidth, 40);
+			if (level >= LEVEL_GLYPH) {
+				int pos = 0;
+				for (int g=0; g<length; g++) {
+					int next = word.offsetByCodePoints(pos, 1);
+					appendElement("Glyph", x + g * 20, y, 20, 40);
+					appendTextEquiv(word.substring(pos, next));
+					xml.append("</Glyph>");
+					pos = next;
+				}
+			}
+			appendTextEquiv(word);
+			xml.append("</Word>\n");
+			lineText.append(word);
+			x += wordWidth + 20;
+		}
+		return lineText.toString();
+	}
+
+	/**
+	 * Returns the text for a line without words
+	 */
+	private String randomLine() {
+		StringBuilder text = new StringBuilder();
+		for (int w=0; w<wordsPerLine; w++) {
+			if (w > 0)
+				text.append(' ');
+			text.append(randomWord());
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns a random word (letters, digits and some punctuation or characters from the configured Unicode ranges)
+	 */
+	private String randomWord() {
+		int length = 1 + random.nextInt(charsPerWord);
+		StringBuilder word = new StringBuilder(length);
+		for (int i=0; i<length; i++) {
+			if (unicodeRanges != null) {
+				word.appendCodePoint(randomCodePoint());
+				continue;
+			}
+			int r = random.nextInt(100);
+			if (r < 85)
+				word.append((char)('a' + random.nextInt(26)));
+			else if (r < 95)
+				word.append((char)('A' + random.nextInt(26)));
+			else if (r < 98)
+				word.append((char)('0' + random.nextInt(10)));
+			else
+				word.append(",.;&".charAt(random.nextInt(4)));
+		}
+		return word.toString();
+	}
+
+	/**
+	 * Returns a random code point from the configured Unicode ranges (excluding whitespace and characters not allowed in XML)
+	 */
+	private int randomCodePoint() {
+		for (int attempt=0; attempt<1000; attempt++) {
+			int range = random.nextInt(unicodeRanges.length / 2) * 2;
+			int first = unicodeRanges[range];
+			int last = unicodeRanges[range + 1];
+			int codePoint = first + random.nextInt(last - first + 1);
+			if (isAllowed(codePoint))
+				return codePoint;
+		}
+		throw new IllegalStateException("The Unicode ranges contain no usable characters");
+	}
+
+	/**
+	 * Checks if the given code point can be used in the generated text (no whitespace, allowed in XML)
+	 */
+	private static boolean isAllowed(int codePoint) {
+		if (codePoint < 0x21 || codePoint > 0x10FFFF || Character.isWhitespace(codePoint) || Character.isSpaceChar(codePoint))
+			return false;
+		if (codePoint >= 0xD800 && codePoint <= 0xDFFF)
+			return false;
+		return codePoint != 0xFFFE && codePoint != 0xFFFF && (codePoint < 0x7F || codePoint > 0x9F);
+	}
+
+	/**
+	 * Returns one of the given values (chosen at random)
+	 */
+	private String choose(String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	/**
+	 * Appends the start tag (with ID) and the rectangular coordinates of a content object
+	 */
+	private void appendElement(String name, int x, int y, int width, int height) {
+		xml.append('<').append(name);
+		if (!"Border".equals(name) && !"PrintSpace".equals(name))
+			xml.append(" id=\"o").append(nextId++).append('"');
+		xml.append('>');
+		appendCoords(x, y, width, height);
+	}
+
+	/**
+	 * Appends a rectangular polygon
+	 */
+	private void appendCoords(int x, int y, int width, int height) {
+		xml.append("<Coords points=\"");
+		xml.append(x).append(',').append(y).append(' ');
+		xml.append(x + width).append(',').append(y).append(' ');
+		xml.append(x + width).append(',').append(y + height).append(' ');
+		xml.append(x).append(',').append(y + height);
+		xml.append("\"/>");
+	}
+
+	/**
+	 * Appends a text equivalent (escaped)
+	 */
+	private void appendTextEquiv(String text) {
+		xml.append("<TextEquiv><Unicode>");
+		for (int i=0; i<text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '&')
+				xml.append("&amp;");
+			else if (c == '<')
+				xml.append("&lt;");
+			else if (c == '>')
+				xml.append("&gt;");
+			else if (c == '\n')
+				xml.append("&#x0A;");
+			else
+				xml.append(c);
+		}
+		xml.append("</Unicode></TextEquiv>");
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.primaresearch.dla.page.scanner.io.NioFileReader;
+import org.primaresearch.dla.page.scanner.result.ScanRow;
+
+/**
+ * End-to-end throughput harness: scans all files of a corpus (e.g. written by {@link SyntheticCorpus})
+ * with different numbers of threads and reports pages/s, MB/s, the median and 99th percentile of the time
+ * per file, and the peak heap usage.
+ * <br><br>
+ * Usage: ThroughputBenchmark -corpus &lt;folder&gt; [-generate &lt;pages&gt; [generator options]] [-threads &lt;n1,n2,...&gt;]
+ *        [-engine &lt;model|stream&gt;] [-mode &lt;mode&gt;] [-header-only] [-intra-page] [-intra-page-threshold &lt;n&gt;]
+ *        [-no-validate] [-nio] [-warmup &lt;files&gt;]
+ *
+ * @author Christian Clausner
+ *
+ */
+public class ThroughputBenchmark {
+
+	private final PageScanner scanner;
+	private final List<String> files;
+	private long totalBytes = 0L;
+
+	/**
+	 * Runs the benchmark
+	 */
+	public static void main(String[] args) throws Exception {
+		File corpusFolder = null;
+		int generatePages = 0;
+		SyntheticCorpus corpus = new SyntheticCorpus();
+		int[] threadCounts = null;
+		int warmupFiles = 200;
+		PageScanner scanner = new PageScanner();
+
+		for (int i=0; i<args.length; i++) {
+			if ("-corpus".equals(args[i])) {
+				i++;
+				corpusFolder = new File(args[i]);
+			}
+			else if ("-generate".equals(args[i])) {
+				i++;
+				generatePages = Integer.parseInt(args[i]);
+			}
+			else if ("-threads".equals(args[i])) {
+				i++;
+				String[] parts = args[i].split(",");
+				threadCounts = new int[parts.length];
+				for (int t=0; t<parts.length; t++)
+					threadCounts[t] = Integer.parseInt(parts[t].trim());
+			}
+			else if ("-engine".equals(args[i])) {
+				i++;
+				scanner.setEngine(args[i]);
+			}
+			else if ("-mode".equals(args[i])) {
+				i++;
+				scanner.setMode(args[i]);
+			}
+			else if ("-header-only".equals(args[i])) {
+				scanner.setHeaderOnly(true);
+			}
+			else if ("-intra-page".equals(args[i])) {
+				scanner.setIntraPageThreshold(PageScanner.DEFAULT_INTRA_PAGE_THRESHOLD);
+			}
+			else if ("-intra-page-threshold".equals(args[i])) {
+				i++;
+				scanner.setIntraPageThreshold(Integer.parseInt(args[i]));
+			}
+			else if ("-no-validate".equals(args[i])) {
+				scanner.setValidation(false);
+			}
+			else if ("-nio".equals(args[i])) {
+				scanner.setNio(true, NioFileReader.DEFAULT_MAPPING_THRESHOLD);
+			}
+			else if ("-warmup".equals(args[i])) {
+				i++;
+				warmupFiles = Integer.parseInt(args[i]);
+			}
+			else {
+				//Generator options
+				int next = corpus.parseOption(args, i);
+				if (next < 0) {
+					System.err.println("Unknown argument: "+args[i]);
+					return;
+				}
+				i = next;
+			}
+		}
+		if (corpusFolder == null) {
+			System.err.println("Corpus folder missing (-corpus <folder>)");
+			return;
+		}
+		if (threadCounts == null) {
+			int cores = Runtime.getRuntime().availableProcessors();
+			threadCounts = cores > 4 ? new int[] { 1, 2, 4, cores } : new int[] { 1, 2, 4 };
+		}
+
+		if (generatePages > 0) {
+			corpus.setPageCount(generatePages);
+			corpus.write(corpusFolder);
+		}
+
+		ThroughputBenchmark benchmark = new ThroughputBenchmark(scanner, corpusFolder);
+		System.out.println(String.format("Corpus: %d files, %.1f MB", benchmark.files.size(), benchmark.totalBytes / 1.0e6));
+		benchmark.warmUp(warmupFiles);
+
+		System.out.println(String.format("%7s %8s %10s %8s %10s %10s %14s %7s",
+							"Threads", "Pages", "Pages/s", "MB/s", "p50 (ms)", "p99 (ms)", "Peak heap (MB)", "Errors"));
+		for (int t=0; t<threadCounts.length; t++)
+			benchmark.run(threadCounts[t]);
+	}
+
+	/**
+	 * Constructor
+	 * @param scanner Configured scanner (each thread uses a copy)
+	 * @param corpusFolder Folder with the PAGE XML files (including sub-folders)
+	 */
+	public ThroughputBenchmark(PageScanner scanner, File corpusFolder) throws Exception {
+		this.scanner = scanner;
+		files = new ArrayList<String>();
+		DirectoryScanSource source = new DirectoryScanSource(corpusFolder);
+		try {
+			String filename;
+			while ((filename = source.next()) != null) {
+				files.add(filename);
+				totalBytes += new File(filename).length();
+			}
+		} finally {
+			source.close();
+		}
+	}
+
+	/**
+	 * Scans the given number of files (single-threaded, not measured)
+	 */
+	public void warmUp(int fileCount) throws Exception {
+		PageScanner worker = scanner.createWorkerCopy();
+		ScanRow row = new ScanRow();
+		for (int i=0; i<Math.min(fileCount, files.size()); i++)
+			worker.scan(worker.createInput(files.get(i)), row);
+	}
+
+	/**
+	 * Scans all files of the corpus with the given number of threads and prints the results
+	 */
+	public void run(int threadCount) throws Exception {
+		final long[] latencies = new long[files.size()];
+		final AtomicInteger nextFile = new AtomicInteger();
+		final AtomicInteger errors = new AtomicInteger();
+
+		System.gc();
+		List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+				heapPools.add(pool);
+			}
+		}
+
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (int t=0; t<threadCount; t++) {
+			workers.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					PageScanner worker = scanner.createWorkerCopy();
+					ScanRow row = new ScanRow();
+					int index;
+					while ((index = nextFile.getAndIncrement()) < latencies.length) {
+						long start = System.nanoTime();
+						try {
+							worker.scan(worker.createInput(files.get(index)), row);
+						} catch (Exception exc) {
+							errors.incrementAndGet();
+						}
+						latencies[index] = System.nanoTime() - start;
+					}
+					return null;
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		long start = System.nanoTime();
+		try {
+			List<Future<Void>> results = executor.invokeAll(workers);
+			for (int i=0; i<results.size(); i++)
+				results.get(i).get();
+		} finally {
+			executor.shutdown();
+		}
+		double seconds = (System.nanoTime() - start) / 1.0e9;
+
+		long peakHeap = 0L;
+		for (int i=0; i<heapPools.size(); i++)
+			peakHeap += heapPools.get(i).getPeakUsage().getUsed();
+
+		Arrays.sort(latencies);
+		System.out.println(String.format("%7d %8d %10.1f %8.1f %10.3f %10.3f %14.1f %7d",
+							threadCount, latencies.length, latencies.length / seconds, totalBytes / 1.0e6 / seconds,
+							percentile(latencies, 0.50) / 1.0e6, percentile(latencies, 0.99) / 1.0e6,
+							peakHeap / 1.0e6, errors.get()));
+	}
+
+	/**
+	 * Returns the given percentile of the sorted values (nearest rank)
+	 */
+	private static long percentile(long[] sortedValues, double fraction) {
+		if (sortedValues.length == 0)
+			return 0L;
+		int rank = (int)Math.ceil(fraction * sortedValues.length);
+		return sortedValues[Math.max(0, Math.min(sortedValues.length - 1, rank - 1))];
+	}
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.primaresearch.dla.page.scanner.io.ArchiveScanner;
+import org.primaresearch.dla.page.scanner.io.PageInput;
+import org.primaresearch.dla.page.scanner.output.ScanOutput;
+
+/**
+ * Scans all PAGE XML files of a scan source within one process and outputs
+ * the header once, followed by one row per file (see {@link ScanOutput} for the formats).<br>
+ * Files that cannot be read are reported to STDERR and skipped.<br>
+ * ZIP archives are scanned without extracting them, one row per XML entry (named <code>archive.zip!/path/entry.xml</code>).
+ * Each archive is read by one thread, different archives are scanned in parallel.<br>
+ * <br>
+ * With more than one thread, the files are scanned in parallel. Each worker thread
+ * uses its own copy of the page scanner (and therefore its own scan elements).
+ * The rows are output in input order by default, or in completion order if requested.<br>
+ * <br>
+ * Optionally, a {@link ScanResultCache} can be used to skip files that have not changed since the last run
+ * (not for archive entries).<br>
+ * <br>
+ * In aggregation mode, no rows are output per file. Instead, the values are aggregated over all files
+ * (or per folder) and summary rows are output at the end (see {@link ScanAggregator}).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class BatchScanner {
+
+	/** Maximum number of files (or archives) being scanned or waiting for output, per thread */
+	private static final int FILES_IN_FLIGHT_PER_THREAD = 4;
+	/** Marks the end of the result queue of a parallel scan */
+	private static final Future<List<FileResult>> END_OF_RESULTS = new FutureTask<List<FileResult>>(new Runnable() {
+		@Override
+		public void run() {
+		}
+	}, null);
+	
+	private PageScanner scanner;
+	private ScanOutput out;
+	private PrintStream err;
+	private int threadCount = 1;
+	private boolean ordered = true;
+	private ScanResultCache cache = null;
+	private boolean aggregate = false;
+	private boolean groupByFolder = false;
+	/** One aggregator per scanning thread */
+	private ThreadLocal<ScanAggregator> threadAggregators = new ThreadLocal<ScanAggregator>() {
+		@Override
+		protected ScanAggregator initialValue() {
+			ScanAggregator aggregator = new ScanAggregator();
+			aggregators.add(aggregator);
+			return aggregator;
+		}
+	};
+	private List<ScanAggregator> aggregators = Collections.synchronizedList(new ArrayList<ScanAggregator>());
+	private int scannedCount = 0;
+	private int failedCount = 0;
+	
+	/**
+	 * Constructor
+	 * @param scanner Configured scanner (reused for all files)
+	 * @param out Output for the header and rows (not closed by the batch scanner)
+	 * @param err Output for error messages
+	 */
+	public BatchScanner(PageScanner scanner, ScanOutput out, PrintStream err) {
+		this.scanner = scanner;
+		this.out = out;
+		this.err = err;
+	}
+	
+	/**
+	 * Sets the number of files to scan in parallel (default 1)
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1)
+			throw new IllegalArgumentException("Invalid number of threads: "+threadCount);
+		this.threadCount = threadCount;
+	}
+	
+	/**
+	 * If set to <code>true</code> (default), the rows are output in the order of the scan source.
+	 * Otherwise they are output as soon as a file has been scanned.
+	 */
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+	
+	/**
+	 * Sets a cache for scan results (<code>null</code> for no cache).
+	 * Cached rows are output without scanning the file, new results are added to the cache.
+	 */
+	public void setCache(ScanResultCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Enables the aggregation mode (summary rows instead of one row per file).
+	 * The result cache is not used in this mode.
+	 * @param groupByFolder If <code>true</code>, the values are aggregated per folder, otherwise over all files
+	 */
+	public void setAggregation(boolean aggregate, boolean groupByFolder) {
+		this.aggregate = aggregate;
+		this.groupByFolder = groupByFolder;
+	}
+	
+	/**
+	 * Scans all files of the given source
+	 */
+	public void run(ScanSource source) throws IOException {
+		out.setColumns(aggregate ? ScanAggregator.SUMMARY_COLUMNS : scanner.getColumnNames());
+		out.writeHeader();
+		try {
+			if (threadCount <= 1)
+				runSequential(source);
+			else
+				runParallel(source);
+			
+			if (aggregate)
+				outputSummary();
+		} finally {
+			source.close();
+			out.flush();
+		}
+	}
+	
+	/**
+	 * Scans the files one by one in the calling thread
+	 */
+	private void runSequential(ScanSource source) throws IOException {
+		String filename;
+		while ((filename = source.next()) != null)
+			output(scanItem(scanner, filename));
+	}
+
+	/**
+	 * Scans the files using a thread pool.<br>
+	 * The calling thread reads the scan source and submits the files, the worker threads scan them and
+	 * a writer thread outputs the results. The number of files in flight (submitted but not yet output) is limited,
+	 * so the scan source is read on demand and memory use does not depend on the number of files.
+	 */
+	private void runParallel(ScanSource source) throws IOException {
+		final ThreadLocal<PageScanner> workerScanners = new ThreadLocal<PageScanner>() {
+			@Override
+			protected PageScanner initialValue() {
+				return scanner.createWorkerCopy();
+			}
+		};
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			private int count = 0;
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "page-scanner-"+(++count));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		
+		int maxInFlight = threadCount * FILES_IN_FLIGHT_PER_THREAD;
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		//Results to output: in input order (futures queued on submission) or in completion order (queued when done)
+		BlockingQueue<Future<List<FileResult>>> results = new LinkedBlockingQueue<Future<List<FileResult>>>();
+		CompletionService<List<FileResult>> completionService = ordered 
+				? null 
+				: new ExecutorCompletionService<List<FileResult>>(executor, results);
+		OutputWriter writer = new OutputWriter(results, inFlight);
+		writer.start();
+		try {
+			String filename;
+			while ((filename = source.next()) != null && writer.failure == null) {
+				acquire(inFlight, 1);
+				ScanTask task = new ScanTask(workerScanners, filename);
+				if (ordered)
+					results.add(executor.submit(task));
+				else
+					completionService.submit(task);
+			}
+			//Wait until everything has been output
+			acquire(inFlight, maxInFlight);
+		} finally {
+			results.add(END_OF_RESULTS);
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			executor.shutdownNow();
+		}
+		if (writer.failure instanceof IOException)
+			throw (IOException)writer.failure;
+		if (writer.failure != null)
+			throw new IllegalStateException("Output failed", writer.failure);
+	}
+	
+	private static void acquire(Semaphore semaphore, int permits) throws IOException {
+		try {
+			semaphore.acquire(permits);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Scan interrupted");
+		}
+	}
+	
+	/**
+	 * Scans a single file or all XML entries of an archive using the given scanner
+	 */
+	private List<FileResult> scanItem(PageScanner scanner, String filename) {
+		if (ArchiveScanner.isArchive(filename))
+			return scanArchive(scanner, filename);
+		return Collections.singletonList(scanFile(scanner, filename));
+	}
+	
+	/**
+	 * Scans a single file using the given scanner (or gets the result from the cache)
+	 */
+	private FileResult scanFile(PageScanner scanner, String filename) {
+		if (aggregate)
+			return aggregateInput(scanner, scanner.createInput(filename));
+		try {
+			ScanResultCache.FileState fileState = null;
+			if (cache != null) {
+				fileState = cache.getFileState(filename);
+				String cachedValues = cache.get(filename, fileState);
+				if (cachedValues != null)
+					return new FileResult(filename, cachedValues, null);
+			}
+			
+			scanner.scan(filename);
+			//Without file name (added on output)
+			String values = scanner.renderValues(out);
+			
+			if (cache != null)
+				cache.put(filename, fileState, values);
+			return new FileResult(filename, values, null);
+		} catch (Exception exc) {
+			return new FileResult(filename, null, exc.toString());
+		}
+	}
+	
+	/**
+	 * Scans all XML entries of the given ZIP archive (in archive order)
+	 */
+	private List<FileResult> scanArchive(final PageScanner scanner, String filename) {
+		final List<FileResult> results = new ArrayList<FileResult>();
+		try {
+			ArchiveScanner.scan(new File(filename), new ArchiveScanner.EntryHandler() {
+				@Override
+				public void handle(PageInput input) {
+					results.add(scanInput(scanner, input));
+				}
+			});
+		} catch (Exception exc) {
+			results.add(new FileResult(filename, null, exc.toString()));
+		}
+		return results;
+	}
+	
+	/**
+	 * Scans the given input (not cached)
+	 */
+	private FileResult scanInput(PageScanner scanner, PageInput input) {
+		if (aggregate)
+			return aggregateInput(scanner, input);
+		try {
+			scanner.scan(input);
+			return new FileResult(input.getName(), scanner.renderValues(out), null);
+		} catch (Exception exc) {
+			return new FileResult(input.getName(), null, exc.toString());
+		}
+	}
+	
+	/**
+	 * Scans the given input and adds its values to the aggregator of the current thread
+	 */
+	private FileResult aggregateInput(PageScanner scanner, PageInput input) {
+		try {
+			scanner.scan(input);
+			scanner.accumulate(threadAggregators.get(), groupByFolder ? getFolder(input.getName()) : "All");
+			return new FileResult(input.getName(), null, null);
+		} catch (Exception exc) {
+			return new FileResult(input.getName(), null, exc.toString());
+		}
+	}
+	
+	/**
+	 * Returns the folder part of the given file or archive entry name
+	 */
+	private static String getFolder(String name) {
+		int pos = Math.max(name.lastIndexOf('/'), name.lastIndexOf(File.separatorChar));
+		if (pos < 0)
+			return ".";
+		if (pos == 0)
+			return name.substring(0, 1);
+		return name.substring(0, pos);
+	}
+	
+	/**
+	 * Merges the aggregators of all threads and outputs the summary rows
+	 */
+	private void outputSummary() throws IOException {
+		ScanAggregator result = new ScanAggregator();
+		synchronized (aggregators) {
+			for (int i=0; i<aggregators.size(); i++)
+				result.merge(aggregators.get(i));
+			aggregators.clear();
+		}
+		result.writeSummaryRows(out);
+	}
+	
+	private static List<FileResult> waitFor(Future<List<FileResult>> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Scan interrupted");
+		} catch (ExecutionException e) {
+			//Scan errors are reported in the result, so this is something serious
+			throw new IllegalStateException("Scan worker failed", e.getCause());
+		}
+	}
+	
+	/**
+	 * Writes the rows or error messages of the given results
+	 */
+	private void output(List<FileResult> results) throws IOException {
+		for (int i=0; i<results.size(); i++)
+			output(results.get(i));
+	}
+	
+	/**
+	 * Writes the row or the error message of the given result
+	 */
+	private void output(FileResult result) throws IOException {
+		if (result.error == null) {
+			//No values in aggregation mode
+			if (result.values != null)
+				out.writeRow(result.filename, result.values);
+			scannedCount++;
+		} else {
+			failedCount++;
+			err.println("Error scanning "+result.filename+": "+result.error);
+		}
+	}
+	
+	/**
+	 * Returns the number of successfully scanned files
+	 */
+	public int getScannedCount() {
+		return scannedCount;
+	}
+	
+	/**
+	 * Returns the number of files that could not be scanned
+	 */
+	public int getFailedCount() {
+		return failedCount;
+	}
+	
+	
+	/**
+	 * Scan result for one file (rendered values or an error message; neither in aggregation mode)
+	 */
+	private static class FileResult {
+		final String filename;
+		final String values;
+		final String error;
+		
+		FileResult(String filename, String values, String error) {
+			this.filename = filename;
+			this.values = values;
+			this.error = error;
+		}
+	}
+	
+	/**
+	 * Task scanning one file (or archive) with the page scanner of the current worker thread
+	 */
+	private class ScanTask implements Callable<List<FileResult>> {
+		private final ThreadLocal<PageScanner> workerScanners;
+		private final String filename;
+		
+		ScanTask(ThreadLocal<PageScanner> workerScanners, String filename) {
+			this.workerScanners = workerScanners;
+			this.filename = filename;
+		}
+		
+		@Override
+		public List<FileResult> call() {
+			return scanItem(workerScanners.get(), filename);
+		}
+	}
+	
+	/**
+	 * Thread writing the results of a parallel scan (releases one in-flight permit per file or archive).
+	 * If the output fails, the remaining results are discarded.
+	 */
+	private class OutputWriter extends Thread {
+		private final BlockingQueue<Future<List<FileResult>>> results;
+		private final Semaphore inFlight;
+		volatile Throwable failure = null;
+		
+		OutputWriter(BlockingQueue<Future<List<FileResult>>> results, Semaphore inFlight) {
+			super("page-scanner-output");
+			setDaemon(true);
+			this.results = results;
+			this.inFlight = inFlight;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				Future<List<FileResult>> result;
+				while ((result = results.take()) != END_OF_RESULTS) {
+					try {
+						if (failure == null)
+							output(waitFor(result));
+					} catch (Throwable exc) {
+						failure = exc;
+					} finally {
+						inFlight.release();
+					}
+				}
+			} catch (InterruptedException e) {
+				failure = new InterruptedIOException("Output interrupted");
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import org.primaresearch.dla.page.Page;
+import org.primaresearch.dla.page.layout.PageLayout;
+import org.primaresearch.dla.page.layout.physical.ContentObject;
+import org.primaresearch.dla.page.layout.physical.RegionContainer;
+import org.primaresearch.dla.page.layout.physical.text.LowLevelTextContainer;
+
+/**
+ * Traverses the content objects of a page (model engine) in document order, but only down to the
+ * deepest level of a traversal plan (regions, text lines, words, glyphs).<br>
+ * Nested regions (e.g. table cells) are visited after their parent region, before its text lines
+ * (as they appear in the XML).<br>
+ * Unlike a full content object walk, the children of objects at the deepest level are not visited
+ * (e.g. no words and glyphs, if only regions and text lines are counted).
+ *
+ * @author Christian Clausner
+ *
+ */
+public abstract class BoundedContentProcessor {
+
+	private final TraversalPlan plan;
+
+	/**
+	 * Constructor
+	 * @param plan Deepest level to traverse
+	 */
+	public BoundedContentProcessor(TraversalPlan plan) {
+		this.plan = plan;
+	}
+
+	/**
+	 * Calls {@link #doProcess(ContentObject)} for all content objects of the given page up to the level of the plan
+	 */
+	public void run(Page page) {
+		if (plan.getLevel() == TraversalPlan.LEVEL_NONE)
+			return;
+		PageLayout layout = page.getLayout();
+		for (int r=0; r<layout.getRegionCount(); r++)
+			processRegion(layout.getRegion(r));
+	}
+
+	/**
+	 * Processes the given region, its nested regions (recursive) and, if needed, its text lines
+	 */
+	private void processRegion(ContentObject region) {
+		doProcess(region);
+		if (region instanceof RegionContainer) {
+			RegionContainer container = (RegionContainer)region;
+			for (int r=0; r<container.getRegionCount(); r++)
+				processRegion(container.getRegion(r));
+		}
+		if (plan.getLevel() > TraversalPlan.LEVEL_REGION && region instanceof LowLevelTextContainer)
+			processChildren((LowLevelTextContainer)region, TraversalPlan.LEVEL_TEXT_LINE);
+	}
+
+	/**
+	 * Processes the child content objects of the given parent (recursive, up to the level of the plan)
+	 * @param level Level of the children
+	 */
+	private void processChildren(LowLevelTextContainer parent, int level) {
+		for (int c=0; c<parent.getTextObjectCount(); c++) {
+			ContentObject obj = (ContentObject)parent.getTextObject(c);
+			doProcess(obj);
+			if (level < plan.getLevel() && obj instanceof LowLevelTextContainer)
+				processChildren((LowLevelTextContainer)obj, level + 1);
+		}
+	}
+
+	/**
+	 * Called for each traversed content object
+	 */
+	public abstract void doProcess(ContentObject contentObject);
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
+
+/**
+ * Index of content object handlers by content type.<br>
+ * The handlers for a type are determined once (on first request) by asking each handler 
+ * if it needs that type. Handlers keep their original order.
+ * 
+ * @author Christian Clausner
+ *
+ * @param <H> Handler type
+ */
+public class ContentHandlerIndex<H extends TypedContentHandler> {
+
+	private List<H> handlers;
+	private Map<ContentType, List<H>> handlersByType = new HashMap<ContentType, List<H>>();
+	//Objects of the same type often come in runs (e.g. glyphs)
+	private ContentType lastType = null;
+	private List<H> lastHandlers = null;
+	
+	/**
+	 * Constructor
+	 * @param handlers All handlers (in calling order)
+	 */
+	public ContentHandlerIndex(List<H> handlers) {
+		this.handlers = handlers;
+	}
+	
+	/**
+	 * Returns the handlers that need content objects of the given type (in calling order)
+	 */
+	public List<H> getHandlers(ContentType type) {
+		if (type == lastType)
+			return lastHandlers;
+		List<H> result = handlersByType.get(type);
+		if (result == null) {
+			result = new ArrayList<H>();
+			for (int i=0; i<handlers.size(); i++) {
+				if (handlers.get(i).handlesContentType(type))
+					result.add(handlers.get(i));
+			}
+			handlersByType.put(type, result);
+		}
+		lastType = type;
+		lastHandlers = result;
+		return result;
+	}
+	
+	/**
+	 * Returns <code>true</code> if there are no handlers at all
+	 */
+	public boolean isEmpty() {
+		return handlers.isEmpty();
+	}
+}
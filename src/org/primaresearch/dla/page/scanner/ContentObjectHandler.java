@@ -18,12 +18,13 @@ package org.primaresearch.dla.page.scanner;
 import org.primaresearch.dla.page.layout.physical.ContentObject;
 
 /**
- * Interface for classes that handle layout content objects.
+ * Interface for classes that handle layout content objects.<br>
+ * Only objects of the types declared via {@link #handlesContentType} are passed to the handler.
  * 
  * @author Christian Clausner
  *
  */
-public interface ContentObjectHandler {
+public interface ContentObjectHandler extends TypedContentHandler {
 
 	/**
 	 * Handles the given layout content object.
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.primaresearch.dla.page.scanner.io.ArchiveScanner;
+
+/**
+ * Scan source that walks a directory tree and returns all XML files (sorted by name; also gzip compressed *.xml.gz),
+ * optionally including ZIP archives.<br>
+ * The tree is walked lazily, one folder at a time, so that very large collections
+ * don't have to be listed up front.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class DirectoryScanSource implements ScanSource {
+
+	private static final FileFilter FILTER = new FileFilter() {
+		@Override
+		public boolean accept(File file) {
+			String name = file.getName().toLowerCase();
+			return file.isDirectory() || name.endsWith(".xml") || name.endsWith(".xml.gz");
+		}
+	};
+	
+	private static final FileFilter FILTER_WITH_ARCHIVES = new FileFilter() {
+		@Override
+		public boolean accept(File file) {
+			return FILTER.accept(file) || ArchiveScanner.isArchive(file.getName());
+		}
+	};
+	
+	private FileFilter filter = FILTER;
+	
+	/** Files and folders still to be visited (next one on top) */
+	private Deque<File> pending = new ArrayDeque<File>();
+	
+	/**
+	 * Constructor
+	 * @param rootFolder Folder to scan (including sub-folders)
+	 */
+	public DirectoryScanSource(File rootFolder) {
+		if (!rootFolder.isDirectory())
+			throw new IllegalArgumentException("Not a directory: "+rootFolder);
+		pending.push(rootFolder);
+	}
+	
+	/**
+	 * If set to <code>true</code>, ZIP archives are returned as well (default: <code>false</code>)
+	 */
+	public void setIncludeArchives(boolean include) {
+		filter = include ? FILTER_WITH_ARCHIVES : FILTER;
+	}
+	
+	@Override
+	public String next() throws IOException {
+		while (!pending.isEmpty()) {
+			File file = pending.pop();
+			if (!file.isDirectory())
+				return file.getPath();
+			
+			File[] children = file.listFiles(filter);
+			if (children == null)
+				throw new IOException("Cannot list directory: "+file);
+			Arrays.sort(children);
+			//Push in reverse order so that the first child is visited next
+			for (int i=children.length-1; i>=0; i--)
+				pending.push(children[i]);
+		}
+		return null;
+	}
+
+	@Override
+	public void close() {
+		pending.clear();
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Scan source that reads the files to scan from a manifest (one path per line).<br>
+ * Empty lines and lines starting with '#' are ignored.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ManifestScanSource implements ScanSource {
+
+	private BufferedReader reader;
+	
+	/**
+	 * Constructor
+	 * @param manifest Text file (UTF-8) with one PAGE XML file (or ZIP archive) path per line 
+	 */
+	public ManifestScanSource(File manifest) throws IOException {
+		this(new InputStreamReader(new FileInputStream(manifest), Charset.forName("UTF-8")));
+	}
+	
+	/**
+	 * Constructor
+	 * @param manifest Reader providing one PAGE XML file path per line
+	 */
+	public ManifestScanSource(Reader manifest) {
+		this.reader = new BufferedReader(manifest);
+	}
+	
+	@Override
+	public String next() throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#"))
+				return line;
+		}
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
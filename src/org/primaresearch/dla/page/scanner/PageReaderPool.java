@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import org.primaresearch.dla.page.io.xml.PageXmlInputOutput;
+import org.primaresearch.dla.page.io.xml.XmlPageReader;
+
+/**
+ * Provides one PAGE XML reader per thread, so that the parser and the schema validators
+ * are set up only once per thread instead of once per file.<br>
+ * There is one shared pool with schema validation and one without (for trusted corpora).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class PageReaderPool {
+
+	private static PageReaderPool validatingPool = null;
+	private static PageReaderPool nonValidatingPool = null;
+	
+	private final boolean validate;
+	private final ThreadLocal<XmlPageReader> readers = new ThreadLocal<XmlPageReader>() {
+		@Override
+		protected XmlPageReader initialValue() {
+			return createReader();
+		}
+	};
+	
+	/**
+	 * Returns the shared reader pool
+	 * @param validate Validate the documents against the PAGE schema?
+	 */
+	public static synchronized PageReaderPool getInstance(boolean validate) {
+		if (validate) {
+			if (validatingPool == null)
+				validatingPool = new PageReaderPool(true);
+			return validatingPool;
+		}
+		if (nonValidatingPool == null)
+			nonValidatingPool = new PageReaderPool(false);
+		return nonValidatingPool;
+	}
+	
+	private PageReaderPool(boolean validate) {
+		this.validate = validate;
+	}
+	
+	/**
+	 * Returns the reader of the current thread (don't pass it on to other threads)
+	 */
+	public XmlPageReader getReader() {
+		return readers.get();
+	}
+	
+	/**
+	 * Returns <code>true</code> if the readers validate the documents against the PAGE schema
+	 */
+	public boolean isValidating() {
+		return validate;
+	}
+	
+	private XmlPageReader createReader() {
+		if (validate)
+			return PageXmlInputOutput.getReader();
+		//No validator provider -> no schema validation
+		return new XmlPageReader(null);
+	}
+}
@@ -16,15 +16,28 @@
 package org.primaresearch.dla.page.scanner;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.primaresearch.dla.page.Page;
-import org.primaresearch.dla.page.io.FileInput;
+import org.primaresearch.dla.page.io.InputSource;
+import org.primaresearch.dla.page.io.UrlInput;
 import org.primaresearch.dla.page.io.xml.PageXmlInputOutput;
 import org.primaresearch.dla.page.io.xml.XmlPageReader;
 import org.primaresearch.dla.page.layout.physical.ContentObject;
-import org.primaresearch.dla.page.layout.physical.ContentObjectProcessor;
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
 import org.primaresearch.dla.page.layout.physical.shared.LowLevelTextType;
 import org.primaresearch.dla.page.layout.physical.shared.RegionType;
 import org.primaresearch.dla.page.scanner.element.AttributeValueSetScanElement;
@@ -34,10 +47,22 @@ import org.primaresearch.dla.page.scanner.element.LayersRegionRefCountScanElemen
 import org.primaresearch.dla.page.scanner.element.MetaDataScanElement;
 import org.primaresearch.dla.page.scanner.element.ReadingOrderRegionRefCountScanElement;
 import org.primaresearch.dla.page.scanner.element.RegionCountScanElement;
+import org.primaresearch.dla.page.scanner.element.RegionGeometryScanElement;
 import org.primaresearch.dla.page.scanner.element.RegionSubTypeCountScanElement;
 import org.primaresearch.dla.page.scanner.element.ScanElement;
 import org.primaresearch.dla.page.scanner.element.SpecialCharactersScanElement;
 import org.primaresearch.dla.page.scanner.element.TextContentScanElement;
+import org.primaresearch.dla.page.scanner.element.TextStatisticsScanElement;
+import org.primaresearch.dla.page.scanner.io.ByteArrayPageInput;
+import org.primaresearch.dla.page.scanner.io.FilePageInput;
+import org.primaresearch.dla.page.scanner.io.NioFileReader;
+import org.primaresearch.dla.page.scanner.io.PageInput;
+import org.primaresearch.dla.page.scanner.io.PageInputUrl;
+import org.primaresearch.dla.page.scanner.output.ScanOutput;
+import org.primaresearch.dla.page.scanner.result.ScanRow;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.PageHeaderHandler;
+import org.primaresearch.dla.page.scanner.stream.StreamingPageScanner;
 import org.primaresearch.io.FormatModel;
 import org.primaresearch.io.UnsupportedFormatVersionException;
 
@@ -53,6 +78,7 @@ import org.primaresearch.io.UnsupportedFormatVersionException;
  *  <li>Language and script (semicolon separated list)</li>
  *  <li>Reading order and layers (number of region references)</li>
  * </ul>
+ * Whole folders or file lists can be scanned within one process (see {@link BatchScanner}).
  * 
  * @author Christian Clausner
  *
@@ -62,11 +88,41 @@ public class PageScanner {
 	private static final String MODE_DEFAULT = "default"; 
 	private static final String MODE_SPECIAL_CHARS = "characters"; 
 	private static final String MODE_SPECIAL_CHARS_ONE_COLUMN = "characters-one-column"; 
+	private static final String MODE_CHARACTER_HISTOGRAM = "characters-histogram"; 
+	private static final String MODE_GEOMETRY = "geometry"; 
+	
+	/** Scan engine that reads the page object model */
+	public static final String ENGINE_MODEL = "model"; 
+	/** Scan engine that drives the scan elements directly from the XML stream */
+	public static final String ENGINE_STREAM = "stream"; 
+	
+	/** Default minimum number of content objects for the intra-page parallel traversal */
+	public static final int DEFAULT_INTRA_PAGE_THRESHOLD = 20000;
 	
 	private String pageFilename = ""; 
 	private List<ScanElement> scanElements = new ArrayList<ScanElement>();
+	private ContentHandlerIndex<ContentObjectHandler> contentHandlers = null;
+	/** Deepest content level needed by the content handlers */
+	private TraversalPlan traversalPlan = null;
 	private FormatModel formatModel = null;
+	private boolean validate = true;
+	private ScanTimings timings = null;
 	private String mode = "default";
+	private String engine = ENGINE_MODEL;
+	private StreamingPageScanner streamingScanner = null;
+	private boolean readAhead = false;
+	private StringBuilder valueBuffer = new StringBuilder();
+	private boolean nio = false;
+	private long mappingThreshold = NioFileReader.DEFAULT_MAPPING_THRESHOLD;
+	/** Columns to scan (<code>null</code> for all columns of the scan mode) */
+	private Set<String> selectedColumns = null;
+	/** All columns of the scan mode (only while the scan elements are created) */
+	private Set<String> availableColumns = null;
+	/** Page level columns only, reading each file only up to the first region */
+	private boolean headerOnly = false;
+	/** Minimum number of content objects for the intra-page parallel traversal (0 = disabled) */
+	private int intraPageThreshold = 0;
+	private ParallelContentTraversal parallelTraversal = null;
 	
 	/**
 	 * Main function
@@ -81,7 +137,25 @@ public class PageScanner {
 		
 		//Parse arguments
 		String filename = null;
+		ScanSource batchSource = null;
+		int threadCount = 1;
+		boolean ordered = true;
 		boolean printHeaders = false;
+		boolean printTimings = false;
+		String cacheFilename = null;
+		boolean cacheHash = false;
+		boolean cacheCompact = false;
+		boolean aggregate = false;
+		boolean groupByFolder = false;
+		boolean includeArchives = false;
+		String format = ScanOutput.FORMAT_CSV;
+		String outputFilename = null;
+		boolean gzipOutput = false;
+		int flushRows = 0;
+		long flushMillis = 0L;
+		boolean daemon = false;
+		boolean streaming = false;
+		int daemonPort = -1;
 		for (int i=0; i<args.length; i++) {
 			if ("-csv-headers".equals(args[i])) {
 				printHeaders = true;
@@ -90,27 +164,252 @@ public class PageScanner {
 				i++;
 				filename = args[i];
 			}
+			else if ("-scan-dir".equals(args[i])) {
+				i++;
+				try {
+					batchSource = new DirectoryScanSource(new File(args[i]));
+				} catch (IllegalArgumentException e) {
+					System.err.println(e.getMessage());
+					return;
+				}
+			}
+			else if ("-scan-zip".equals(args[i])) {
+				i++;
+				batchSource = new ManifestScanSource(new StringReader(args[i]));
+			}
+			else if ("-scan-stdin".equals(args[i])) {
+				batchSource = new ManifestScanSource(new InputStreamReader(System.in, Charset.forName("UTF-8")));
+				streaming = true;
+			}
+			else if ("-archives".equals(args[i])) {
+				includeArchives = true;
+			}
+			else if ("-scan-list".equals(args[i])) {
+				i++;
+				try {
+					batchSource = new ManifestScanSource(new File(args[i]));
+				} catch (IOException e) {
+					e.printStackTrace();
+					return;
+				}
+			}
+			else if ("-threads".equals(args[i])) {
+				i++;
+				threadCount = Integer.parseInt(args[i]);
+			}
+			else if ("-unordered".equals(args[i])) {
+				ordered = false;
+			}
 			else if ("-mode".equals(args[i])) {
 				i++;
 				scanner.setMode(args[i]);
 			}
+			else if ("-columns".equals(args[i])) {
+				i++;
+				scanner.setColumns(Arrays.asList(args[i].split(",")));
+			}
+			else if ("-profile".equals(args[i])) {
+				i++;
+				try {
+					scanner.setColumns(readProfile(new File(args[i])));
+				} catch (IOException e) {
+					e.printStackTrace();
+					return;
+				}
+			}
+			else if ("-header-only".equals(args[i])) {
+				scanner.setHeaderOnly(true);
+			}
+			else if ("-intra-page".equals(args[i])) {
+				scanner.setIntraPageThreshold(DEFAULT_INTRA_PAGE_THRESHOLD);
+			}
+			else if ("-intra-page-threshold".equals(args[i])) {
+				i++;
+				scanner.setIntraPageThreshold(Integer.parseInt(args[i]));
+			}
+			else if ("-engine".equals(args[i])) {
+				i++;
+				scanner.setEngine(args[i]);
+			}
+			else if ("-read-ahead".equals(args[i])) {
+				scanner.setReadAhead(true);
+			}
+			else if ("-nio".equals(args[i])) {
+				scanner.setNio(true, scanner.mappingThreshold);
+			}
+			else if ("-mmap-threshold".equals(args[i])) {
+				i++;
+				scanner.setNio(true, Long.parseLong(args[i]));
+			}
+			else if ("-no-validate".equals(args[i])) {
+				scanner.setValidation(false);
+			}
+			else if ("-format".equals(args[i])) {
+				i++;
+				format = args[i];
+			}
+			else if ("-output".equals(args[i])) {
+				i++;
+				outputFilename = args[i];
+				if (outputFilename.toLowerCase().endsWith(".gz"))
+					gzipOutput = true;
+			}
+			else if ("-gzip".equals(args[i])) {
+				gzipOutput = true;
+			}
+			else if ("-flush-rows".equals(args[i])) {
+				i++;
+				flushRows = Integer.parseInt(args[i]);
+			}
+			else if ("-flush-ms".equals(args[i])) {
+				i++;
+				flushMillis = Long.parseLong(args[i]);
+			}
+			else if ("-daemon".equals(args[i])) {
+				daemon = true;
+			}
+			else if ("-daemon-port".equals(args[i])) {
+				i++;
+				daemon = true;
+				daemonPort = Integer.parseInt(args[i]);
+			}
+			else if ("-timing".equals(args[i])) {
+				printTimings = true;
+			}
+			else if ("-cache".equals(args[i])) {
+				i++;
+				cacheFilename = args[i];
+			}
+			else if ("-cache-hash".equals(args[i])) {
+				cacheHash = true;
+			}
+			else if ("-cache-compact".equals(args[i])) {
+				cacheCompact = true;
+			}
+			else if ("-aggregate".equals(args[i])) {
+				aggregate = true;
+			}
+			else if ("-aggregate-by-folder".equals(args[i])) {
+				aggregate = true;
+				groupByFolder = true;
+			}
 			else {
 				System.err.println("Unknown argument: "+args[i]);
 			}
 		}
-		if (printHeaders) {
-			scanner.printHeaders();
+		if (printTimings)
+			scanner.setTimings(new ScanTimings());
+		if (batchSource instanceof DirectoryScanSource)
+			((DirectoryScanSource)batchSource).setIncludeArchives(includeArchives);
+		
+		//Output each row as soon as it is available when reading the file list from STDIN (unless configured otherwise)
+		if (streaming && flushRows == 0 && flushMillis == 0L)
+			flushRows = 1;
+		
+		if (daemon) {
+			runDaemon(scanner, format, threadCount, daemonPort);
 			return;
 		}
-		if (filename != null) {
-			try {
+		
+		ScanOutput output = null;
+		try {
+			output = ScanOutput.create(format, outputFilename != null 
+												? new FileOutputStream(outputFilename) 
+												: ScanOutput.getStandardOutput(), 
+										gzipOutput);
+			output.setFlushPolicy(flushRows, flushMillis);
+			
+			if (printHeaders) {
+				output.setColumns(scanner.getColumnNames());
+				output.writeHeader();
+			}
+			else if (batchSource != null) {
+				runBatch(scanner, batchSource, output, threadCount, ordered, aggregate, groupByFolder, 
+						cacheFilename, cacheHash, cacheCompact, format);
+				scanner.reportTimings();
+			}
+			else if (filename != null) {
 				scanner.scan(filename);
-			} catch (UnsupportedFormatVersionException e) {
-				e.printStackTrace();
-				return;
+				output.setColumns(scanner.getColumnNames());
+				output.writeRow(scanner.pageFilename, scanner.renderValues(output));
+				scanner.reportTimings();
+			}
+		} catch (UnsupportedFormatVersionException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			//Invalid configuration (e.g. unknown scan mode or column)
+			System.err.println(e.getMessage());
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Answers scan requests from STDIN or from a loopback socket (if a port is given)
+	 */
+	private static void runDaemon(PageScanner scanner, String format, int threadCount, int port) {
+		ScanDaemon daemon = new ScanDaemon(scanner, format, threadCount);
+		try {
+			if (port >= 0)
+				daemon.listen(port, System.err);
+			else {
+				OutputStream out = ScanOutput.getStandardOutput();
+				try {
+					daemon.serve(System.in, out);
+				} finally {
+					out.close();
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			daemon.shutdown();
+		}
+	}
+	
+	/**
+	 * Scans all files of the given source (with optional result cache)
+	 */
+	private static void runBatch(PageScanner scanner, ScanSource batchSource, ScanOutput output,
+									int threadCount, boolean ordered, boolean aggregate, boolean groupByFolder,
+									String cacheFilename, boolean cacheHash, boolean cacheCompact, String format) throws IOException {
+		ScanResultCache cache = null;
+		try {
+			BatchScanner batchScanner = new BatchScanner(scanner, output, System.err);
+			batchScanner.setThreadCount(threadCount);
+			batchScanner.setOrdered(ordered);
+			batchScanner.setAggregation(aggregate, groupByFolder);
+			if (aggregate && cacheFilename != null) {
+				System.err.println("The result cache is not used in aggregation mode");
+				cacheFilename = null;
+			}
+			if (cacheFilename != null) {
+				//Cached rows are stored in the output format
+				cache = new ScanResultCache(new File(cacheFilename), scanner.getConfigurationKey()+";format="+format, cacheHash);
+				batchScanner.setCache(cache);
+			}
+			batchScanner.run(batchSource);
+			if (cache != null) {
+				System.err.println("Cache: "+cache.getHitCount()+" hits, "+cache.getMissCount()+" misses");
+				if (cacheCompact)
+					cache.compact();
+			}
+		} finally {
+			if (cache != null) {
+				try {
+					cache.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
 			}
-			scanner.printValues();
-			return;
 		}
 	}
 	
@@ -129,11 +428,84 @@ public class PageScanner {
 		System.out.println("");
 		System.out.println("  ... -scan <PAGE XML file>");
 		System.out.println("");
+		System.out.println(" To output the CSV headers and the values for multiple PAGE XML files:");
+		System.out.println("");
+		System.out.println("  ... -scan-dir <folder>      (all XML files in the folder and its sub-folders, including *.xml.gz)");
+		System.out.println("  ... -scan-list <manifest>   (text file with one PAGE XML file path per line)");
+		System.out.println("  ... -scan-zip <archive>     (all XML entries of a ZIP archive, without extracting it)");
+		System.out.println("  ... -scan-stdin             (one path per line from STDIN, scanned as the paths arrive,");
+		System.out.println("                               e.g. find ... | scanner -scan-stdin; rows are flushed immediately)");
+		System.out.println("");
+		System.out.println(" To keep the scanner running and answer scan requests (one file path per line):");
+		System.out.println("");
+		System.out.println("  ... -daemon                 (requests from STDIN, results to STDOUT)");
+		System.out.println("  ... -daemon-port <port>     (requests via TCP on the loopback interface; port 0 for any free port)");
+		System.out.println("");
+		System.out.println("     Request lines: <path>, <mode>TAB<path>, HEADERS[TAB<mode>] or QUIT. Each file is answered");
+		System.out.println("     with one row (in completion order when using -threads) or '#ERROR TAB <path> TAB <message>'.");
+		System.out.println("");
+		System.out.println(" ZIP archives (*.zip) in a manifest are scanned entry by entry. To include ZIP archives");
+		System.out.println(" when scanning a folder: -archives");
+		System.out.println("");
+		System.out.println(" Result cache for incremental batch scans (optional): -cache <cache file>");
+		System.out.println("     Unchanged files (same size and modification time) are not scanned again.");
+		System.out.println("     -cache-hash     Compare files by size and content hash instead");
+		System.out.println("     -cache-compact  Remove outdated entries and entries of deleted files after the scan");
+		System.out.println("");
+		System.out.println(" Aggregated statistics instead of one row per file (optional, batch scans only):");
+		System.out.println("     -aggregate            Sum, min, max and mean (or set of values) per column over all files");
+		System.out.println("     -aggregate-by-folder  The same, but per folder (e.g. per book)");
+		System.out.println("");
+		System.out.println(" Output format (optional): -format <f>");
+		System.out.println("     csv - Comma separated values, quoted where necessary (default)");
+		System.out.println("     tsv - Tab separated values (tabs and line breaks in values are escaped)");
+		System.out.println("     jsonl - JSON Lines (one object per file)");
+		System.out.println("     columnar - Binary columnar format for large scans (see ColumnarScanReader)");
+		System.out.println("");
+		System.out.println(" Output file (optional, default STDOUT): -output <file>   (gzip compressed if the name ends with .gz)");
+		System.out.println("     -gzip                Compress the output");
+		System.out.println("     -flush-rows <n>      Flush the output every n rows (default: only when the buffer is full)");
+		System.out.println("     -flush-ms <ms>       Flush the output if the last flush was at least ms milliseconds ago");
+		System.out.println("");
+		System.out.println(" Column selection (optional, default: all columns of the scan mode):");
+		System.out.println("     -columns <c1,c2,...>  CSV headers of the columns to scan, e.g. \"Region Count,PcGtsID\"");
+		System.out.println("     -profile <file>       Scan profile: text file with one column name per line");
+		System.out.println("     Only the scan elements for the selected columns are created.");
+		System.out.println("     -header-only          Page level columns only (metadata, border, print space, reading order");
+		System.out.println("                           and layers); each file is read only up to the first region");
+		System.out.println("");
+		System.out.println(" Parallel batch scan (optional): -threads <n>");
+		System.out.println("     Rows are output in input order unless -unordered is specified (completion order).");
+		System.out.println("");
+		System.out.println(" Parallel traversal of very large pages (optional, model engine only):");
+		System.out.println("     -intra-page                  Split pages with at least "+DEFAULT_INTRA_PAGE_THRESHOLD+" content objects over all cores");
+		System.out.println("     -intra-page-threshold <n>    The same, with a different minimum number of content objects");
+		System.out.println("");
 		System.out.println(" Scan mode (optional): -mode <m>");
 		System.out.println("     Supported modes:");
 		System.out.println("         default - Outputs metadata, content object counts, text statistics, ...");
 		System.out.println("         characters - Outputs a list of characters occurring in the text content (Unicode)");
 		System.out.println("         characters-one-column - Outputs the characters as multiple rows in one column.");
+		System.out.println("         characters-histogram - Outputs the characters and their number of occurrences as multiple rows.");
+		System.out.println("         geometry - Outputs overlapping regions (pairs and area, per region type) and text lines");
+		System.out.println("                    outside their region (model engine only)");
+		System.out.println("");
+		System.out.println(" Gzip compressed PAGE files are detected automatically and decompressed on the fly.");
+		System.out.println(" To decompress in a background thread while parsing (optional): -read-ahead");
+		System.out.println("     (Useful for large compressed files and fewer threads than CPU cores)");
+		System.out.println("");
+		System.out.println(" Read files via NIO (optional): -nio");
+		System.out.println("     Large files are memory-mapped, small files are read into a direct buffer.");
+		System.out.println("     -mmap-threshold <bytes>  Size from which files are memory-mapped (default 1048576, implies -nio)");
+		System.out.println("");
+		System.out.println(" Skip schema validation for trusted files (optional): -no-validate");
+		System.out.println("");
+		System.out.println(" Print average time per file and scan phase to STDERR (optional): -timing");
+		System.out.println("");
+		System.out.println(" Scan engine (optional): -engine <e>");
+		System.out.println("     Supported engines:");
+		System.out.println("         model - Reads the complete page object model (default, with schema validation)");
+		System.out.println("         stream - Scans the XML stream directly (faster, constant memory, no validation)");
 	}
 
 	
@@ -146,95 +518,308 @@ public class PageScanner {
 		//addScanElements();
 	}
 	
+	/**
+	 * Creates a new scanner with the same configuration (but its own scan elements).
+	 * Used to give each worker thread of a parallel scan its own scanner instance.
+	 */
+	PageScanner createWorkerCopy() {
+		PageScanner copy = new PageScanner(formatModel);
+		copy.setMode(mode);
+		copy.setEngine(engine);
+		copy.setValidation(validate);
+		copy.setTimings(timings);
+		copy.setReadAhead(readAhead);
+		copy.setNio(nio, mappingThreshold);
+		copy.selectedColumns = selectedColumns;
+		copy.headerOnly = headerOnly;
+		copy.setIntraPageThreshold(intraPageThreshold);
+		return copy;
+	}
+	
+	/**
+	 * Constructor for scanner copies sharing the format model
+	 */
+	private PageScanner(FormatModel formatModel) {
+		this.formatModel = formatModel;
+	}
+	
 	/**
 	 * Sets the scan mode
-	 * @param mode 'default', 'characters', or 'characters-one-column'
+	 * @param mode 'default', 'characters', 'characters-one-column', or 'characters-histogram'
 	 */
 	public void setMode(String mode) {
 		this.mode = mode;
 	}
 	
+	/**
+	 * Selects the columns to scan (by CSV header; the 'File' column is always included).
+	 * Only the scan elements providing these columns are created, so other columns cost nothing.
+	 * Scan elements with multiple columns (e.g. sub-type counts) output all their columns, 
+	 * the text statistics only the selected ones. The columns are output in the standard order.
+	 * @param columns Column names or <code>null</code> for all columns of the scan mode (default)
+	 */
+	public void setColumns(Collection<String> columns) {
+		if (columns == null) {
+			selectedColumns = null;
+			return;
+		}
+		selectedColumns = new LinkedHashSet<String>();
+		for (String column : columns) {
+			column = column.trim();
+			if (!column.isEmpty() && !"File".equals(column))
+				selectedColumns.add(column);
+		}
+	}
+	
+	/**
+	 * Reads a scan profile: a text file (UTF-8) with one column name per line.
+	 * Empty lines and lines starting with '#' are ignored.
+	 * @return The column names
+	 */
+	public static List<String> readProfile(File profile) throws IOException {
+		List<String> columns = new ArrayList<String>();
+		ManifestScanSource lines = new ManifestScanSource(profile);
+		try {
+			String line;
+			while ((line = lines.next()) != null)
+				columns.add(line);
+		} finally {
+			lines.close();
+		}
+		return columns;
+	}
+	
+	/**
+	 * Enables or disables the header-only fast mode (default: disabled).<br>
+	 * Only the page level columns of the scan mode are scanned (metadata, image size, border, print space,
+	 * reading order and layers). These are read with the streaming parser (regardless of the scan engine),
+	 * which stops reading each file at the first region.
+	 */
+	public void setHeaderOnly(boolean headerOnly) {
+		this.headerOnly = headerOnly;
+	}
+	
+	/**
+	 * Enables the intra-page parallel traversal for very large pages (model engine only, default: disabled).<br>
+	 * Pages with at least the given number of content objects (of the types the scan elements need) are split
+	 * over the threads of a shared fork-join pool (see {@link ParallelContentTraversal}).
+	 * @param threshold Minimum number of content objects or 0 to disable
+	 */
+	public void setIntraPageThreshold(int threshold) {
+		this.intraPageThreshold = threshold;
+	}
+	
+	/**
+	 * Sets the scan engine
+	 * @param engine 'model' (default) or 'stream'
+	 */
+	public void setEngine(String engine) {
+		if (!ENGINE_MODEL.equals(engine) && !ENGINE_STREAM.equals(engine))
+			throw new IllegalArgumentException("Unknown scan engine: "+engine);
+		this.engine = engine;
+	}
+	
+	/**
+	 * Enables or disables the validation against the PAGE schema (model engine only, default: enabled)
+	 */
+	public void setValidation(boolean validate) {
+		this.validate = validate;
+	}
+	
+	/**
+	 * If set to <code>true</code>, gzip compressed files are decompressed in a background thread
+	 * while the XML is being parsed (default: <code>false</code>)
+	 */
+	public void setReadAhead(boolean readAhead) {
+		this.readAhead = readAhead;
+	}
+	
+	/**
+	 * Enables or disables reading files via NIO (default: disabled)
+	 * @param mappingThreshold Files of this size (in bytes) or larger are memory-mapped, smaller files are read into a direct buffer
+	 */
+	public void setNio(boolean nio, long mappingThreshold) {
+		this.nio = nio;
+		this.mappingThreshold = mappingThreshold;
+	}
+	
+	/**
+	 * Sets an object to record the time spent per file and scan phase (<code>null</code> to disable)
+	 */
+	public void setTimings(ScanTimings timings) {
+		this.timings = timings;
+	}
+	
+	/**
+	 * Prints the recorded timings (if enabled) to STDERR
+	 */
+	private void reportTimings() {
+		if (timings == null)
+			return;
+		String description = headerOnly
+								? "header only"
+								: ENGINE_STREAM.equals(engine) 
+								? "engine stream" 
+								: "engine model, " + (validate ? "validating" : "no validation");
+		timings.report(description, System.err);
+	}
+	
 	/**
 	 * Adds the scan elements according to the set scan mode
 	 */
 	private void addScanElements() {
+		availableColumns = new HashSet<String>();
 		if (MODE_DEFAULT.equals(mode)) {
 			//Meta data
-			scanElements.add(new MetaDataScanElement(MetaDataScanElement.TYPE_PCGTS_ID));
-			scanElements.add(new MetaDataScanElement(MetaDataScanElement.TYPE_CREATOR));
-			scanElements.add(new MetaDataScanElement(MetaDataScanElement.TYPE_CREATED));
-			scanElements.add(new MetaDataScanElement(MetaDataScanElement.TYPE_MODIFIED));
-			scanElements.add(new MetaDataScanElement(MetaDataScanElement.TYPE_WIDTH));
-			scanElements.add(new MetaDataScanElement(MetaDataScanElement.TYPE_HEIGHT));
+			addScanElement(new MetaDataScanElement(MetaDataScanElement.TYPE_PCGTS_ID));
+			addScanElement(new MetaDataScanElement(MetaDataScanElement.TYPE_CREATOR));
+			addScanElement(new MetaDataScanElement(MetaDataScanElement.TYPE_CREATED));
+			addScanElement(new MetaDataScanElement(MetaDataScanElement.TYPE_MODIFIED));
+			addScanElement(new MetaDataScanElement(MetaDataScanElement.TYPE_WIDTH));
+			addScanElement(new MetaDataScanElement(MetaDataScanElement.TYPE_HEIGHT));
 			
 			//Border and Print Space
-			scanElements.add(new BoundsScanElement(BoundsScanElement.TYPE_BORDER));
-			scanElements.add(new BoundsScanElement(BoundsScanElement.TYPE_PRINT_SPACE));
+			addScanElement(new BoundsScanElement(BoundsScanElement.TYPE_BORDER));
+			addScanElement(new BoundsScanElement(BoundsScanElement.TYPE_PRINT_SPACE));
 			
 			//Content type count
-			scanElements.add(new RegionCountScanElement());
-			scanElements.add(new ContentTypeCountScanElement(LowLevelTextType.TextLine));
-			scanElements.add(new ContentTypeCountScanElement(LowLevelTextType.Word));
-			scanElements.add(new ContentTypeCountScanElement(LowLevelTextType.Glyph));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.ChartRegion));
+			addScanElement(new RegionCountScanElement());
+			addScanElement(new ContentTypeCountScanElement(LowLevelTextType.TextLine));
+			addScanElement(new ContentTypeCountScanElement(LowLevelTextType.Word));
+			addScanElement(new ContentTypeCountScanElement(LowLevelTextType.Glyph));
+			addScanElement(new ContentTypeCountScanElement(RegionType.ChartRegion));
 			//scanElements.add(new ContentTypeCountScanElement(RegionType.FrameRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.GraphicRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.ImageRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.LineDrawingRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.MathsRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.AdvertRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.ChemRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.MusicRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.NoiseRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.SeparatorRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.TableRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.TextRegion));
-			scanElements.add(new ContentTypeCountScanElement(RegionType.UnknownRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.GraphicRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.ImageRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.LineDrawingRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.MathsRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.AdvertRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.ChemRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.MusicRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.NoiseRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.SeparatorRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.TableRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.TextRegion));
+			addScanElement(new ContentTypeCountScanElement(RegionType.UnknownRegion));
 			
 			//Region sub-type count
-			scanElements.add(new RegionSubTypeCountScanElement(RegionType.TextRegion, formatModel));
-			scanElements.add(new RegionSubTypeCountScanElement(RegionType.GraphicRegion, formatModel));
-			scanElements.add(new RegionSubTypeCountScanElement(RegionType.ChartRegion, formatModel));
+			addScanElement(new RegionSubTypeCountScanElement(RegionType.TextRegion, formatModel));
+			addScanElement(new RegionSubTypeCountScanElement(RegionType.GraphicRegion, formatModel));
+			addScanElement(new RegionSubTypeCountScanElement(RegionType.ChartRegion, formatModel));
 			
-			//Text statistics
-			scanElements.add(new TextContentScanElement(RegionType.TextRegion, TextContentScanElement.TYPE_COUNT_CHARACTERS));
-			scanElements.add(new TextContentScanElement(RegionType.TextRegion, TextContentScanElement.TYPE_COUNT_SPACES_AND_TABS));
-			scanElements.add(new TextContentScanElement(RegionType.TextRegion, TextContentScanElement.TYPE_COUNT_LINE_BREAKS));
-			scanElements.add(new TextContentScanElement(RegionType.TextRegion, TextContentScanElement.TYPE_COUNT_ALL));
+			//Text statistics (one pass over the text per content type)
+			addTextStatistics(RegionType.TextRegion, 
+							TextContentScanElement.TYPE_COUNT_CHARACTERS,
+							TextContentScanElement.TYPE_COUNT_SPACES_AND_TABS,
+							TextContentScanElement.TYPE_COUNT_LINE_BREAKS,
+							TextContentScanElement.TYPE_COUNT_ALL);
 	
-			scanElements.add(new TextContentScanElement(LowLevelTextType.TextLine, TextContentScanElement.TYPE_COUNT_CHARACTERS));
-			scanElements.add(new TextContentScanElement(LowLevelTextType.TextLine, TextContentScanElement.TYPE_COUNT_SPACES_AND_TABS));
-			scanElements.add(new TextContentScanElement(LowLevelTextType.TextLine, TextContentScanElement.TYPE_COUNT_ALL));
+			addTextStatistics(LowLevelTextType.TextLine, 
+							TextContentScanElement.TYPE_COUNT_CHARACTERS,
+							TextContentScanElement.TYPE_COUNT_SPACES_AND_TABS,
+							TextContentScanElement.TYPE_COUNT_ALL);
 	
-			scanElements.add(new TextContentScanElement(LowLevelTextType.Word, TextContentScanElement.TYPE_COUNT_ALL));
+			addTextStatistics(LowLevelTextType.Word, TextContentScanElement.TYPE_COUNT_ALL);
 	
-			scanElements.add(new TextContentScanElement(LowLevelTextType.Glyph, TextContentScanElement.TYPE_COUNT_ALL));
+			addTextStatistics(LowLevelTextType.Glyph, TextContentScanElement.TYPE_COUNT_ALL);
 			
 			//Language and script
-			scanElements.add(new AttributeValueSetScanElement(RegionType.TextRegion, "primaryLanguage"));
-			scanElements.add(new AttributeValueSetScanElement(RegionType.TextRegion, "secondaryLanguage"));
-			scanElements.add(new AttributeValueSetScanElement(RegionType.TextRegion, "primaryScript"));
-			scanElements.add(new AttributeValueSetScanElement(RegionType.TextRegion, "secondaryScript"));
+			addScanElement(new AttributeValueSetScanElement(RegionType.TextRegion, "primaryLanguage"));
+			addScanElement(new AttributeValueSetScanElement(RegionType.TextRegion, "secondaryLanguage"));
+			addScanElement(new AttributeValueSetScanElement(RegionType.TextRegion, "primaryScript"));
+			addScanElement(new AttributeValueSetScanElement(RegionType.TextRegion, "secondaryScript"));
 	
 			//Reading order and layers
-			scanElements.add(new ReadingOrderRegionRefCountScanElement());
-			scanElements.add(new LayersRegionRefCountScanElement());
+			addScanElement(new ReadingOrderRegionRefCountScanElement());
+			addScanElement(new LayersRegionRefCountScanElement());
 		}
 		else if (MODE_SPECIAL_CHARS.equals(mode)) {
-			scanElements.add(new SpecialCharactersScanElement());
+			addScanElement(new SpecialCharactersScanElement());
 		}
 		else if (MODE_SPECIAL_CHARS_ONE_COLUMN.equals(mode)) {
-			scanElements.add(new SpecialCharactersScanElement(true));
+			addScanElement(new SpecialCharactersScanElement(true));
+		}
+		else if (MODE_CHARACTER_HISTOGRAM.equals(mode)) {
+			addScanElement(new SpecialCharactersScanElement(true, true));
+		}
+		else if (MODE_GEOMETRY.equals(mode)) {
+			addScanElement(new RegionGeometryScanElement());
 		}
 		else {
 			throw new IllegalArgumentException("Unknown scan mode: "+mode);
 		}
+		
+		if (selectedColumns != null) {
+			List<String> unknown = new ArrayList<String>();
+			for (String column : selectedColumns) {
+				if (!availableColumns.contains(column))
+					unknown.add(column);
+			}
+			if (!unknown.isEmpty())
+				throw new IllegalArgumentException("Unknown column(s) for scan mode '"+mode+"'"
+											+(headerOnly ? " (header-only: page level columns only)" : "")+": "+unknown);
+		}
+		if (scanElements.isEmpty()) {
+			if (headerOnly)
+				throw new IllegalArgumentException("No page level columns in scan mode '"+mode+"' (header-only)");
+			if (selectedColumns != null)
+				throw new IllegalArgumentException("No columns selected");
+		}
+		availableColumns = null;
+	}
+	
+	/**
+	 * Adds the given scan element, unless a column selection is set and none of the columns of the element is selected.<br>
+	 * Elements without columns (e.g. sub-type counts if the format model has no sub-types) are skipped.
+	 */
+	private void addScanElement(ScanElement element) {
+		if (headerOnly && !(element instanceof PageHeaderHandler))
+			return;
+		if (element.getCsvHeader().isEmpty())
+			return;
+		String[] headers = element.getCsvHeader().split(",");
+		boolean selected = selectedColumns == null;
+		for (int i=0; i<headers.length; i++) {
+			availableColumns.add(headers[i]);
+			if (!selected && selectedColumns.contains(headers[i]))
+				selected = true;
+		}
+		if (selected)
+			scanElements.add(element);
+	}
+	
+	/**
+	 * Adds a text statistics element for the given content type, with the selected statistics types only
+	 * (nothing if no statistics column of the content type is selected)
+	 */
+	private void addTextStatistics(ContentType contentType, int... statisticsTypes) {
+		if (headerOnly)
+			return;
+		int[] selected = new int[statisticsTypes.length];
+		int count = 0;
+		for (int i=0; i<statisticsTypes.length; i++) {
+			String header = new TextStatisticsScanElement(contentType, statisticsTypes[i]).getCsvHeader();
+			availableColumns.add(header);
+			if (selectedColumns == null || selectedColumns.contains(header))
+				selected[count++] = statisticsTypes[i];
+		}
+		if (count > 0)
+			scanElements.add(new TextStatisticsScanElement(contentType, Arrays.copyOf(selected, count)));
+	}
+	
+	/**
+	 * Returns the scan elements for the set scan mode (created on first call)
+	 */
+	List<ScanElement> getScanElements() {
+		if (scanElements.isEmpty())
+			addScanElements();
+		return scanElements;
 	}
 	
 	/**
-	 * Prints the CSV headers to STDOUT
+	 * Returns the CSV headers (comma separated, one per value written for a page)
 	 */
-	private void printHeaders() {
+	public String getCsvHeaders() {
 		if (scanElements.isEmpty())
 			addScanElements();
 		StringBuilder str = new StringBuilder();
@@ -246,90 +831,191 @@ public class PageScanner {
 			str.append(',');
 			str.append(scanElements.get(i).getCsvHeader());
 		}
-		System.out.println(str.toString());
+		return str.toString();
+	}
+
+	/**
+	 * Returns the column names (file name and the CSV headers of the scan elements)
+	 */
+	public String[] getColumnNames() {
+		return getCsvHeaders().split(",");
 	}
 
 	/**
-	 * Scans the specified PAGE XML file.
+	 * Adds the values of the last scan to the given aggregator
+	 * @param group Group name
 	 */
-	private void scan(String pageFilename) throws UnsupportedFormatVersionException {
+	void accumulate(ScanAggregator aggregator, String group) {
+		aggregator.add(group, scanElements);
+	}
+	
+	/**
+	 * Returns a key describing everything that determines the scan results for a file
+	 * (scan mode, engine and columns). Used to invalidate cached results.
+	 */
+	String getConfigurationKey() {
+		return "mode="+mode+";engine="+(headerOnly ? "header" : engine)+";columns="+getCsvHeaders();
+	}
+
+	/**
+	 * Scans the specified PAGE XML file.<br>
+	 * The XML reader and the scan elements are reused for subsequent calls.
+	 */
+	void scan(String pageFilename) throws UnsupportedFormatVersionException, IOException {
+		scan(createInput(pageFilename));
+	}
+	
+	/**
+	 * Creates the input for the given PAGE XML file (plain or gzip compressed)
+	 */
+	PageInput createInput(String pageFilename) {
+		FilePageInput input = new FilePageInput(new File(pageFilename), readAhead);
+		input.setNio(nio, mappingThreshold);
+		input.setHeaderOnly(headerOnly);
+		return input;
+	}
+
+	/**
+	 * Scans the given PAGE XML input and stores the typed values in the given row
+	 * (cleared first; can be reused for subsequent calls).
+	 */
+	public void scan(PageInput input, ScanRow row) throws UnsupportedFormatVersionException, IOException {
+		scan(input);
+		row.clear();
+		row.setName(pageFilename);
+		writeValues(row);
+	}
+
+	/**
+	 * Scans the given PAGE XML input (file, archive entry, ...).<br>
+	 * The XML reader and the scan elements are reused for subsequent calls.
+	 * The values can be retrieved via {@link #writeValues(ScanValueWriter)}.
+	 */
+	public void scan(PageInput input) throws UnsupportedFormatVersionException, IOException {
 		if (scanElements.isEmpty())
 			addScanElements();
-		this.pageFilename = pageFilename;
-		XmlPageReader reader = PageXmlInputOutput.getReader();
-		scan(reader.read(new FileInput(new File(pageFilename))));
+		this.pageFilename = input.getName();
+		if (ENGINE_STREAM.equals(engine) || headerOnly) {
+			scanStreaming(input);
+			return;
+		}
+		long start = System.nanoTime();
+		XmlPageReader reader = PageReaderPool.getInstance(validate).getReader();
+		Page page = reader.read(toInputSource(input));
+		if (page == null)
+			throw new IllegalArgumentException("Could not read PAGE file: "+pageFilename);
+		long read = System.nanoTime();
+		scan(page);
+		if (timings != null)
+			timings.add(read - start, System.nanoTime() - read);
+	}
+	
+	/**
+	 * Returns the input source for the PAGE XML reader of the model engine.
+	 * All inputs are passed as URL, so they are opened via {@link PageInput#openStream()} (decompression, buffer sizes, NIO)
+	 * like for the streaming engine (read into memory first if they can only be read once).
+	 */
+	private InputSource toInputSource(PageInput input) throws IOException {
+		if (!input.isReopenable())
+			input = ByteArrayPageInput.readFrom(input);
+		return new UrlInput(PageInputUrl.create(input));
 	}
 
 	/**
-	 * Scans the given page object.
+	 * Scans the given PAGE XML input using the streaming engine.
 	 */
-	private void scan(Page page) {
+	private void scanStreaming(PageInput pageInput) throws IOException {
+		if (streamingScanner == null)
+			streamingScanner = new StreamingPageScanner(scanElements);
+		
+		for (int i=0; i<scanElements.size(); i++)
+			scanElements.get(i).reset();
+		
+		long start = System.nanoTime();
+		InputStream input = pageInput.openStream();
+		try {
+			streamingScanner.scan(input);
+		} finally {
+			input.close();
+		}
+		//Reading and traversal are one pass
+		if (timings != null)
+			timings.add(System.nanoTime() - start, 0L);
+	}
+
+	/**
+	 * Scans the given page object (the scan elements have to be created first, see {@link #getScanElements()}).
+	 */
+	void scan(Page page) {
 	
-		//Init scan elements
+		//Init scan elements (clearing values of the previous page)
 		for (int i=0; i<scanElements.size(); i++) {
+			scanElements.get(i).reset();
 			scanElements.get(i).init(page);
 		}
 		
 		//Handle content objects
-		ContentObjectProcessor processor = new ContentObjectProcessor() {
+		if (contentHandlers == null) {
+			List<ContentObjectHandler> handlers = new ArrayList<ContentObjectHandler>();
+			List<SplittableContentHandler> splittableHandlers = new ArrayList<SplittableContentHandler>();
+			for (int i=0; i<scanElements.size(); i++) {
+				if (scanElements.get(i) instanceof ContentObjectHandler)
+					handlers.add((ContentObjectHandler)scanElements.get(i));
+				if (scanElements.get(i) instanceof SplittableContentHandler)
+					splittableHandlers.add((SplittableContentHandler)scanElements.get(i));
+			}
+			contentHandlers = new ContentHandlerIndex<ContentObjectHandler>(handlers);
+			traversalPlan = new TraversalPlan(contentHandlers);
+			
+			//Intra-page parallel traversal (only if the work of all handlers can be split)
+			if (intraPageThreshold > 0 && !handlers.isEmpty() && splittableHandlers.size() == handlers.size())
+				parallelTraversal = new ParallelContentTraversal(splittableHandlers, intraPageThreshold,
+																ParallelContentTraversal.getSharedPool());
+		}
+		if (traversalPlan.getLevel() == TraversalPlan.LEVEL_NONE)
+			return;
+		if (parallelTraversal != null) {
+			parallelTraversal.run(page);
+			return;
+		}
+		BoundedContentProcessor processor = new BoundedContentProcessor(traversalPlan) {
 			@Override
 			public void doProcess(ContentObject contentObject) {
 				HandleContentObject(contentObject);
 			}
 		};
 		processor.run(page);
-		
-		/*PageLayout layout = page.getLayout();
-		for (int r=0; r<layout.getRegionCount(); r++) {
-			Region region = layout.getRegion(r);
-			HandleContentObject(region);
-			
-			if (region instanceof LowLevelTextContainer) {
-				ProcessChildren((LowLevelTextContainer)region);
-			}
-		}*/
 	}
 	
 	/**
-	 * Processes the child content objects of the given parent (recursive).
+	 * Calls all content object handlers for the type of the given object.
 	 */
-	/*private void ProcessChildren(LowLevelTextContainer parent) {
-		for (int c=0; c<parent.getTextObjectCount(); c++) {
-			TextObject obj = parent.getTextObject(c);
-			HandleContentObject((ContentObject)obj);
-			
-			if (obj instanceof LowLevelTextContainer) {
-				ProcessChildren((LowLevelTextContainer)obj);
-			}
-		}
-	}*/
+	private void HandleContentObject(ContentObject obj) {
+		List<ContentObjectHandler> handlers = contentHandlers.getHandlers(obj.getType());
+		for (int i=0; i<handlers.size(); i++)
+			handlers.get(i).handleContentObject(obj);
+	}
 	
 	/**
-	 * Calls all content object handlers for the given object.
+	 * Renders the values of the scan elements for the last scan in the format of the given output
+	 * (without file name; see {@link ScanOutput#writeRow(String, CharSequence)})
 	 */
-	private void HandleContentObject(ContentObject obj) {
-		ScanElement scanElement;
-		for (int i=0; i<scanElements.size(); i++) {
-			scanElement = scanElements.get(i);
-			if (scanElement instanceof ContentObjectHandler) {
-				((ContentObjectHandler)scanElement).handleContentObject(obj);
-			}
+	String renderValues(ScanOutput output) {
+		valueBuffer.setLength(0);
+		try {
+			writeValues(output.createValueWriter(valueBuffer));
+		} catch (IOException e) {
+			//Not thrown by StringBuilder
+			throw new IllegalStateException(e);
 		}
+		return valueBuffer.toString();
 	}
 	
 	/**
-	 * Prints the CSV values to STDOUT
+	 * Writes the typed values of the scan elements for the last scan to the given writer (in column order)
 	 */
-	private void printValues() {
-		StringBuilder str = new StringBuilder();
-		
-		//File name is hard-coded
-		str.append(pageFilename);
-		
-		for (int i=0; i<scanElements.size(); i++) {
-			str.append(',');
-			str.append(scanElements.get(i).getCsvValue());
-		}
-		System.out.println(str.toString());
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		for (int i=0; i<scanElements.size(); i++)
+			scanElements.get(i).writeValues(writer);
 	}
 }
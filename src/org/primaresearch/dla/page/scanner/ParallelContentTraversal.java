@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.primaresearch.dla.page.Page;
+import org.primaresearch.dla.page.layout.physical.ContentObject;
+
+/**
+ * Intra-page parallel traversal for very large pages (model engine).<br>
+ * The content objects of a page that are relevant to the handlers are collected in document order
+ * (only down to the deepest level the handlers need, see {@link TraversalPlan}).
+ * If there are at least as many as the threshold, they are split into consecutive parts that are
+ * handled by the tasks of a fork-join pool. Each task uses its own part handlers
+ * (see {@link SplittableContentHandler}), which are merged into the original handlers in document order.
+ * Smaller pages are handled in the calling thread.<br>
+ * <br>
+ * An instance is not thread safe (use one per scanner), but the pool can be shared.
+ *
+ * @author Christian Clausner
+ *
+ */
+public class ParallelContentTraversal {
+
+	/** Minimum number of content objects per task */
+	private static final int MIN_OBJECTS_PER_TASK = 1000;
+	/** Number of tasks per pool thread (smaller parts balance uneven objects, e.g. long text regions) */
+	private static final int TASKS_PER_THREAD = 4;
+
+	private static ForkJoinPool sharedPool = null;
+
+	private final SplittableContentHandler[] handlers;
+	private final ContentHandlerIndex<SplittableContentHandler> handlerIndex;
+	private final TraversalPlan plan;
+	private final int threshold;
+	private final ForkJoinPool pool;
+	/** Content objects of the current page (cleared after each page) */
+	private final List<ContentObject> objects = new ArrayList<ContentObject>();
+
+	/**
+	 * Constructor
+	 * @param handlers Content object handlers
+	 * @param threshold Minimum number of relevant content objects for a page to be split
+	 * @param pool Pool for the tasks
+	 */
+	public ParallelContentTraversal(List<SplittableContentHandler> handlers, int threshold, ForkJoinPool pool) {
+		this.handlers = handlers.toArray(new SplittableContentHandler[handlers.size()]);
+		this.handlerIndex = new ContentHandlerIndex<SplittableContentHandler>(handlers);
+		this.plan = new TraversalPlan(handlerIndex);
+		this.threshold = threshold;
+		this.pool = pool;
+	}
+
+	/**
+	 * Returns a pool with one thread per processor, shared by all scanners (created on first call)
+	 */
+	public static synchronized ForkJoinPool getSharedPool() {
+		if (sharedPool == null)
+			sharedPool = new ForkJoinPool();
+		return sharedPool;
+	}
+
+	/**
+	 * Passes the content objects of the given page to the handlers
+	 */
+	public void run(Page page) {
+		BoundedContentProcessor collector = new BoundedContentProcessor(plan) {
+			@Override
+			public void doProcess(ContentObject contentObject) {
+				if (!handlerIndex.getHandlers(contentObject.getType()).isEmpty())
+					objects.add(contentObject);
+			}
+		};
+		try {
+			collector.run(page);
+			if (objects.size() < threshold)
+				handle(objects, 0, objects.size(), handlerIndex);
+			else
+				runParallel();
+		} finally {
+			objects.clear();
+		}
+	}
+
+	/**
+	 * Handles the collected objects in parts (one fork-join task per part) and merges the results
+	 */
+	private void runParallel() {
+		int partCount = Math.min(pool.getParallelism() * TASKS_PER_THREAD, objects.size() / MIN_OBJECTS_PER_TASK);
+		partCount = Math.max(1, partCount);
+		final PartTask[] parts = new PartTask[partCount];
+		for (int i=0; i<partCount; i++)
+			parts[i] = new PartTask((int)((long)objects.size() * i / partCount), (int)((long)objects.size() * (i+1) / partCount));
+
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected void compute() {
+				invokeAll(parts);
+			}
+		});
+
+		//Merge in document order
+		for (int p=0; p<parts.length; p++) {
+			for (int h=0; h<handlers.length; h++)
+				handlers[h].mergePart(parts[p].partHandlers.get(h));
+		}
+	}
+
+	/**
+	 * Passes the objects in the given range to the handlers of the given index
+	 */
+	private static void handle(List<ContentObject> objects, int from, int to,
+								ContentHandlerIndex<SplittableContentHandler> index) {
+		for (int i=from; i<to; i++) {
+			ContentObject obj = objects.get(i);
+			List<SplittableContentHandler> objectHandlers = index.getHandlers(obj.getType());
+			for (int h=0; h<objectHandlers.size(); h++)
+				objectHandlers.get(h).handleContentObject(obj);
+		}
+	}
+
+
+	/**
+	 * Task handling a range of the collected content objects with its own part handlers
+	 */
+	private class PartTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		/** Part handlers (aligned with the original handlers) */
+		private List<SplittableContentHandler> partHandlers;
+
+		PartTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			partHandlers = new ArrayList<SplittableContentHandler>(handlers.length);
+			for (int h=0; h<handlers.length; h++)
+				partHandlers.add(handlers[h].createPartHandler());
+			handle(objects, from, to, new ContentHandlerIndex<SplittableContentHandler>(partHandlers));
+		}
+	}
+}
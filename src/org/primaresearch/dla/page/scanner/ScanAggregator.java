@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.primaresearch.dla.page.scanner.element.ScanAccumulator;
+import org.primaresearch.dla.page.scanner.element.ScanElement;
+import org.primaresearch.dla.page.scanner.result.ScanRowWriter;
+
+/**
+ * Aggregates the values of the scan elements over multiple pages, optionally per group
+ * (e.g. per book folder). Only the accumulators are kept in memory, not the per-page values.<br>
+ * Aggregators of parallel workers can be merged.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ScanAggregator {
+
+	/** Columns of the summary rows */
+	public static final String[] SUMMARY_COLUMNS = {"Group", "Column", "Pages", "Sum", "Min", "Max", "Mean", "Values"};
+	
+	/** Accumulators per group (aligned with the scan elements; null for elements that cannot be aggregated) */
+	private Map<String, ScanAccumulator[]> groups = new TreeMap<String, ScanAccumulator[]>();
+	
+	/**
+	 * Adds the values of the last scanned page
+	 * @param group Group name
+	 * @param scanElements Scan elements (always in the same configuration)
+	 */
+	public void add(String group, List<ScanElement> scanElements) {
+		ScanAccumulator[] accumulators = groups.get(group);
+		if (accumulators == null) {
+			accumulators = new ScanAccumulator[scanElements.size()];
+			for (int i=0; i<scanElements.size(); i++)
+				accumulators[i] = scanElements.get(i).createAccumulator();
+			groups.put(group, accumulators);
+		}
+		for (int i=0; i<scanElements.size(); i++) {
+			if (accumulators[i] != null)
+				scanElements.get(i).accumulate(accumulators[i]);
+		}
+	}
+	
+	/**
+	 * Adds the aggregated values of the given aggregator (the given aggregator should not be used afterwards)
+	 */
+	public void merge(ScanAggregator other) {
+		for (Iterator<Map.Entry<String, ScanAccumulator[]>> it = other.groups.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<String, ScanAccumulator[]> entry = it.next();
+			ScanAccumulator[] accumulators = groups.get(entry.getKey());
+			if (accumulators == null) {
+				groups.put(entry.getKey(), entry.getValue());
+				continue;
+			}
+			ScanAccumulator[] otherAccumulators = entry.getValue();
+			for (int i=0; i<accumulators.length; i++) {
+				if (accumulators[i] != null)
+					accumulators[i].merge(otherAccumulators[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the summary rows for all groups (sorted by group name, one row per group and column)
+	 */
+	public void writeSummaryRows(ScanRowWriter rows) throws IOException {
+		for (Iterator<Map.Entry<String, ScanAccumulator[]>> it = groups.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<String, ScanAccumulator[]> entry = it.next();
+			ScanAccumulator[] accumulators = entry.getValue();
+			for (int i=0; i<accumulators.length; i++) {
+				if (accumulators[i] != null)
+					accumulators[i].writeSummaryRows(entry.getKey(), rows);
+			}
+		}
+	}
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.primaresearch.dla.page.scanner.output.ScanOutput;
+
+/**
+ * Long-running scanner that answers scan requests from STDIN or from a socket on the loopback interface.
+ * The format model, the XML readers and the scan elements (per worker thread and scan mode) are created once
+ * and reused for all requests.<br>
+ * <br>
+ * Protocol (UTF-8, one request per line):
+ * <ul>
+ * <li><code>&lt;path&gt;</code> - Scans the file with the default scan mode</li>
+ * <li><code>&lt;mode&gt;TAB&lt;path&gt;</code> - Scans the file with the given scan mode</li>
+ * <li><code>HEADERS</code> or <code>HEADERS TAB &lt;mode&gt;</code> - Returns the header row (if the output format has one)</li>
+ * <li><code>QUIT</code> - Ends the session (as does the end of the input)</li>
+ * </ul>
+ * Each scan request is answered with one result row in the output format (CSV, TSV or JSON Lines)
+ * or with an error line <code>#ERROR TAB &lt;path&gt; TAB &lt;message&gt;</code>.
+ * Requests are scanned concurrently by a worker pool, so the responses are written in completion order
+ * (they contain the path of the request).
+ *
+ * @author Christian Clausner
+ *
+ */
+public class ScanDaemon {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String ERROR_PREFIX = "#ERROR\t";
+	/** Maximum number of requests per worker thread that are scanned or queued per session */
+	private static final int REQUESTS_IN_FLIGHT_PER_THREAD = 4;
+
+	private final PageScanner scanner;
+	private final String format;
+	private final int threadCount;
+	private final ExecutorService workers;
+	/** Scanners of the worker threads, per scan mode */
+	private final ThreadLocal<Map<String, PageScanner>> workerScanners;
+
+	/**
+	 * Constructor
+	 * @param scanner Configured scanner (its scan mode is the default mode; each worker thread uses copies)
+	 * @param format Output format ('csv', 'tsv' or 'jsonl')
+	 * @param threadCount Number of worker threads
+	 */
+	public ScanDaemon(final PageScanner scanner, String format, int threadCount) {
+		if (ScanOutput.FORMAT_COLUMNAR.equals(format))
+			throw new IllegalArgumentException("The columnar format is not supported for the scan daemon");
+		this.scanner = scanner;
+		this.format = format;
+		this.threadCount = threadCount;
+		workerScanners = new ThreadLocal<Map<String, PageScanner>>() {
+			@Override
+			protected Map<String, PageScanner> initialValue() {
+				return new HashMap<String, PageScanner>();
+			}
+		};
+		workers = Executors.newFixedThreadPool(threadCount, new DaemonThreadFactory("page-scanner-worker-"));
+	}
+
+	/**
+	 * Answers the requests of the given input until it ends (or a QUIT request)
+	 * and waits until all responses are written. The streams are not closed.
+	 */
+	public void serve(InputStream in, OutputStream out) throws IOException {
+		new Session(out).run(new BufferedReader(new InputStreamReader(in, UTF8)));
+	}
+
+	/**
+	 * Accepts connections on the loopback interface (runs until the process is terminated).
+	 * Each connection is a session (see {@link #serve(InputStream, OutputStream)}).
+	 * @param port Port number (0 for any free port)
+	 * @param log Output for status and error messages
+	 */
+	public void listen(int port, PrintStream log) throws IOException {
+		ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		try {
+			log.println("Scan daemon listening on "+serverSocket.getInetAddress().getHostAddress()+":"+serverSocket.getLocalPort());
+			ThreadFactory sessionThreads = new DaemonThreadFactory("page-scanner-session-");
+			while (true) {
+				final Socket socket = serverSocket.accept();
+				final PrintStream sessionLog = log;
+				sessionThreads.newThread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							serve(socket.getInputStream(), socket.getOutputStream());
+						} catch (IOException e) {
+							sessionLog.println("Session error: "+e);
+						} finally {
+							try {
+								socket.close();
+							} catch (IOException e) {
+								//Ignore
+							}
+						}
+					}
+				}).start();
+			}
+		} finally {
+			serverSocket.close();
+		}
+	}
+
+	/**
+	 * Stops the worker threads
+	 */
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+
+	/**
+	 * Returns the scanner of the current worker thread for the given mode
+	 */
+	private PageScanner getWorkerScanner(String mode) {
+		Map<String, PageScanner> scanners = workerScanners.get();
+		PageScanner workerScanner = scanners.get(mode);
+		if (workerScanner == null) {
+			workerScanner = scanner.createWorkerCopy();
+			if (mode != null)
+				workerScanner.setMode(mode);
+			scanners.put(mode, workerScanner);
+		}
+		return workerScanner;
+	}
+
+
+	/**
+	 * Requests and responses of one client (STDIN/STDOUT or a connection)
+	 */
+	private class Session {
+
+		private final OutputStream out;
+		/** Outputs per scan mode (the columns depend on the mode); all write to the same stream */
+		private final Map<String, ScanOutput> outputs = new HashMap<String, ScanOutput>();
+		private final int maxInFlight = threadCount * REQUESTS_IN_FLIGHT_PER_THREAD;
+		private final Semaphore inFlight = new Semaphore(maxInFlight);
+
+		Session(OutputStream out) {
+			this.out = out;
+		}
+
+		/**
+		 * Reads and dispatches the requests, then waits for the outstanding responses
+		 */
+		void run(BufferedReader requests) throws IOException {
+			try {
+				String line;
+				while ((line = requests.readLine()) != null) {
+					if (line.isEmpty())
+						continue;
+					if ("QUIT".equals(line))
+						break;
+
+					String mode = null;
+					String path = line;
+					int tab = line.indexOf('\t');
+					if (tab >= 0) {
+						mode = line.substring(0, tab);
+						path = line.substring(tab + 1);
+					}
+
+					if ("HEADERS".equals(mode != null ? mode : path)) {
+						writeHeader(mode != null ? path : null);
+						continue;
+					}
+					inFlight.acquireUninterruptibly();
+					try {
+						workers.execute(new ScanRequest(mode, path));
+					} catch (RuntimeException exc) {
+						inFlight.release();
+						throw exc;
+					}
+				}
+			} finally {
+				//Wait for all responses
+				inFlight.acquireUninterruptibly(maxInFlight);
+				inFlight.release(maxInFlight);
+			}
+		}
+
+		/**
+		 * Writes the header row for the given mode
+		 */
+		private synchronized void writeHeader(String mode) throws IOException {
+			ScanOutput output;
+			try {
+				output = getOutput(mode);
+			} catch (RuntimeException exc) {
+				writeError("HEADERS", exc);
+				return;
+			}
+			output.writeHeader();
+			output.flush();
+		}
+
+		/**
+		 * Returns the output for the given scan mode (created on first use)
+		 */
+		private synchronized ScanOutput getOutput(String mode) throws IOException {
+			ScanOutput output = outputs.get(mode);
+			if (output == null) {
+				PageScanner modeScanner = scanner.createWorkerCopy();
+				if (mode != null)
+					modeScanner.setMode(mode);
+				output = ScanOutput.create(format, out, false);
+				output.setColumns(modeScanner.getColumnNames());
+				output.setFlushPolicy(1, 0L);
+				outputs.put(mode, output);
+			}
+			return output;
+		}
+
+		/**
+		 * Writes a result row (the output is flushed after the row)
+		 */
+		private synchronized void writeRow(ScanOutput output, String path, String values) throws IOException {
+			output.writeRow(path, values);
+		}
+
+		/**
+		 * Writes an error line
+		 */
+		private synchronized void writeError(String path, Exception exc) throws IOException {
+			String message = exc.getMessage() != null ? exc.getMessage() : exc.toString();
+			message = message.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+			out.write((ERROR_PREFIX+path+"\t"+message+"\n").getBytes(UTF8));
+			out.flush();
+		}
+
+
+		/**
+		 * Scans one file in a worker thread and writes the response
+		 */
+		private class ScanRequest implements Runnable {
+
+			private final String mode;
+			private final String path;
+
+			ScanRequest(String mode, String path) {
+				this.mode = mode;
+				this.path = path;
+			}
+
+			@Override
+			public void run() {
+				try {
+					ScanOutput output = getOutput(mode);
+					PageScanner workerScanner = getWorkerScanner(mode);
+					String values;
+					try {
+						workerScanner.scan(workerScanner.createInput(path));
+						values = workerScanner.renderValues(output);
+					} catch (Exception exc) {
+						writeError(path, exc);
+						return;
+					}
+					writeRow(output, path, values);
+				} catch (Exception exc) {
+					//Output failed (e.g. client disconnected)
+					try {
+						writeError(path, exc);
+					} catch (IOException e) {
+						//Ignore
+					}
+				} finally {
+					inFlight.release();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Creates named daemon threads
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+		private int count = 0;
+
+		DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public synchronized Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, prefix+(++count));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of scan results (one CSV row per file) for incremental rescans.<br>
+ * <br>
+ * A cached row is reused if the file still has the same size and modification time
+ * (or the same size and content hash, if content hashing is enabled) and the scanner 
+ * configuration (mode, engine, columns) has not changed.<br>
+ * <br>
+ * The cache file is an append-only log of records, each protected by a checksum. New results are
+ * appended immediately, so an interrupted run can be resumed: a partially written record at the end
+ * is discarded on the next start. Only the file keys and record positions are held in memory, 
+ * the rows are read from disk on demand. {@link #compact()} rewrites the log without outdated 
+ * records and without entries of deleted files.<br>
+ * <br>
+ * All methods are thread safe.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ScanResultCache {
+
+	private static final int MAGIC = 0x50534331; //'PSC1'
+	private static final int VERSION = 1;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int MAX_RECORD_LENGTH = 256 * 1024 * 1024;
+	
+	private File file;
+	private String configuration;
+	private boolean useContentHash;
+	private RandomAccessFile raf;
+	private long appendPosition;
+	private Map<String, Entry> entries = new HashMap<String, Entry>();
+	private long hitCount = 0;
+	private long missCount = 0;
+	
+	/**
+	 * Opens (or creates) a cache file
+	 * @param file Cache file
+	 * @param configuration Description of the scanner configuration. If the cache was created with
+	 * 			a different configuration, all cached results are discarded.
+	 * @param useContentHash If <code>true</code>, files are compared by size and content hash 
+	 * 			instead of size and modification time.
+	 */
+	public ScanResultCache(File file, String configuration, boolean useContentHash) throws IOException {
+		this.file = file;
+		this.configuration = configuration;
+		this.useContentHash = useContentHash;
+		load();
+	}
+	
+	/**
+	 * Returns the current state of the given file (for lookup and storage)
+	 */
+	public FileState getFileState(String filename) throws IOException {
+		File f = new File(filename);
+		if (!f.isFile())
+			throw new IOException("File not found: "+filename);
+		return new FileState(f.length(), f.lastModified(), useContentHash ? hash(f) : null);
+	}
+	
+	/**
+	 * Returns the cached CSV row for the given file or <code>null</code> if there is no valid entry.
+	 * @param state Current state of the file (see {@link #getFileState(String)}) 
+	 */
+	public synchronized String get(String filename, FileState state) throws IOException {
+		Entry entry = entries.get(getKey(filename));
+		if (entry == null || !entry.matches(state, useContentHash)) {
+			missCount++;
+			return null;
+		}
+		byte[] row = new byte[entry.rowLength];
+		raf.seek(entry.rowPosition);
+		raf.readFully(row);
+		hitCount++;
+		return new String(row, UTF8);
+	}
+	
+	/**
+	 * Stores the CSV row for the given file (appended to the cache file immediately)
+	 * @param state State of the file before it was scanned 
+	 */
+	public synchronized void put(String filename, FileState state, String csvRow) throws IOException {
+		String key = getKey(filename);
+		Entry entry = new Entry(state.size, state.lastModified, state.hash);
+		appendPosition += writeRecord(raf, appendPosition, key, entry, csvRow.getBytes(UTF8));
+		entries.put(key, entry);
+	}
+	
+	/**
+	 * Rewrites the cache file with only the current entries of files that still exist.
+	 */
+	public synchronized void compact() throws IOException {
+		File tempFile = new File(file.getPath()+".tmp");
+		RandomAccessFile out = new RandomAccessFile(tempFile, "rw");
+		Map<String, Entry> newEntries = new HashMap<String, Entry>();
+		try {
+			out.setLength(0);
+			long position = writeHeader(out);
+			for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<String, Entry> mapEntry = it.next();
+				if (!new File(mapEntry.getKey()).isFile())
+					continue;
+				Entry entry = mapEntry.getValue();
+				byte[] row = new byte[entry.rowLength];
+				raf.seek(entry.rowPosition);
+				raf.readFully(row);
+				Entry newEntry = new Entry(entry.size, entry.lastModified, entry.hash);
+				position += writeRecord(out, position, mapEntry.getKey(), newEntry, row);
+				newEntries.put(mapEntry.getKey(), newEntry);
+			}
+		} finally {
+			out.close();
+		}
+		raf.close();
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		raf = new RandomAccessFile(file, "rw");
+		appendPosition = raf.length();
+		entries = newEntries;
+	}
+	
+	/**
+	 * Closes the cache file
+	 */
+	public synchronized void close() throws IOException {
+		raf.close();
+	}
+	
+	/**
+	 * Returns the number of entries
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Returns the number of successful lookups
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+	
+	/**
+	 * Returns the number of lookups without valid entry
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+	
+	private static String getKey(String filename) {
+		return new File(filename).getAbsolutePath();
+	}
+	
+	/**
+	 * Reads the record positions from the cache file and discards a damaged end (if any)
+	 */
+	private void load() throws IOException {
+		long validLength = 0;
+		if (file.isFile() && file.length() > 0) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+			try {
+				validLength = readRecords(in);
+			} finally {
+				in.close();
+			}
+		}
+		
+		raf = new RandomAccessFile(file, "rw");
+		if (validLength == 0) {
+			//New (or incompatible) cache
+			raf.setLength(0);
+			entries.clear();
+			appendPosition = writeHeader(raf);
+		} else {
+			raf.setLength(validLength);
+			appendPosition = validLength;
+		}
+	}
+	
+	/**
+	 * Reads all intact records
+	 * @return The length of the intact part of the file or 0 if the cache cannot be used
+	 */
+	private long readRecords(DataInputStream in) throws IOException {
+		long position;
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return 0;
+			byte[] conf = new byte[in.readInt()];
+			in.readFully(conf);
+			if (!configuration.equals(new String(conf, UTF8)))
+				return 0;
+			position = 12 + conf.length;
+		} catch (EOFException e) {
+			return 0;
+		}
+		
+		CRC32 crc = new CRC32();
+		while (true) {
+			try {
+				int length = in.readInt();
+				if (length <= 0 || length > MAX_RECORD_LENGTH)
+					break;
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				crc.reset();
+				crc.update(payload, 0, length);
+				if (in.readInt() != (int)crc.getValue())
+					break;
+				
+				DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+				String key = record.readUTF();
+				long size = record.readLong();
+				long lastModified = record.readLong();
+				byte[] hash = null;
+				int hashLength = record.readUnsignedByte();
+				if (hashLength > 0) {
+					hash = new byte[hashLength];
+					record.readFully(hash);
+				}
+				Entry entry = new Entry(size, lastModified, hash);
+				entry.rowLength = record.readInt();
+				entry.rowPosition = position + 4 + (length - entry.rowLength);
+				entries.put(key, entry);
+				
+				position += 4 + length + 4;
+			} catch (EOFException e) {
+				//Interrupted while writing the last record
+				break;
+			}
+		}
+		return position;
+	}
+	
+	private long writeHeader(RandomAccessFile out) throws IOException {
+		byte[] conf = configuration.getBytes(UTF8);
+		out.seek(0);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(conf.length);
+		out.write(conf);
+		return 12 + conf.length;
+	}
+	
+	/**
+	 * Writes a record at the given position and sets the row position of the entry
+	 * @return Number of bytes written
+	 */
+	private static int writeRecord(RandomAccessFile out, long position, String key, Entry entry, byte[] row) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(row.length + key.length() + 64);
+		DataOutputStream record = new DataOutputStream(buffer);
+		record.writeInt(0); //Placeholder for length
+		record.writeUTF(key);
+		record.writeLong(entry.size);
+		record.writeLong(entry.lastModified);
+		if (entry.hash != null) {
+			record.writeByte(entry.hash.length);
+			record.write(entry.hash);
+		} else
+			record.writeByte(0);
+		record.writeInt(row.length);
+		record.write(row);
+		record.flush();
+		
+		byte[] bytes = buffer.toByteArray();
+		int length = bytes.length - 4;
+		bytes[0] = (byte)(length >>> 24);
+		bytes[1] = (byte)(length >>> 16);
+		bytes[2] = (byte)(length >>> 8);
+		bytes[3] = (byte)length;
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 4, length);
+		
+		out.seek(position);
+		out.write(bytes);
+		out.writeInt((int)crc.getValue());
+		
+		entry.rowLength = row.length;
+		entry.rowPosition = position + bytes.length - row.length;
+		return bytes.length + 4;
+	}
+	
+	/**
+	 * Calculates the SHA-1 hash of the file content
+	 */
+	private static byte[] hash(File f) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		InputStream in = new FileInputStream(f);
+		try {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(buffer)) > 0)
+				digest.update(buffer, 0, read);
+		} finally {
+			in.close();
+		}
+		return digest.digest();
+	}
+	
+	
+	/**
+	 * Size, modification time and (optionally) content hash of a file
+	 */
+	public static class FileState {
+		final long size;
+		final long lastModified;
+		final byte[] hash;
+		
+		FileState(long size, long lastModified, byte[] hash) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+	}
+	
+	/**
+	 * Cache entry (file state and position of the row in the cache file)
+	 */
+	private static class Entry extends FileState {
+		long rowPosition;
+		int rowLength;
+		
+		Entry(long size, long lastModified, byte[] hash) {
+			super(size, lastModified, hash);
+		}
+		
+		boolean matches(FileState state, boolean useContentHash) {
+			if (size != state.size)
+				return false;
+			if (useContentHash)
+				return hash != null && Arrays.equals(hash, state.hash);
+			return lastModified == state.lastModified;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.IOException;
+
+/**
+ * Interface for sources of PAGE XML files to be scanned in batch mode.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public interface ScanSource {
+
+	/**
+	 * Returns the path of the next file to scan or <code>null</code> if there are no more files.
+	 */
+	public String next() throws IOException;
+	
+	/**
+	 * Releases any resources held by this source.
+	 */
+	public void close() throws IOException;
+}
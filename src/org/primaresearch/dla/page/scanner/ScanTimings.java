@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the time spent per scan phase (thread safe, can be shared between worker scanners).<br>
+ * Used to compare the per-file cost of the scan options (engine, validation).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ScanTimings {
+
+	private AtomicLong fileCount = new AtomicLong();
+	private AtomicLong readNanos = new AtomicLong();
+	private AtomicLong traversalNanos = new AtomicLong();
+	
+	/**
+	 * Adds the timings of one scanned file
+	 * @param readNanos Time for reading/parsing the file (nanoseconds)
+	 * @param traversalNanos Time for passing the content to the scan elements (nanoseconds)
+	 */
+	public void add(long readNanos, long traversalNanos) {
+		fileCount.incrementAndGet();
+		this.readNanos.addAndGet(readNanos);
+		this.traversalNanos.addAndGet(traversalNanos);
+	}
+	
+	/**
+	 * Returns the number of files timed
+	 */
+	public long getFileCount() {
+		return fileCount.get();
+	}
+	
+	/**
+	 * Prints the average time per file and phase
+	 * @param description Description of the scan options used
+	 */
+	public void report(String description, PrintStream out) {
+		long files = fileCount.get();
+		if (files == 0) {
+			out.println("Timings ("+description+"): no files scanned");
+			return;
+		}
+		double read = readNanos.get() / 1.0e6 / files;
+		double traversal = traversalNanos.get() / 1.0e6 / files;
+		out.println(String.format("Timings (%s): %d files, per file: read %.3f ms, traversal %.3f ms, total %.3f ms",
+				description, files, read, traversal, read + traversal));
+	}
+}
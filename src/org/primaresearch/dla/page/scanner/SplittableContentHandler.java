@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+/**
+ * Content object handler whose work on one page can be split over several threads
+ * (see {@link ParallelContentTraversal}).<br>
+ * Each thread uses its own part handler for a subset of the content objects of the page;
+ * the values of the part handlers are merged into the original handler afterwards.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public interface SplittableContentHandler extends ContentObjectHandler {
+
+	/**
+	 * Creates an empty handler with the same configuration (used by one thread only)
+	 */
+	public SplittableContentHandler createPartHandler();
+	
+	/**
+	 * Adds the values collected by the given part handler (created by {@link #createPartHandler()} of this handler)
+	 */
+	public void mergePart(SplittableContentHandler part);
+}
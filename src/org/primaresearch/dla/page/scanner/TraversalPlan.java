@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
+import org.primaresearch.dla.page.layout.physical.shared.LowLevelTextType;
+import org.primaresearch.dla.page.layout.physical.shared.RegionType;
+
+/**
+ * Determines how deep the content hierarchy (regions, text lines, words, glyphs) has to be traversed
+ * for a set of content handlers.<br>
+ * The plan is derived from the content types the handlers declare (see {@link TypedContentHandler#handlesContentType}):
+ * the deepest level is the level of the deepest type any handler needs. Content objects below that level
+ * can be skipped without being read (e.g. all glyphs, if only regions and text lines are counted).
+ *
+ * @author Christian Clausner
+ *
+ */
+public class TraversalPlan {
+
+	/** No content objects needed (page level data only) */
+	public static final int LEVEL_NONE 		= 0;
+	/** Regions (including nested regions) */
+	public static final int LEVEL_REGION 	= 1;
+	/** Regions and text lines */
+	public static final int LEVEL_TEXT_LINE = 2;
+	/** Regions, text lines and words */
+	public static final int LEVEL_WORD 		= 3;
+	/** All content objects */
+	public static final int LEVEL_GLYPH 	= 4;
+
+	private static final String[] LEVEL_NAMES = {"none", "regions", "text lines", "words", "glyphs"};
+
+	/** All content types that can be traversed */
+	private static final ContentType[] CONTENT_TYPES = {
+		RegionType.ChartRegion, RegionType.GraphicRegion, RegionType.ImageRegion, RegionType.LineDrawingRegion,
+		RegionType.MathsRegion, RegionType.AdvertRegion, RegionType.ChemRegion, RegionType.MusicRegion,
+		RegionType.NoiseRegion, RegionType.SeparatorRegion, RegionType.TableRegion, RegionType.TextRegion,
+		RegionType.UnknownRegion, LowLevelTextType.TextLine, LowLevelTextType.Word, LowLevelTextType.Glyph
+	};
+
+	private final int level;
+
+	/**
+	 * Creates the plan for the handlers of the given index
+	 */
+	public TraversalPlan(ContentHandlerIndex<?> handlers) {
+		int level = LEVEL_NONE;
+		for (int i=0; i<CONTENT_TYPES.length; i++) {
+			if (!handlers.getHandlers(CONTENT_TYPES[i]).isEmpty())
+				level = Math.max(level, getLevel(CONTENT_TYPES[i]));
+		}
+		this.level = level;
+	}
+
+	/**
+	 * Returns the hierarchy level of the given content type (LEVEL_REGION for all region types)
+	 */
+	public static int getLevel(ContentType type) {
+		if (LowLevelTextType.TextLine.equals(type))
+			return LEVEL_TEXT_LINE;
+		if (LowLevelTextType.Word.equals(type))
+			return LEVEL_WORD;
+		if (LowLevelTextType.Glyph.equals(type))
+			return LEVEL_GLYPH;
+		return LEVEL_REGION;
+	}
+
+	/**
+	 * Returns the deepest level that has to be traversed (LEVEL_NONE to LEVEL_GLYPH)
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Returns <code>true</code> if content objects of the given type (and their parents) have to be traversed.
+	 * If not, the object and all its children can be skipped.
+	 */
+	public boolean includes(ContentType type) {
+		return getLevel(type) <= level;
+	}
+
+	@Override
+	public String toString() {
+		return LEVEL_NAMES[level];
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
+
+/**
+ * Base interface for content object handlers that declare which content types they need.
+ * The scanner only passes objects of those types to the handler (see {@link ContentHandlerIndex}).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public interface TypedContentHandler {
+
+	/**
+	 * Returns <code>true</code> if content objects of the given type are relevant to this handler.
+	 * The result has to be constant for the lifetime of the handler (it is cached per type).
+	 */
+	public boolean handlesContentType(ContentType type);
+}
@@ -15,14 +15,17 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
+import java.io.IOException;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 import org.primaresearch.dla.page.Page;
 import org.primaresearch.dla.page.layout.physical.ContentObject;
 import org.primaresearch.dla.page.layout.physical.shared.ContentType;
-import org.primaresearch.dla.page.scanner.ContentObjectHandler;
+import org.primaresearch.dla.page.scanner.SplittableContentHandler;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.ContentAttributes;
+import org.primaresearch.dla.page.scanner.stream.StreamingContentHandler;
 import org.primaresearch.shared.variable.Variable;
 import org.primaresearch.shared.variable.VariableMap;
 
@@ -38,7 +41,7 @@ import org.primaresearch.shared.variable.VariableMap;
  *
  */
 public class AttributeValueSetScanElement implements ScanElement,
-		ContentObjectHandler {
+		SplittableContentHandler, StreamingContentHandler {
 
 	ContentType contentType;
 	String attributeName;
@@ -48,6 +51,11 @@ public class AttributeValueSetScanElement implements ScanElement,
 		this.contentType = contentType;
 		this.attributeName = attributeName;
 	}
+
+	@Override
+	public boolean handlesContentType(ContentType type) {
+		return contentType.equals(type);
+	}
 	
 	@Override
 	public void handleContentObject(ContentObject obj) {
@@ -66,10 +74,24 @@ public class AttributeValueSetScanElement implements ScanElement,
 		}
 	}
 
+	@Override
+	public void handleContent(ContentType type, ContentAttributes attributes, String text) {
+		if (contentType.equals(type)) {
+			String val = attributes.getValue(attributeName);
+			if (val != null)
+				values.add(val);
+		}
+	}
+
 	@Override
 	public void init(Page page) {
 	}
 
+	@Override
+	public void reset() {
+		values.clear();
+	}
+
 	@Override
 	public String getCsvHeader() {
 		//Example: 'TextRegion (primaryLanguage)'
@@ -77,15 +99,28 @@ public class AttributeValueSetScanElement implements ScanElement,
 	}
 
 	@Override
-	public String getCsvValue() {
-		//Build semicolon separated list of values
-		StringBuilder str = new StringBuilder();
-		for (Iterator<String> it = values.iterator(); it.hasNext(); ) {
-			if (str.length() > 0)
-				str.append(';');
-			str.append(it.next());
-		}
-		return str.toString();
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		writer.writeStringSet(values);
+	}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		return new ValueSetAccumulator(getCsvHeader());
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		((ValueSetAccumulator)accumulator).add(values);
+	}
+
+	@Override
+	public SplittableContentHandler createPartHandler() {
+		return new AttributeValueSetScanElement(contentType, attributeName);
+	}
+
+	@Override
+	public void mergePart(SplittableContentHandler part) {
+		values.addAll(((AttributeValueSetScanElement)part).values);
 	}
 
 }
@@ -15,8 +15,13 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
+import java.io.IOException;
+
 import org.primaresearch.dla.page.Page;
 import org.primaresearch.dla.page.layout.shared.GeometricObject;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.PageHeader;
+import org.primaresearch.dla.page.scanner.stream.PageHeaderHandler;
 
 /**
  * Scan element that calculates the perimeter (polygon length) of border or print space.
@@ -24,7 +29,7 @@ import org.primaresearch.dla.page.layout.shared.GeometricObject;
  * @author Christian Clausner
  *
  */
-public class BoundsScanElement implements ScanElement {
+public class BoundsScanElement implements ScanElement, PageHeaderHandler {
 
 	public static final int TYPE_BORDER 		= 1;
 	public static final int TYPE_PRINT_SPACE 	= 2;
@@ -53,15 +58,41 @@ public class BoundsScanElement implements ScanElement {
 			perimeter = (int)(geomObj.getCoords().calculateLength()+0.5);
 	}
 
+	@Override
+	public void init(PageHeader header) {
+		double length = -1.0;
+		if (type == TYPE_BORDER)
+			length = header.getBorderLength();
+		else if (type == TYPE_PRINT_SPACE)
+			length = header.getPrintSpaceLength();
+		
+		if (length >= 0.0)
+			perimeter = (int)(length+0.5);
+	}
+
+	@Override
+	public void reset() {
+		perimeter = 0;
+	}
+
 	@Override
 	public String getCsvHeader() {
 		return headers[type];
 	}
 
 	@Override
-	public String getCsvValue() {
-		//Integer
-		return ""+perimeter;
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		writer.writeLong(perimeter);
+	}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		return new NumericAccumulator(getCsvHeader());
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		((NumericAccumulator)accumulator).add(0, perimeter);
 	}
 
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.element;
+
+import java.io.IOException;
+
+import org.primaresearch.dla.page.scanner.result.ScanRowWriter;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.util.CodePointHistogram;
+import org.primaresearch.dla.page.scanner.util.CodePointSet;
+
+/**
+ * Accumulator building the union of character codes (and optionally the total number
+ * of occurrences per character) over multiple pages.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class CodePointAccumulator implements ScanAccumulator {
+
+	private String column;
+	private long pageCount = 0;
+	private CodePointSet codePoints = new CodePointSet();
+	private CodePointHistogram counts;
+	
+	/**
+	 * Constructor
+	 * @param column Column name (CSV header)
+	 * @param histogram Accumulate the number of occurrences per character?
+	 */
+	public CodePointAccumulator(String column, boolean histogram) {
+		this.column = column;
+		if (histogram)
+			counts = new CodePointHistogram();
+	}
+	
+	/**
+	 * Adds the characters of one page
+	 * @param pageCounts Occurrences per character (<code>null</code> if not recorded)
+	 */
+	public void add(CodePointSet pageCodePoints, CodePointHistogram pageCounts) {
+		codePoints.addAll(pageCodePoints);
+		if (counts != null && pageCounts != null)
+			counts.addAll(pageCounts);
+		pageCount++;
+	}
+
+	@Override
+	public void merge(ScanAccumulator other) {
+		CodePointAccumulator acc = (CodePointAccumulator)other;
+		codePoints.addAll(acc.codePoints);
+		if (counts != null && acc.counts != null)
+			counts.addAll(acc.counts);
+		pageCount += acc.pageCount;
+	}
+
+	@Override
+	public void writeSummaryRows(String group, ScanRowWriter rows) throws IOException {
+		ScanValueWriter row = rows.beginRow(group);
+		row.writeString(column);
+		row.writeLong(pageCount);
+		for (int v=0; v<4; v++)
+			row.writeNull();
+		//Semicolon separated list of character codes (with count if recorded)
+		StringBuilder values = new StringBuilder();
+		for (int c = codePoints.next(0); c >= 0; c = codePoints.next(c+1)) {
+			if (values.length() > 0)
+				values.append(';');
+			values.append(c);
+			if (counts != null)
+				values.append(':').append(counts.get(c));
+		}
+		row.writeString(values.toString());
+		rows.endRow();
+	}
+
+}
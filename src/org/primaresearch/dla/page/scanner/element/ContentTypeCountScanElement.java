@@ -15,10 +15,15 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
+import java.io.IOException;
+
 import org.primaresearch.dla.page.Page;
 import org.primaresearch.dla.page.layout.physical.ContentObject;
 import org.primaresearch.dla.page.layout.physical.shared.ContentType;
-import org.primaresearch.dla.page.scanner.ContentObjectHandler;
+import org.primaresearch.dla.page.scanner.SplittableContentHandler;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.ContentAttributes;
+import org.primaresearch.dla.page.scanner.stream.StreamingContentHandler;
 
 /**
  * Scan element that counts the occurrences of content objects of a specified type.
@@ -27,7 +32,7 @@ import org.primaresearch.dla.page.scanner.ContentObjectHandler;
  *
  */
 public class ContentTypeCountScanElement implements ScanElement,
-		ContentObjectHandler {
+		SplittableContentHandler, StreamingContentHandler {
 
 	private int count = 0;
 	private ContentType type;
@@ -47,10 +52,26 @@ public class ContentTypeCountScanElement implements ScanElement,
 			count++;
 	}
 
+	@Override
+	public boolean handlesContentType(ContentType type) {
+		return this.type.equals(type);
+	}
+
+	@Override
+	public void handleContent(ContentType contentType, ContentAttributes attributes, String text) {
+		if (contentType.equals(type))
+			count++;
+	}
+
 	@Override
 	public void init(Page page) {
 	}
 
+	@Override
+	public void reset() {
+		count = 0;
+	}
+
 	@Override
 	public String getCsvHeader() {
 		//Example: 'TextRegion Count'
@@ -58,8 +79,28 @@ public class ContentTypeCountScanElement implements ScanElement,
 	}
 
 	@Override
-	public String getCsvValue() {
-		return ""+count;
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		writer.writeLong(count);
+	}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		return new NumericAccumulator(getCsvHeader());
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		((NumericAccumulator)accumulator).add(0, count);
+	}
+
+	@Override
+	public SplittableContentHandler createPartHandler() {
+		return new ContentTypeCountScanElement(type);
+	}
+
+	@Override
+	public void mergePart(SplittableContentHandler part) {
+		count += ((ContentTypeCountScanElement)part).count;
 	}
 
 }
@@ -15,8 +15,14 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
+import java.io.IOException;
+import java.util.Date;
+
 import org.primaresearch.dla.page.Page;
 import org.primaresearch.dla.page.metadata.MetaData;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.PageHeader;
+import org.primaresearch.dla.page.scanner.stream.PageHeaderHandler;
 
 /**
  * Scan element for meta data entries.
@@ -24,10 +30,11 @@ import org.primaresearch.dla.page.metadata.MetaData;
  * @author Christian Clausner
  *
  */
-public class MetaDataScanElement implements ScanElement {
+public class MetaDataScanElement implements ScanElement, PageHeaderHandler {
 
 	Page page = null;
 	MetaData metaData = null;
+	PageHeader header = null;
 	int type = 0;
 	String[] headers = {null,"PcGtsID", "Creator", "Created", "Modified", "Width", "Height"};
 	
@@ -52,28 +59,117 @@ public class MetaDataScanElement implements ScanElement {
 		this.metaData = page.getMetaData();
 	}
 
+	@Override
+	public void init(PageHeader header) {
+		this.header = header;
+	}
+
+	@Override
+	public void reset() {
+		page = null;
+		metaData = null;
+		header = null;
+	}
+
 	@Override
 	public String getCsvHeader() {
 		return headers[type];
 	}
 
 	@Override
-	public String getCsvValue() {
-		if (metaData == null)
-			return "";
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		if (!hasMetaData())
+			writer.writeNull();
+		else if (type == TYPE_WIDTH || type == TYPE_HEIGHT)
+			writer.writeLong(getPageDimension());
+		else
+			writer.writeString(getTextValue());
+	}
+	
+	/**
+	 * Returns <code>true</code> if the last scanned page has metadata
+	 */
+	private boolean hasMetaData() {
+		if (header != null)
+			return header.hasMetaData();
+		return metaData != null;
+	}
+	
+	/**
+	 * Returns the value of the text types (ID, creator and dates)
+	 */
+	private String getTextValue() {
+		if (header != null)
+			return getTextValue(header);
 		if (type == TYPE_PCGTS_ID)
 			return page.getGtsId() != null ? page.getGtsId().toString() : "";
 		else if (type == TYPE_CREATOR)
 			return metaData.getCreator();
 		else if (type == TYPE_CREATED)
-			return MetaData.DATE_FORMAT.format(metaData.getCreationTime());
+			return formatDate(metaData.getCreationTime());
+		else if (type == TYPE_MODIFIED)
+			return formatDate(metaData.getLastModificationTime());
+		return "";
+	}
+	
+	/**
+	 * Returns the value from the page level data of the streaming scan engine
+	 */
+	private String getTextValue(PageHeader header) {
+		if (type == TYPE_PCGTS_ID)
+			return header.getGtsId() != null ? header.getGtsId() : "";
+		else if (type == TYPE_CREATOR)
+			return header.getCreator();
+		else if (type == TYPE_CREATED)
+			return formatDate(header.getCreated());
 		else if (type == TYPE_MODIFIED)
-			return MetaData.DATE_FORMAT.format(metaData.getLastModificationTime());
-		else if (type == TYPE_WIDTH)
-			return ""+page.getLayout().getWidth();
-		else if (type == TYPE_HEIGHT)
-			return ""+page.getLayout().getHeight();
+			return formatDate(header.getLastModified());
 		return "";
 	}
+	
+	/**
+	 * Formats the given date using the shared metadata date format.
+	 * The format object is not thread safe, so access is synchronised for parallel scans.
+	 */
+	private static String formatDate(Date date) {
+		if (date == null)
+			return "";
+		synchronized (MetaData.DATE_FORMAT) {
+			return MetaData.DATE_FORMAT.format(date);
+		}
+	}
+
+	/**
+	 * Returns the page width or height (depending on the type of this element)
+	 */
+	private int getPageDimension() {
+		if (header != null)
+			return type == TYPE_WIDTH ? header.getWidth() : header.getHeight();
+		if (page != null)
+			return type == TYPE_WIDTH ? page.getLayout().getWidth() : page.getLayout().getHeight();
+		return 0;
+	}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		//Page size: numeric statistics, creator: set of values, others: not aggregated
+		if (type == TYPE_WIDTH || type == TYPE_HEIGHT)
+			return new NumericAccumulator(getCsvHeader());
+		if (type == TYPE_CREATOR)
+			return new ValueSetAccumulator(getCsvHeader());
+		return null;
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		if (type == TYPE_WIDTH || type == TYPE_HEIGHT)
+			((NumericAccumulator)accumulator).add(0, getPageDimension());
+		else if (type == TYPE_CREATOR && hasMetaData()) {
+			//Only pages with a creator are counted (page count of the summary)
+			String creator = getTextValue();
+			if (creator != null && !creator.isEmpty())
+				((ValueSetAccumulator)accumulator).add(creator);
+		}
+	}
 
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.element;
+
+import java.io.IOException;
+
+import org.primaresearch.dla.page.scanner.result.ScanRowWriter;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+
+/**
+ * Accumulator for numeric scan values (one or more columns).
+ * Records sum, minimum and maximum per column (the mean is calculated on output).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class NumericAccumulator implements ScanAccumulator {
+
+	private String[] columns;
+	private long[] pageCounts;
+	private long[] sums;
+	private long[] mins;
+	private long[] maxs;
+	
+	/**
+	 * Constructor
+	 * @param columns Column names (CSV headers)
+	 */
+	public NumericAccumulator(String... columns) {
+		this.columns = columns;
+		pageCounts = new long[columns.length];
+		sums = new long[columns.length];
+		mins = new long[columns.length];
+		maxs = new long[columns.length];
+	}
+	
+	/**
+	 * Adds the value of one page
+	 * @param column Column index
+	 */
+	public void add(int column, long value) {
+		if (pageCounts[column] == 0 || value < mins[column])
+			mins[column] = value;
+		if (pageCounts[column] == 0 || value > maxs[column])
+			maxs[column] = value;
+		sums[column] += value;
+		pageCounts[column]++;
+	}
+
+	@Override
+	public void merge(ScanAccumulator other) {
+		NumericAccumulator acc = (NumericAccumulator)other;
+		for (int i=0; i<columns.length; i++) {
+			if (acc.pageCounts[i] == 0)
+				continue;
+			if (pageCounts[i] == 0 || acc.mins[i] < mins[i])
+				mins[i] = acc.mins[i];
+			if (pageCounts[i] == 0 || acc.maxs[i] > maxs[i])
+				maxs[i] = acc.maxs[i];
+			sums[i] += acc.sums[i];
+			pageCounts[i] += acc.pageCounts[i];
+		}
+	}
+
+	@Override
+	public void writeSummaryRows(String group, ScanRowWriter rows) throws IOException {
+		for (int i=0; i<columns.length; i++) {
+			ScanValueWriter row = rows.beginRow(group);
+			row.writeString(columns[i]);
+			row.writeLong(pageCounts[i]);
+			if (pageCounts[i] > 0) {
+				row.writeLong(sums[i]);
+				row.writeLong(mins[i]);
+				row.writeLong(maxs[i]);
+				//Mean rounded to three decimal places
+				row.writeDouble(Math.round(sums[i] * 1000.0 / pageCounts[i]) / 1000.0);
+			} else {
+				for (int v=0; v<4; v++)
+					row.writeNull();
+			}
+			//No values
+			row.writeNull();
+			rows.endRow();
+		}
+	}
+
+}
@@ -15,11 +15,16 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
+import java.io.IOException;
+
 import org.primaresearch.dla.page.Page;
 import org.primaresearch.dla.page.layout.logical.Group;
 import org.primaresearch.dla.page.layout.logical.GroupMember;
 import org.primaresearch.dla.page.layout.logical.ReadingOrder;
 import org.primaresearch.dla.page.layout.logical.RegionRef;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.PageHeader;
+import org.primaresearch.dla.page.scanner.stream.PageHeaderHandler;
 
 /**
  * Scan element that counts the number of referenced regions in the reading order.
@@ -27,7 +32,7 @@ import org.primaresearch.dla.page.layout.logical.RegionRef;
  * @author Christian Clausner
  *
  */
-public class ReadingOrderRegionRefCountScanElement implements ScanElement {
+public class ReadingOrderRegionRefCountScanElement implements ScanElement, PageHeaderHandler {
 
 	private ReadingOrder order;
 	private int count = 0;
@@ -38,6 +43,17 @@ public class ReadingOrderRegionRefCountScanElement implements ScanElement {
 		if (order != null)
 			countRegionRefs(order.getRoot());
 	}
+
+	@Override
+	public void init(PageHeader header) {
+		count = header.getReadingOrderRegionRefCount();
+	}
+
+	@Override
+	public void reset() {
+		order = null;
+		count = 0;
+	}
 	
 	void countRegionRefs(Group group) {
 		for (int i=0; i<group.getSize(); i++) {
@@ -55,8 +71,18 @@ public class ReadingOrderRegionRefCountScanElement implements ScanElement {
 	}
 
 	@Override
-	public String getCsvValue() {
-		return ""+count;
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		writer.writeLong(count);
+	}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		return new NumericAccumulator(getCsvHeader());
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		((NumericAccumulator)accumulator).add(0, count);
 	}
 
 }
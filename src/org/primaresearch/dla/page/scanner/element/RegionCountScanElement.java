@@ -15,10 +15,16 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
+import java.io.IOException;
+
 import org.primaresearch.dla.page.Page;
 import org.primaresearch.dla.page.layout.physical.ContentObject;
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
 import org.primaresearch.dla.page.layout.physical.shared.RegionType;
-import org.primaresearch.dla.page.scanner.ContentObjectHandler;
+import org.primaresearch.dla.page.scanner.SplittableContentHandler;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.ContentAttributes;
+import org.primaresearch.dla.page.scanner.stream.StreamingContentHandler;
 
 /**
  * Scan element that counts the overall number of layout regions.
@@ -26,7 +32,7 @@ import org.primaresearch.dla.page.scanner.ContentObjectHandler;
  * @author Christian Clausner
  *
  */
-public class RegionCountScanElement implements ScanElement,	ContentObjectHandler {
+public class RegionCountScanElement implements ScanElement,	SplittableContentHandler, StreamingContentHandler {
 
 	private int count = 0;
 	
@@ -36,18 +42,54 @@ public class RegionCountScanElement implements ScanElement,	ContentObjectHandler
 			count++;
 	}
 
+	@Override
+	public boolean handlesContentType(ContentType type) {
+		return type instanceof RegionType;
+	}
+
+	@Override
+	public void handleContent(ContentType type, ContentAttributes attributes, String text) {
+		if (type instanceof RegionType)
+			count++;
+	}
+
 	@Override
 	public void init(Page page) {
 	}
 
+	@Override
+	public void reset() {
+		count = 0;
+	}
+
 	@Override
 	public String getCsvHeader() {
 		return "Region Count";
 	}
 
 	@Override
-	public String getCsvValue() {
-		return ""+count;
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		writer.writeLong(count);
+	}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		return new NumericAccumulator(getCsvHeader());
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		((NumericAccumulator)accumulator).add(0, count);
+	}
+
+	@Override
+	public SplittableContentHandler createPartHandler() {
+		return new RegionCountScanElement();
+	}
+
+	@Override
+	public void mergePart(SplittableContentHandler part) {
+		count += ((RegionCountScanElement)part).count;
 	}
 
 }
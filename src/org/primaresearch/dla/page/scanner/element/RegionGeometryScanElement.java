@@ -0,0 +1,289 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.element;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.primaresearch.dla.page.Page;
+import org.primaresearch.dla.page.layout.PageLayout;
+import org.primaresearch.dla.page.layout.physical.ContentObject;
+import org.primaresearch.dla.page.layout.physical.Region;
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
+import org.primaresearch.dla.page.layout.physical.shared.LowLevelTextType;
+import org.primaresearch.dla.page.layout.physical.shared.RegionType;
+import org.primaresearch.dla.page.layout.physical.text.LowLevelTextContainer;
+import org.primaresearch.dla.page.layout.physical.text.TextObject;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.util.PolygonIntersection;
+import org.primaresearch.dla.page.scanner.util.UniformGrid;
+import org.primaresearch.maths.geometry.Polygon;
+
+/**
+ * Scan element for the geometric consistency of the layout (top level regions and their text lines):
+ * <ul>
+ * <li>Number of overlapping region pairs and total overlap area (overall and per region type)</li>
+ * <li>Number of text lines that are not completely inside the outline of their parent region</li>
+ * </ul>
+ * Candidate pairs are found with a uniform grid over the bounding boxes of the regions ({@link UniformGrid}),
+ * the overlap area is then calculated exactly for the polygons ({@link PolygonIntersection}).
+ * Regions that only touch do not overlap.<br>
+ * This element represents multiple CSV entries.
+ *
+ * @author Christian Clausner
+ *
+ */
+public class RegionGeometryScanElement implements ScanElement {
+
+	/** Region types with own columns */
+	private static final RegionType[] REGION_TYPES = {
+		RegionType.ChartRegion, RegionType.GraphicRegion, RegionType.ImageRegion, RegionType.LineDrawingRegion,
+		RegionType.MathsRegion, RegionType.AdvertRegion, RegionType.ChemRegion, RegionType.MusicRegion,
+		RegionType.NoiseRegion, RegionType.SeparatorRegion, RegionType.TableRegion, RegionType.TextRegion,
+		RegionType.UnknownRegion
+	};
+
+	//Values
+	private long overlapCount = 0;
+	private double overlapArea = 0.0;
+	private long[] typeOverlapCounts = new long[REGION_TYPES.length];
+	private double[] typeOverlapAreas = new double[REGION_TYPES.length];
+	private long linesOutside = 0;
+
+	//Region polygons of the current page (reused)
+	private int regionCount;
+	private int[][] xs = new int[16][];
+	private int[][] ys = new int[16][];
+	private int[] pointCounts = new int[16];
+	private int[] typeIndices = new int[16];
+	private int[] left = new int[16];
+	private int[] top = new int[16];
+	private int[] right = new int[16];
+	private int[] bottom = new int[16];
+
+	//Text line polygon (reused)
+	private int[] lineX = new int[16];
+	private int[] lineY = new int[16];
+
+	private UniformGrid grid = new UniformGrid();
+	private PolygonIntersection intersection = new PolygonIntersection();
+
+	@Override
+	public void init(Page page) {
+		PageLayout layout = page.getLayout();
+		regionCount = 0;
+		for (int r=0; r<layout.getRegionCount(); r++) {
+			Region region = layout.getRegion(r);
+			if (addRegion(region) && region instanceof LowLevelTextContainer)
+				checkTextLines((LowLevelTextContainer)region, regionCount-1);
+		}
+
+		//Overlapping regions
+		grid.build(left, top, right, bottom, regionCount);
+		int pairCount = grid.findOverlappingPairs();
+		int[] pairs = grid.getPairs();
+		for (int p=0; p<pairCount; p++) {
+			int a = pairs[p*2];
+			int b = pairs[p*2+1];
+			double area = intersection.getIntersectionArea(xs[a], ys[a], pointCounts[a], xs[b], ys[b], pointCounts[b]);
+			if (area <= 0.0)
+				continue;
+			overlapCount++;
+			overlapArea += area;
+			addTypeOverlap(typeIndices[a], area);
+			if (typeIndices[b] != typeIndices[a])
+				addTypeOverlap(typeIndices[b], area);
+		}
+	}
+
+	/**
+	 * Adds the polygon and bounding box of the given region
+	 * @return <code>false</code> if the region has no outline (it is ignored)
+	 */
+	private boolean addRegion(Region region) {
+		Polygon coords = region.getCoords();
+		if (coords == null || coords.getSize() < 3)
+			return false;
+		if (regionCount == left.length) {
+			int size = regionCount * 2;
+			xs = Arrays.copyOf(xs, size);
+			ys = Arrays.copyOf(ys, size);
+			pointCounts = Arrays.copyOf(pointCounts, size);
+			typeIndices = Arrays.copyOf(typeIndices, size);
+			left = Arrays.copyOf(left, size);
+			top = Arrays.copyOf(top, size);
+			right = Arrays.copyOf(right, size);
+			bottom = Arrays.copyOf(bottom, size);
+		}
+		int n = coords.getSize();
+		if (xs[regionCount] == null || xs[regionCount].length < n) {
+			xs[regionCount] = new int[n];
+			ys[regionCount] = new int[n];
+		}
+		int[] x = xs[regionCount];
+		int[] y = ys[regionCount];
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i=0; i<n; i++) {
+			x[i] = coords.getPoint(i).x;
+			y[i] = coords.getPoint(i).y;
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		pointCounts[regionCount] = n;
+		typeIndices[regionCount] = getTypeIndex(region.getType());
+		left[regionCount] = minX;
+		top[regionCount] = minY;
+		right[regionCount] = maxX;
+		bottom[regionCount] = maxY;
+		regionCount++;
+		return true;
+	}
+
+	/**
+	 * Counts the text lines of the given region that are not completely inside its outline
+	 * @param regionIndex Index of the added region polygon
+	 */
+	private void checkTextLines(LowLevelTextContainer region, int regionIndex) {
+		int[] x = xs[regionIndex];
+		int[] y = ys[regionIndex];
+		int n = pointCounts[regionIndex];
+		//Rectangular regions (polygon area = bounding box area) only need the bounding box check
+		double regionArea = PolygonIntersection.getArea(x, y, n);
+		boolean rectangle = regionArea == (double)(right[regionIndex] - left[regionIndex]) * (bottom[regionIndex] - top[regionIndex]);
+
+		for (int c=0; c<region.getTextObjectCount(); c++) {
+			TextObject textObject = region.getTextObject(c);
+			if (!(textObject instanceof ContentObject)
+					|| !LowLevelTextType.TextLine.equals(((ContentObject)textObject).getType()))
+				continue;
+			Polygon coords = ((ContentObject)textObject).getCoords();
+			if (coords == null || coords.getSize() < 3)
+				continue;
+
+			int lineN = coords.getSize();
+			if (lineX.length < lineN) {
+				lineX = new int[lineN];
+				lineY = new int[lineN];
+			}
+			boolean insideBox = true;
+			for (int i=0; i<lineN; i++) {
+				lineX[i] = coords.getPoint(i).x;
+				lineY[i] = coords.getPoint(i).y;
+				if (lineX[i] < left[regionIndex] || lineX[i] > right[regionIndex]
+						|| lineY[i] < top[regionIndex] || lineY[i] > bottom[regionIndex])
+					insideBox = false;
+			}
+			if (!insideBox) {
+				linesOutside++;
+				continue;
+			}
+			if (rectangle)
+				continue;
+
+			//Exact test: the line is inside if it is completely covered by the region
+			double lineArea = PolygonIntersection.getArea(lineX, lineY, lineN);
+			if (lineArea > 0.0 && intersection.getIntersectionArea(lineX, lineY, lineN, x, y, n) < lineArea - 1.0e-6)
+				linesOutside++;
+		}
+	}
+
+	private void addTypeOverlap(int typeIndex, double area) {
+		if (typeIndex < 0)
+			return;
+		typeOverlapCounts[typeIndex]++;
+		typeOverlapAreas[typeIndex] += area;
+	}
+
+	/**
+	 * Returns the column index of the given region type (-1 if the type has no own columns)
+	 */
+	private static int getTypeIndex(ContentType type) {
+		for (int i=0; i<REGION_TYPES.length; i++) {
+			if (REGION_TYPES[i].equals(type))
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public void reset() {
+		overlapCount = 0;
+		overlapArea = 0.0;
+		for (int i=0; i<REGION_TYPES.length; i++) {
+			typeOverlapCounts[i] = 0;
+			typeOverlapAreas[i] = 0.0;
+		}
+		linesOutside = 0;
+	}
+
+	@Override
+	public String getCsvHeader() {
+		//Example: 'Overlapping Region Pairs,Region Overlap Area,ChartRegion Overlaps,ChartRegion Overlap Area,...'
+		StringBuilder str = new StringBuilder();
+		String[] columns = getColumnNames();
+		for (int i=0; i<columns.length; i++) {
+			if (i > 0)
+				str.append(',');
+			str.append(columns[i]);
+		}
+		return str.toString();
+	}
+
+	private static String[] getColumnNames() {
+		String[] columns = new String[3 + REGION_TYPES.length * 2];
+		columns[0] = "Overlapping Region Pairs";
+		columns[1] = "Region Overlap Area";
+		for (int i=0; i<REGION_TYPES.length; i++) {
+			columns[2 + i*2] = REGION_TYPES[i].getName()+" Overlaps";
+			columns[3 + i*2] = REGION_TYPES[i].getName()+" Overlap Area";
+		}
+		columns[columns.length-1] = "TextLines Outside Region";
+		return columns;
+	}
+
+	@Override
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		writer.writeLong(overlapCount);
+		writer.writeLong(Math.round(overlapArea));
+		for (int i=0; i<REGION_TYPES.length; i++) {
+			writer.writeLong(typeOverlapCounts[i]);
+			writer.writeLong(Math.round(typeOverlapAreas[i]));
+		}
+		writer.writeLong(linesOutside);
+	}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		return new NumericAccumulator(getColumnNames());
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		NumericAccumulator acc = (NumericAccumulator)accumulator;
+		int column = 0;
+		acc.add(column++, overlapCount);
+		acc.add(column++, Math.round(overlapArea));
+		for (int i=0; i<REGION_TYPES.length; i++) {
+			acc.add(column++, typeOverlapCounts[i]);
+			acc.add(column++, Math.round(typeOverlapAreas[i]));
+		}
+		acc.add(column, linesOutside);
+	}
+
+}
@@ -15,34 +15,34 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.io.IOException;
 
 import org.primaresearch.dla.page.Page;
 import org.primaresearch.dla.page.layout.physical.ContentObject;
 import org.primaresearch.dla.page.layout.physical.shared.ContentType;
-import org.primaresearch.dla.page.layout.physical.shared.LowLevelTextType;
 import org.primaresearch.dla.page.layout.physical.shared.RegionType;
-import org.primaresearch.dla.page.scanner.ContentObjectHandler;
+import org.primaresearch.dla.page.scanner.SplittableContentHandler;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.ContentAttributes;
+import org.primaresearch.dla.page.scanner.stream.StreamingContentHandler;
 import org.primaresearch.io.FormatModel;
 import org.primaresearch.shared.variable.Variable;
 import org.primaresearch.shared.variable.VariableMap;
-import org.primaresearch.shared.variable.constraints.ValidStringValues;
-import org.primaresearch.shared.variable.constraints.VariableConstraint;
 
 /**
  * Scan element that counts the occurrences of regions per sub-type.<br>
- * This element represents multiple CSV entries.
+ * This element represents multiple CSV entries.<br>
+ * The valid sub-types are resolved once into a shared {@link RegionSubTypeIndex},
+ * the counts are kept in a primitive array (one counter per sub-type).
  * 
  * @author Christian Clausner
  *
  */
-public class RegionSubTypeCountScanElement implements ScanElement,	ContentObjectHandler {
+public class RegionSubTypeCountScanElement implements ScanElement,	SplittableContentHandler, StreamingContentHandler {
 
 	private RegionType regionType;
-	private ValidStringValues validValues = null;
-	private Map<String,Integer> counts = new HashMap<String,Integer>();
+	private RegionSubTypeIndex subTypes;
+	private int[] counts;
 	
 	/**
 	 * Constructor
@@ -50,125 +50,104 @@ public class RegionSubTypeCountScanElement implements ScanElement,	ContentObject
 	 * @param formatModel Model with attribute templates.
 	 */
 	public RegionSubTypeCountScanElement(RegionType regionType, FormatModel formatModel) {
+		this(regionType, RegionSubTypeIndex.getInstance(regionType, formatModel));
+	}
+
+	/**
+	 * Constructor for part handlers sharing the sub-type index
+	 */
+	private RegionSubTypeCountScanElement(RegionType regionType, RegionSubTypeIndex subTypes) {
 		this.regionType = regionType;
-		
-		//Extract the sub-types from the format model
-		VariableMap attributeTemplates = formatModel.getTypeAttributeTemplates().get(getSchemaTypeName(regionType));
-		if (attributeTemplates != null) {
-			//GEt the sub-type attribute
-			Variable var = attributeTemplates.get("type");
-			if (var != null) {
-				//Get the variable constraint (contains the list of valid sub-types)
-				VariableConstraint constraint = var.getConstraint();
-				if (constraint != null && constraint instanceof ValidStringValues) {
-					validValues = (ValidStringValues)constraint;
-				}
-			}
-		}
+		this.subTypes = subTypes;
+		this.counts = new int[subTypes.size()];
+	}
+
+	@Override
+	public boolean handlesContentType(ContentType type) {
+		return subTypes.hasSubTypes() && regionType.equals(type);
 	}
 	
 	@Override
 	public void handleContentObject(ContentObject obj) {
-		if (validValues == null)
-			return;
-		
 		//Check region type
 		if (regionType.equals(obj.getType())) {
 			VariableMap atts = obj.getAttributes(); 
 			if (atts != null) {
 				//Get type attribute
 				Variable var = atts.get("type");
-				if (var != null && var.getValue() != null) {
-					String subtype = var.getValue().toString();
-					//Increase count for the type
-					Integer count = counts.get(subtype);
-					if (count == null)
-						count = 0;
-					count++;
-					counts.put(subtype, (Integer)count);
-				}
+				if (var != null && var.getValue() != null)
+					countSubType(var.getValue().toString());
 			}
 		}
 	}
 
+	@Override
+	public void handleContent(ContentType type, ContentAttributes attributes, String text) {
+		if (regionType.equals(type)) {
+			String subtype = attributes.getValue("type");
+			if (subtype != null)
+				countSubType(subtype);
+		}
+	}
+	
+	/**
+	 * Increases the count for the given sub-type (invalid sub-types are ignored)
+	 */
+	private void countSubType(String subtype) {
+		int index = subTypes.indexOf(subtype);
+		if (index >= 0)
+			counts[index]++;
+	}
+
 	@Override
 	public void init(Page page) {
 	}
 
+	@Override
+	public void reset() {
+		for (int i=0; i<counts.length; i++)
+			counts[i] = 0;
+	}
+
 	@Override
 	public String getCsvHeader() {
-		if (validValues == null)
-			return "";
 		//Comma separated headers for all sub-types
 		//Example: 'TextRegion (heading) Count,TextRegion (paragraph) Count,...'
-		StringBuilder str = new StringBuilder();
-		for (Iterator<String> it = validValues.getValidValues().iterator(); it.hasNext(); ) {
-			String subtype = it.next();
-			str.append(regionType.getName());
-			str.append(" (");
-			str.append(subtype);
-			str.append(") Count");
-			if (it.hasNext())
-				str.append(',');
-		}
-		return str.toString();
+		return subTypes.getCsvHeader();
 	}
 
 	@Override
-	public String getCsvValue() {
-		if (validValues == null)
-			return "";
-		//Comma separated counts per sub-type
-		StringBuilder str = new StringBuilder();
-		for (Iterator<String> it = validValues.getValidValues().iterator(); it.hasNext(); ) {
-			String subtype = it.next();
-			Integer count = counts.get(subtype);
-			if (count == null)
-				count = 0;
-			str.append(count.toString());
-			if (it.hasNext())
-				str.append(',');
-		}
-		return str.toString();
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		//One count per sub-type
+		for (int i=0; i<counts.length; i++)
+			writer.writeLong(counts[i]);
 	}
-	
-	//Copied from DefaultAttributeFactory
-	private String getSchemaTypeName(ContentType type) {
-		if (type == RegionType.ChartRegion)
-			return "ChartRegionType";
-		//else if (type == RegionType.FrameRegion)
-		//	return "FrameRegionType";
-		else if (type == RegionType.GraphicRegion)
-			return "GraphicRegionType";
-		else if (type == RegionType.ImageRegion)
-			return "ImageRegionType";
-		else if (type == RegionType.LineDrawingRegion)
-			return "LineDrawingRegionType";
-		else if (type == RegionType.MathsRegion)
-			return "MathsRegionType";
-		else if (type == RegionType.AdvertRegion)
-			return "AdvertRegionType";
-		else if (type == RegionType.ChemRegion)
-			return "ChemRegionType";
-		else if (type == RegionType.MusicRegion)
-			return "MusicRegionType";
-		else if (type == RegionType.NoiseRegion)
-			return "NoiseRegionType";
-		else if (type == RegionType.SeparatorRegion)
-			return "SeparatorRegionType";
-		else if (type == RegionType.TableRegion)
-			return "TableeRegionType";
-		else if (type == RegionType.TextRegion)
-			return "TextRegionType";
-		else if (type == RegionType.UnknownRegion)
-			return "UnknownRegionType";
-		else if (type == LowLevelTextType.TextLine)
-			return "TextLineType";
-		else if (type == LowLevelTextType.Word)
-			return "WordType";
-		else if (type == LowLevelTextType.Glyph)
-			return "GlyphType";
-		return null;
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		String[] columns = new String[subTypes.size()];
+		for (int i=0; i<columns.length; i++)
+			columns[i] = subTypes.getColumnName(i);
+		return new NumericAccumulator(columns);
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		NumericAccumulator acc = (NumericAccumulator)accumulator;
+		for (int i=0; i<counts.length; i++)
+			acc.add(i, counts[i]);
+	}
+
+	@Override
+	public SplittableContentHandler createPartHandler() {
+		return new RegionSubTypeCountScanElement(regionType, subTypes);
+	}
+
+	@Override
+	public void mergePart(SplittableContentHandler part) {
+		int[] partCounts = ((RegionSubTypeCountScanElement)part).counts;
+		for (int i=0; i<counts.length; i++)
+			counts[i] += partCounts[i];
 	}
 
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.element;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
+import org.primaresearch.dla.page.layout.physical.shared.LowLevelTextType;
+import org.primaresearch.dla.page.layout.physical.shared.RegionType;
+import org.primaresearch.io.FormatModel;
+import org.primaresearch.shared.variable.Variable;
+import org.primaresearch.shared.variable.VariableMap;
+import org.primaresearch.shared.variable.constraints.ValidStringValues;
+import org.primaresearch.shared.variable.constraints.VariableConstraint;
+
+/**
+ * Fixed, ordered index of the valid sub-types of a region type (as defined in the format model).<br>
+ * Indexes are immutable and shared by all scan elements using the same format model 
+ * (see {@link #getInstance(RegionType, FormatModel)}).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class RegionSubTypeIndex {
+
+	/** Shared indexes per format model and region type */
+	private static final Map<FormatModel, Map<RegionType, RegionSubTypeIndex>> instances 
+									= new WeakHashMap<FormatModel, Map<RegionType, RegionSubTypeIndex>>();
+	
+	private final String[] subTypes;
+	private final Map<String, Integer> indexBySubType;
+	private final String[] columnNames;
+	private final String csvHeader;
+	
+	/**
+	 * Returns the (shared) sub-type index for the given region type
+	 * @param regionType The type of region
+	 * @param formatModel Model with attribute templates.
+	 */
+	public static RegionSubTypeIndex getInstance(RegionType regionType, FormatModel formatModel) {
+		synchronized (instances) {
+			Map<RegionType, RegionSubTypeIndex> indexes = instances.get(formatModel);
+			if (indexes == null) {
+				indexes = new HashMap<RegionType, RegionSubTypeIndex>();
+				instances.put(formatModel, indexes);
+			}
+			RegionSubTypeIndex index = indexes.get(regionType);
+			if (index == null) {
+				index = new RegionSubTypeIndex(regionType, formatModel);
+				indexes.put(regionType, index);
+			}
+			return index;
+		}
+	}
+	
+	/**
+	 * Constructor (extracts the sub-types from the format model)
+	 */
+	private RegionSubTypeIndex(RegionType regionType, FormatModel formatModel) {
+		ValidStringValues validValues = null;
+		VariableMap attributeTemplates = formatModel.getTypeAttributeTemplates().get(getSchemaTypeName(regionType));
+		if (attributeTemplates != null) {
+			//Get the sub-type attribute
+			Variable var = attributeTemplates.get("type");
+			if (var != null) {
+				//Get the variable constraint (contains the list of valid sub-types)
+				VariableConstraint constraint = var.getConstraint();
+				if (constraint != null && constraint instanceof ValidStringValues) {
+					validValues = (ValidStringValues)constraint;
+				}
+			}
+		}
+		
+		if (validValues == null) {
+			subTypes = null;
+			indexBySubType = null;
+			columnNames = new String[0];
+			csvHeader = "";
+			return;
+		}
+		
+		subTypes = validValues.getValidValues().toArray(new String[0]);
+		indexBySubType = new HashMap<String, Integer>();
+		columnNames = new String[subTypes.length];
+		StringBuilder header = new StringBuilder();
+		for (int i=0; i<subTypes.length; i++) {
+			indexBySubType.put(subTypes[i], i);
+			//Example: 'TextRegion (heading) Count'
+			columnNames[i] = regionType.getName() + " (" + subTypes[i] + ") Count";
+			if (i > 0)
+				header.append(',');
+			header.append(columnNames[i]);
+		}
+		csvHeader = header.toString();
+	}
+	
+	/**
+	 * Returns <code>false</code> if the format model doesn't define sub-types for the region type
+	 */
+	public boolean hasSubTypes() {
+		return subTypes != null;
+	}
+	
+	/**
+	 * Returns the number of sub-types
+	 */
+	public int size() {
+		return subTypes != null ? subTypes.length : 0;
+	}
+	
+	/**
+	 * Returns the sub-type at the given index
+	 */
+	public String getSubType(int index) {
+		return subTypes[index];
+	}
+	
+	/**
+	 * Returns the index of the given sub-type or -1 if it is not a valid sub-type
+	 */
+	public int indexOf(String subType) {
+		if (indexBySubType == null)
+			return -1;
+		Integer index = indexBySubType.get(subType);
+		return index != null ? index.intValue() : -1;
+	}
+	
+	/**
+	 * Returns the CSV header for the sub-type at the given index
+	 */
+	public String getColumnName(int index) {
+		return columnNames[index];
+	}
+	
+	/**
+	 * Returns the comma separated CSV headers for all sub-types
+	 */
+	public String getCsvHeader() {
+		return csvHeader;
+	}
+	
+	//Copied from DefaultAttributeFactory
+	private static String getSchemaTypeName(ContentType type) {
+		if (type == RegionType.ChartRegion)
+			return "ChartRegionType";
+		//else if (type == RegionType.FrameRegion)
+		//	return "FrameRegionType";
+		else if (type == RegionType.GraphicRegion)
+			return "GraphicRegionType";
+		else if (type == RegionType.ImageRegion)
+			return "ImageRegionType";
+		else if (type == RegionType.LineDrawingRegion)
+			return "LineDrawingRegionType";
+		else if (type == RegionType.MathsRegion)
+			return "MathsRegionType";
+		else if (type == RegionType.AdvertRegion)
+			return "AdvertRegionType";
+		else if (type == RegionType.ChemRegion)
+			return "ChemRegionType";
+		else if (type == RegionType.MusicRegion)
+			return "MusicRegionType";
+		else if (type == RegionType.NoiseRegion)
+			return "NoiseRegionType";
+		else if (type == RegionType.SeparatorRegion)
+			return "SeparatorRegionType";
+		else if (type == RegionType.TableRegion)
+			return "TableeRegionType";
+		else if (type == RegionType.TextRegion)
+			return "TextRegionType";
+		else if (type == RegionType.UnknownRegion)
+			return "UnknownRegionType";
+		else if (type == LowLevelTextType.TextLine)
+			return "TextLineType";
+		else if (type == LowLevelTextType.Word)
+			return "WordType";
+		else if (type == LowLevelTextType.Glyph)
+			return "GlyphType";
+		return null;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.element;
+
+import java.io.IOException;
+
+import org.primaresearch.dla.page.scanner.result.ScanRowWriter;
+
+/**
+ * Interface for accumulators that aggregate the values of a scan element over multiple pages
+ * (e.g. sum/min/max/mean of counts or the union of value sets).<br>
+ * Accumulators are mergeable, so partial results (e.g. of parallel workers) can be combined.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public interface ScanAccumulator {
+
+	/**
+	 * Adds the accumulated values of the given accumulator (which has to be of the same kind and
+	 * created by an equally configured scan element).
+	 */
+	public void merge(ScanAccumulator other);
+	
+	/**
+	 * Writes one summary row per column.<br>
+	 * Row format: <code>Group,Column,Pages,Sum,Min,Max,Mean,Values</code> (empty values for not applicable fields)
+	 * @param group Group name (first value)
+	 */
+	public void writeSummaryRows(String group, ScanRowWriter rows) throws IOException;
+}
@@ -15,7 +15,10 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
+import java.io.IOException;
+
 import org.primaresearch.dla.page.Page;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
 
 /**
  * Interface for PAGE scanner elements. One element can represent a single or multiple CSV entries.
@@ -30,6 +33,12 @@ public interface ScanElement {
 	 */
 	public void init(Page page);
 
+	/**
+	 * Discards all values collected for the previous page (called before each scan when
+	 * the same element is reused for multiple pages).
+	 */
+	public void reset();
+
 	/**
 	 * Returns the CSV header(s) of this scan element. If the element represents multiple CSV entries,
 	 * the individual headers must be comma separated.
@@ -37,9 +46,21 @@ public interface ScanElement {
 	public String getCsvHeader();
 	
 	/**
-	 * Returns the CSV value(s) of this scan element. If the element represents multiple CSV entries,
-	 * the individual values must be comma separated.
+	 * Writes the value(s) of this scan element for the last scanned page (one value per CSV header,
+	 * except for code point lists).
+	 */
+	public void writeValues(ScanValueWriter writer) throws IOException;
+	
+	/**
+	 * Creates an empty accumulator for aggregating the values of this element over multiple pages.
+	 * @return Accumulator or <code>null</code> if the values of this element cannot be aggregated
+	 */
+	public ScanAccumulator createAccumulator();
+	
+	/**
+	 * Adds the values of the last scanned page to the given accumulator
+	 * (created by this element or an equally configured one).
 	 */
-	public String getCsvValue();
+	public void accumulate(ScanAccumulator accumulator);
 	
 }
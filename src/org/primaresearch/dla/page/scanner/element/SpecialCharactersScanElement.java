@@ -15,27 +15,38 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.io.IOException;
 
 import org.primaresearch.dla.page.Page;
 import org.primaresearch.dla.page.layout.physical.ContentObject;
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
 import org.primaresearch.dla.page.layout.physical.text.TextObject;
-import org.primaresearch.dla.page.scanner.ContentObjectHandler;
+import org.primaresearch.dla.page.scanner.SplittableContentHandler;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.ContentAttributes;
+import org.primaresearch.dla.page.scanner.stream.StreamingContentHandler;
+import org.primaresearch.dla.page.scanner.util.CodePointHistogram;
+import org.primaresearch.dla.page.scanner.util.CodePointSet;
 
 /**
  * Creates a list of characters that occur in the text content of the document.
- * The characters are output as Unicode number in decimal format.
+ * The characters are output as Unicode number (code point) in decimal format, in ascending order.<br>
+ * Optionally, the number of occurrences per character can be output (histogram).
  *  
  * @author Christian Clausner
  *
  */
-public class SpecialCharactersScanElement implements ScanElement, ContentObjectHandler {
+public class SpecialCharactersScanElement implements ScanElement, SplittableContentHandler, StreamingContentHandler {
 
 	/** Switch to optionally output the character codes in one column */
 	boolean oneColumn;
-	Set<Integer> specialChars = new HashSet<Integer>();
+	/** Switch to optionally output the number of occurrences per character */
+	boolean histogram;
+	CodePointSet specialChars = new CodePointSet();
+	CodePointHistogram counts = null;
+	/** Reused output buffers */
+	private int[] codePointBuffer = new int[0];
+	private long[] countBuffer = new long[0];
 	//Set<String> normalCharHexCodes = new HashSet<String>();
 
 	/**
@@ -50,7 +61,25 @@ public class SpecialCharactersScanElement implements ScanElement, ContentObjectH
 	 * @param oneColumn Switch to optionally output the character codes in one column
 	 */
 	public SpecialCharactersScanElement(boolean oneColumn) {
+		this(oneColumn, false);
+	}
+
+	/**
+	 * Constructor
+	 * @param oneColumn Switch to optionally output the character codes in one column
+	 * @param histogram Switch to optionally output the number of occurrences per character
+	 */
+	public SpecialCharactersScanElement(boolean oneColumn, boolean histogram) {
 		this.oneColumn = oneColumn;
+		this.histogram = histogram;
+		if (histogram)
+			counts = new CodePointHistogram();
+	}
+
+	@Override
+	public boolean handlesContentType(ContentType type) {
+		//All types (text content is checked per object)
+		return true;
 	}
 	
 	/*void initNormalCharacters() {
@@ -67,26 +96,35 @@ public class SpecialCharactersScanElement implements ScanElement, ContentObjectH
 	public void init(Page page) {
 	}
 
+	@Override
+	public void reset() {
+		specialChars.clear();
+		if (counts != null)
+			counts.clear();
+	}
+
 	@Override
 	public String getCsvHeader() {
 		if (oneColumn)
-			return "Character code";
-		return "Character codes";
+			return histogram ? "Character code,Count" : "Character code";
+		return histogram ? "Character counts" : "Character codes";
 	}
 
 	@Override
-	public String getCsvValue() {
-		StringBuilder values = new StringBuilder();
-		for (Iterator<Integer> it = specialChars.iterator(); it.hasNext(); ) {
-			if (values.length() != 0) {
-				if (oneColumn)
-					values.append("\n,");
-				else
-					values.append(',');
-			}
-			values.append(it.next());
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		int size = specialChars.size();
+		if (codePointBuffer.length < size) {
+			codePointBuffer = new int[size];
+			countBuffer = new long[size];
 		}
-		return values.toString();
+		int i = 0;
+		for (int c = specialChars.next(0); c >= 0; c = specialChars.next(c+1)) {
+			codePointBuffer[i] = c;
+			if (histogram)
+				countBuffer[i] = counts.get(c);
+			i++;
+		}
+		writer.writeCodePoints(codePointBuffer, histogram ? countBuffer : null, size, oneColumn);
 	}
 
 	@Override
@@ -99,20 +137,50 @@ public class SpecialCharactersScanElement implements ScanElement, ContentObjectH
 		}		
 	}
 
+	@Override
+	public void handleContent(ContentType type, ContentAttributes attributes, String text) {
+		processText(text);
+	}
+
 	private void processText(String text) {
 		if (text == null)
 			return;
-		char[] chars = text.toCharArray();
-		//String hexCode;
-		for (int i=0; i<chars.length; i++) {
-			//hexCode = toHexCode(chars[i]);
-			//if (!normalCharHexCodes.contains(hexCode)) 
-				//specialCharHexCodes.add(hexCode);
-			specialChars.add((int)chars[i]);
+		//Code points (surrogate pairs are combined)
+		int length = text.length();
+		int codePoint;
+		for (int i=0; i<length; i += Character.charCount(codePoint)) {
+			codePoint = text.codePointAt(i);
+			specialChars.add(codePoint);
+			if (counts != null)
+				counts.add(codePoint);
 		}
 	}
 	
 	//private String toHexCode(char c) {
 	//	
 	//}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		return new CodePointAccumulator(histogram ? "Character counts" : "Character codes", histogram);
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		((CodePointAccumulator)accumulator).add(specialChars, counts);
+	}
+
+	@Override
+	public SplittableContentHandler createPartHandler() {
+		return new SpecialCharactersScanElement(oneColumn, histogram);
+	}
+
+	@Override
+	public void mergePart(SplittableContentHandler part) {
+		SpecialCharactersScanElement other = (SpecialCharactersScanElement)part;
+		specialChars.addAll(other.specialChars);
+		if (counts != null)
+			counts.addAll(other.counts);
+	}
+
 }
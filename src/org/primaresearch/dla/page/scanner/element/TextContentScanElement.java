@@ -15,11 +15,16 @@
  */
 package org.primaresearch.dla.page.scanner.element;
 
+import java.io.IOException;
+
 import org.primaresearch.dla.page.Page;
 import org.primaresearch.dla.page.layout.physical.ContentObject;
 import org.primaresearch.dla.page.layout.physical.shared.ContentType;
 import org.primaresearch.dla.page.layout.physical.text.TextObject;
-import org.primaresearch.dla.page.scanner.ContentObjectHandler;
+import org.primaresearch.dla.page.scanner.SplittableContentHandler;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.ContentAttributes;
+import org.primaresearch.dla.page.scanner.stream.StreamingContentHandler;
 
 /**
  * Scan element that calculates text content statistics.
@@ -28,14 +33,14 @@ import org.primaresearch.dla.page.scanner.ContentObjectHandler;
  *
  */
 public class TextContentScanElement implements ScanElement,
-		ContentObjectHandler {
+		SplittableContentHandler, StreamingContentHandler {
 
 	public static final int TYPE_COUNT_CHARACTERS 		= 1;
 	public static final int TYPE_COUNT_SPACES_AND_TABS 	= 2;
 	public static final int TYPE_COUNT_LINE_BREAKS 		= 3;
 	public static final int TYPE_COUNT_ALL 				= 4;
 	
-	private String[] headers = {null, "Character Count", "Space and Tab Count", "Line Break Count", "Text Size"};
+	static final String[] HEADERS = {null, "Character Count", "Space and Tab Count", "Line Break Count", "Text Size"};
 	private ContentType contentType;
 	private int statisticsType;
 	private int count = 0;
@@ -49,6 +54,11 @@ public class TextContentScanElement implements ScanElement,
 		this.contentType = contentType;
 		this.statisticsType = statisticsType;
 	}
+
+	@Override
+	public boolean handlesContentType(ContentType type) {
+		return contentType.equals(type);
+	}
 	
 	@Override
 	public void handleContentObject(ContentObject obj) {
@@ -60,6 +70,12 @@ public class TextContentScanElement implements ScanElement,
 			}
 		}
 	}
+
+	@Override
+	public void handleContent(ContentType type, ContentAttributes attributes, String text) {
+		if (contentType.equals(type))
+			calcCount(text);
+	}
 	
 	/**
 	 * Counts the occurrences of specific types of characters within the given text.
@@ -94,15 +110,40 @@ public class TextContentScanElement implements ScanElement,
 	public void init(Page page) {
 	}
 
+	@Override
+	public void reset() {
+		count = 0;
+	}
+
 	@Override
 	public String getCsvHeader() {
 		//Example: 'Line Break Count TextRegion'
-		return headers[statisticsType] + " " + contentType.getName();
+		return HEADERS[statisticsType] + " " + contentType.getName();
+	}
+
+	@Override
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		writer.writeLong(count);
+	}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		return new NumericAccumulator(getCsvHeader());
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		((NumericAccumulator)accumulator).add(0, count);
+	}
+
+	@Override
+	public SplittableContentHandler createPartHandler() {
+		return new TextContentScanElement(contentType, statisticsType);
 	}
 
 	@Override
-	public String getCsvValue() {
-		return ""+count;
+	public void mergePart(SplittableContentHandler part) {
+		count += ((TextContentScanElement)part).count;
 	}
 
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.element;
+
+import java.io.IOException;
+
+import org.primaresearch.dla.page.Page;
+import org.primaresearch.dla.page.layout.physical.ContentObject;
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
+import org.primaresearch.dla.page.layout.physical.text.TextObject;
+import org.primaresearch.dla.page.scanner.SplittableContentHandler;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.stream.ContentAttributes;
+import org.primaresearch.dla.page.scanner.stream.StreamingContentHandler;
+
+/**
+ * Scan element that calculates several text content statistics for one content type 
+ * in a single pass over the text.<br>
+ * This element represents multiple CSV entries (the same as the corresponding
+ * {@link TextContentScanElement} instances).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class TextStatisticsScanElement implements ScanElement,
+		SplittableContentHandler, StreamingContentHandler {
+
+	private ContentType contentType;
+	private int[] statisticsTypes;
+	private boolean needsTextPass = false;
+	
+	private long spacesAndTabs = 0;
+	private long lineBreaks = 0;
+	private long size = 0;
+	
+	/**
+	 * Constructor
+	 * @param contentType Content type (e.g. RegionType.TextRegion or LowLevelTextType.Word).
+	 * @param statisticsTypes One or more TYPE_ constants of {@link TextContentScanElement} (in output order).
+	 */
+	public TextStatisticsScanElement(ContentType contentType, int... statisticsTypes) {
+		if (statisticsTypes.length == 0)
+			throw new IllegalArgumentException("No text statistics specified");
+		this.contentType = contentType;
+		this.statisticsTypes = statisticsTypes;
+		for (int i=0; i<statisticsTypes.length; i++) {
+			if (statisticsTypes[i] < TextContentScanElement.TYPE_COUNT_CHARACTERS 
+					|| statisticsTypes[i] > TextContentScanElement.TYPE_COUNT_ALL)
+				throw new IllegalArgumentException("Unknown text statistics type: "+statisticsTypes[i]);
+			//The text size doesn't require looking at the characters
+			if (statisticsTypes[i] != TextContentScanElement.TYPE_COUNT_ALL)
+				needsTextPass = true;
+		}
+	}
+
+	@Override
+	public boolean handlesContentType(ContentType type) {
+		return contentType.equals(type);
+	}
+	
+	@Override
+	public void handleContentObject(ContentObject obj) {
+		if (obj instanceof TextObject && contentType.equals(obj.getType()))
+			calcCounts(((TextObject)obj).getText());
+	}
+
+	@Override
+	public void handleContent(ContentType type, ContentAttributes attributes, String text) {
+		if (contentType.equals(type))
+			calcCounts(text);
+	}
+	
+	/**
+	 * Counts spaces/tabs and line breaks in one pass (all other statistics are derived from these)
+	 */
+	private void calcCounts(String text) {
+		if (text == null)
+			return;
+		int length = text.length();
+		size += length;
+		if (!needsTextPass)
+			return;
+		int spaces = 0;
+		int breaks = 0;
+		char c;
+		for (int i=0; i<length; i++) {
+			c = text.charAt(i);
+			if (c == ' ' || c == '\t')
+				spaces++;
+			else if (c == '\n')
+				breaks++;
+		}
+		spacesAndTabs += spaces;
+		lineBreaks += breaks;
+	}
+
+	@Override
+	public void init(Page page) {
+	}
+
+	@Override
+	public void reset() {
+		spacesAndTabs = 0;
+		lineBreaks = 0;
+		size = 0;
+	}
+
+	@Override
+	public String getCsvHeader() {
+		//Example: 'Character Count TextRegion,Text Size TextRegion'
+		StringBuilder str = new StringBuilder();
+		for (int i=0; i<statisticsTypes.length; i++) {
+			if (i > 0)
+				str.append(',');
+			str.append(TextContentScanElement.HEADERS[statisticsTypes[i]]);
+			str.append(' ');
+			str.append(contentType.getName());
+		}
+		return str.toString();
+	}
+
+	@Override
+	public void writeValues(ScanValueWriter writer) throws IOException {
+		for (int i=0; i<statisticsTypes.length; i++)
+			writer.writeLong(getCount(statisticsTypes[i]));
+	}
+	
+	/**
+	 * Returns the value for the given statistics type
+	 */
+	private long getCount(int statisticsType) {
+		if (statisticsType == TextContentScanElement.TYPE_COUNT_ALL)
+			return size;
+		if (statisticsType == TextContentScanElement.TYPE_COUNT_LINE_BREAKS)
+			return lineBreaks;
+		if (statisticsType == TextContentScanElement.TYPE_COUNT_SPACES_AND_TABS)
+			return spacesAndTabs;
+		//Characters: everything but spaces, tabs and line breaks
+		return size - spacesAndTabs - lineBreaks;
+	}
+
+	@Override
+	public ScanAccumulator createAccumulator() {
+		String[] columns = new String[statisticsTypes.length];
+		for (int i=0; i<statisticsTypes.length; i++)
+			columns[i] = TextContentScanElement.HEADERS[statisticsTypes[i]] + " " + contentType.getName();
+		return new NumericAccumulator(columns);
+	}
+
+	@Override
+	public void accumulate(ScanAccumulator accumulator) {
+		NumericAccumulator acc = (NumericAccumulator)accumulator;
+		for (int i=0; i<statisticsTypes.length; i++)
+			acc.add(i, getCount(statisticsTypes[i]));
+	}
+
+	@Override
+	public SplittableContentHandler createPartHandler() {
+		return new TextStatisticsScanElement(contentType, statisticsTypes);
+	}
+
+	@Override
+	public void mergePart(SplittableContentHandler part) {
+		TextStatisticsScanElement other = (TextStatisticsScanElement)part;
+		spacesAndTabs += other.spacesAndTabs;
+		lineBreaks += other.lineBreaks;
+		size += other.size;
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.element;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.primaresearch.dla.page.scanner.result.ScanRowWriter;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+
+/**
+ * Accumulator building the union of text values (e.g. languages) over multiple pages.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ValueSetAccumulator implements ScanAccumulator {
+
+	private String column;
+	private long pageCount = 0;
+	private Set<String> values = new TreeSet<String>();
+	
+	/**
+	 * Constructor
+	 * @param column Column name (CSV header)
+	 */
+	public ValueSetAccumulator(String column) {
+		this.column = column;
+	}
+	
+	/**
+	 * Adds the values of one page
+	 */
+	public void add(Collection<String> pageValues) {
+		values.addAll(pageValues);
+		pageCount++;
+	}
+
+	/**
+	 * Adds the value of one page (<code>null</code> and empty values are not added to the set)
+	 */
+	public void add(String pageValue) {
+		if (pageValue != null && !pageValue.isEmpty())
+			values.add(pageValue);
+		pageCount++;
+	}
+
+	@Override
+	public void merge(ScanAccumulator other) {
+		ValueSetAccumulator acc = (ValueSetAccumulator)other;
+		values.addAll(acc.values);
+		pageCount += acc.pageCount;
+	}
+
+	@Override
+	public void writeSummaryRows(String group, ScanRowWriter rows) throws IOException {
+		ScanValueWriter row = rows.beginRow(group);
+		row.writeString(column);
+		row.writeLong(pageCount);
+		for (int v=0; v<4; v++)
+			row.writeNull();
+		row.writeStringSet(values);
+		rows.endRow();
+	}
+
+}
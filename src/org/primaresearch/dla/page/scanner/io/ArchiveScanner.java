@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the PAGE XML entries of a ZIP archive one after the other, without extracting them to disk.<br>
+ * Inputs are named <code>archive.zip!/path/entry.xml</code>.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ArchiveScanner {
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+	
+	/**
+	 * Callback for archive entries
+	 */
+	public static interface EntryHandler {
+		/**
+		 * Handles an archive entry. The input is only valid during this call.
+		 */
+		public void handle(PageInput input);
+	}
+	
+	/**
+	 * Returns <code>true</code> if the given file name denotes a ZIP archive
+	 */
+	public static boolean isArchive(String filename) {
+		return filename.toLowerCase().endsWith(".zip");
+	}
+	
+	/**
+	 * Passes all XML entries of the given archive to the handler (in archive order)
+	 */
+	public static void scan(File archive, EntryHandler handler) throws IOException {
+		ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(archive), BUFFER_SIZE));
+		try {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				if (entry.isDirectory() || !entry.getName().toLowerCase().endsWith(".xml"))
+					continue;
+				handler.handle(new StreamPageInput(archive.getPath()+"!/"+entry.getName(), zip));
+				zip.closeEntry();
+			}
+		} finally {
+			zip.close();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PAGE XML document held in memory.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ByteArrayPageInput implements PageInput {
+
+	private String name;
+	private byte[] content;
+	
+	/**
+	 * Constructor
+	 * @param name Name of the input
+	 * @param content XML content
+	 */
+	public ByteArrayPageInput(String name, byte[] content) {
+		this.name = name;
+		this.content = content;
+	}
+	
+	/**
+	 * Reads the content of the given input into memory
+	 */
+	public static ByteArrayPageInput readFrom(PageInput input) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+		InputStream in = input.openStream();
+		try {
+			byte[] chunk = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(chunk)) > 0)
+				buffer.write(chunk, 0, read);
+		} finally {
+			in.close();
+		}
+		return new ByteArrayPageInput(input.getName(), buffer.toByteArray());
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public InputStream openStream() {
+		return new ByteArrayInputStream(content);
+	}
+
+	@Override
+	public boolean isReopenable() {
+		return true;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * PAGE XML file on disk. Gzip compressed files are detected by their magic bytes
+ * (regardless of the file extension) and decompressed on the fly.<br>
+ * Uncompressed files can optionally be read via NIO (see {@link NioFileReader}).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class FilePageInput implements PageInput {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/** Larger input buffer for compressed files (fewer, larger reads; the compressed data is small) */
+	private static final int GZIP_INPUT_BUFFER_SIZE = 128 * 1024;
+	/** Input buffer for header-only scans (only the beginning of the file is read) */
+	private static final int HEADER_BUFFER_SIZE = 8 * 1024;
+	private static final int READ_AHEAD_CHUNK_SIZE = 256 * 1024;
+	private static final int READ_AHEAD_CHUNK_COUNT = 4;
+	
+	private File file;
+	private String name;
+	private boolean readAhead = false;
+	private boolean nio = false;
+	private long mappingThreshold = NioFileReader.DEFAULT_MAPPING_THRESHOLD;
+	private boolean headerOnly = false;
+	/** 1 = compressed, 0 = not compressed, -1 = not checked yet */
+	private int compressed = -1;
+	
+	/**
+	 * Constructor
+	 * @param file PAGE XML file (the path is used as name)
+	 */
+	public FilePageInput(File file) {
+		this.file = file;
+		this.name = file.getPath();
+	}
+	
+	/**
+	 * Constructor
+	 * @param file PAGE XML file (the path is used as name)
+	 * @param readAhead If <code>true</code>, compressed files are decompressed in a background thread
+	 *        (overlapping with parsing) 
+	 */
+	public FilePageInput(File file, boolean readAhead) {
+		this(file);
+		this.readAhead = readAhead;
+	}
+	
+	/**
+	 * Enables or disables reading via NIO (uncompressed files only, default: disabled)
+	 * @param mappingThreshold Files of this size or larger are memory-mapped, smaller files are read into a direct buffer
+	 */
+	public void setNio(boolean nio, long mappingThreshold) {
+		this.nio = nio;
+		this.mappingThreshold = mappingThreshold;
+	}
+	
+	/**
+	 * If set to <code>true</code>, only the beginning of the file is expected to be read (header-only scans).
+	 * The file is then read with a small buffer, without NIO and without read-ahead (default: <code>false</code>).
+	 */
+	public void setHeaderOnly(boolean headerOnly) {
+		this.headerOnly = headerOnly;
+	}
+	
+	/**
+	 * Returns the file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Checks if the stream starts with the gzip magic bytes (0x1f 0x8b)
+	 */
+	private static boolean hasGzipMagic(InputStream in) throws IOException {
+		return in.read() == 0x1f && in.read() == 0x8b;
+	}
+
+	@Override
+	public InputStream openStream() throws IOException {
+		if (nio && !headerOnly && compressed != 1) {
+			InputStream in = NioFileReader.open(file, mappingThreshold);
+			in.mark(2);
+			boolean gzip = hasGzipMagic(in);
+			in.reset();
+			if (!gzip) {
+				compressed = 0;
+				return in;
+			}
+			//Compressed files are read as stream (below)
+			in.close();
+			compressed = 1;
+		}
+		
+		//Check the magic bytes on the raw file first, so the input buffer can be sized for the content
+		FileInputStream raw = new FileInputStream(file);
+		InputStream in = raw;
+		try {
+			boolean gzip = hasGzipMagic(raw);
+			raw.getChannel().position(0L);
+			compressed = gzip ? 1 : 0;
+			int bufferSize = headerOnly ? HEADER_BUFFER_SIZE : BUFFER_SIZE;
+			in = new BufferedInputStream(raw, gzip && !headerOnly ? GZIP_INPUT_BUFFER_SIZE : bufferSize);
+			if (!gzip)
+				return in;
+			
+			in = new GZIPInputStream(in, bufferSize);
+			if (readAhead && !headerOnly)
+				return new ReadAheadInputStream(in, READ_AHEAD_CHUNK_SIZE, READ_AHEAD_CHUNK_COUNT);
+			return new BufferedInputStream(in, bufferSize);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean isReopenable() {
+		return true;
+	}
+}
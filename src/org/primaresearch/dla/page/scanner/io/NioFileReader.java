@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Opens files via NIO channels: files from a size threshold on are memory-mapped,
+ * smaller files are read with a single channel read into a direct buffer (reused per thread).<br>
+ * Mappings are released when the stream is closed. If the JVM does not allow that, they are only
+ * released on garbage collection, and scanning many large files can hit the limit of mappings
+ * per process (vm.max_map_count on Linux).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class NioFileReader {
+
+	/** Default size from which files are memory-mapped */
+	public static final long DEFAULT_MAPPING_THRESHOLD = 1024 * 1024;
+	
+	/** Direct buffer of the current thread (null while in use) */
+	private static final ThreadLocal<ByteBuffer> THREAD_BUFFER = new ThreadLocal<ByteBuffer>();
+	
+	/** sun.misc.Unsafe and its method invokeCleaner (Java 9+, null if not available) */
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+	
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+		} catch (Exception e) {
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+	
+	/**
+	 * Opens the given file.
+	 * @param mappingThreshold Files of this size or larger are memory-mapped
+	 */
+	public static InputStream open(File file, long mappingThreshold) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size >= mappingThreshold && size <= Integer.MAX_VALUE) {
+				//The mapping stays valid after the channel has been closed
+				return new MappedBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+			}
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("File too large: "+file);
+			
+			ByteBuffer buffer = takeBuffer((int)size);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+				;
+			buffer.flip();
+			return new DirectBufferInputStream(buffer);
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Returns a cleared direct buffer with the given limit (the buffer of the current thread if available and large enough)
+	 */
+	private static ByteBuffer takeBuffer(int size) {
+		ByteBuffer buffer = THREAD_BUFFER.get();
+		THREAD_BUFFER.set(null);
+		if (buffer == null || buffer.capacity() < size)
+			buffer = ByteBuffer.allocateDirect(Math.max(size, 64 * 1024));
+		buffer.clear();
+		buffer.limit(size);
+		return buffer;
+	}
+	
+	/**
+	 * Releases the given mapped buffer (the buffer must not be accessed afterwards).
+	 * Does nothing if not supported by the JVM (the mapping is then released on garbage collection).
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		try {
+			if (INVOKE_CLEANER != null)
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			else { //Java 8
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null)
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (Exception e) {
+			//Not supported
+		}
+	}
+	
+	
+	/**
+	 * Stream over a memory-mapped file, releasing the mapping when closed
+	 */
+	private static class MappedBufferInputStream extends ByteBufferInputStream {
+		private ByteBuffer buffer;
+		
+		MappedBufferInputStream(ByteBuffer buffer) {
+			super(buffer);
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public void close() {
+			super.close();
+			if (buffer != null)
+				unmap(buffer);
+			buffer = null;
+		}
+	}
+	
+	/**
+	 * Stream over a thread buffer, giving the buffer back to the thread when closed
+	 */
+	private static class DirectBufferInputStream extends ByteBufferInputStream {
+		private ByteBuffer buffer;
+		
+		DirectBufferInputStream(ByteBuffer buffer) {
+			super(buffer);
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public void close() {
+			super.close();
+			if (buffer != null && THREAD_BUFFER.get() == null)
+				THREAD_BUFFER.set(buffer);
+			buffer = null;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A PAGE XML document to be scanned (plain file, archive entry, ...).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public interface PageInput {
+
+	/**
+	 * Returns the name of the input (used as file name in the scan results)
+	 */
+	public String getName();
+	
+	/**
+	 * Opens a stream with the XML content. The caller has to close the stream.
+	 */
+	public InputStream openStream() throws IOException;
+	
+	/**
+	 * Returns <code>true</code> if {@link #openStream()} can be called more than once
+	 */
+	public boolean isReopenable();
+}
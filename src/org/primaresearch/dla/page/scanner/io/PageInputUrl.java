@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+
+/**
+ * Creates URLs that read from a {@link PageInput} (no global URL handler registration needed).<br>
+ * Used to pass all inputs (plain files, archive entries, compressed files) to the PAGE XML reader
+ * of the object model engine, so they are read like for the streaming engine.<br>
+ * The URL path is fixed; it does not contain the name of the input (which may contain characters
+ * with a special meaning in URLs, e.g. '#').
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class PageInputUrl {
+
+	private static final String PROTOCOL = "pageinput";
+	private static final String PATH = "/input";
+	
+	/**
+	 * Creates a URL for the given input. The input should be reopenable, since the reader may open the URL more than once.
+	 */
+	public static URL create(final PageInput input) throws MalformedURLException {
+		URLStreamHandler handler = new URLStreamHandler() {
+			@Override
+			protected URLConnection openConnection(URL url) {
+				return new URLConnection(url) {
+					@Override
+					public void connect() {
+						connected = true;
+					}
+					
+					@Override
+					public InputStream getInputStream() throws IOException {
+						return input.openStream();
+					}
+				};
+			}
+		};
+		return new URL(PROTOCOL, "", -1, PATH, handler);
+	}
+}
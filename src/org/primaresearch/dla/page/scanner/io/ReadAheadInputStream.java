@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Input stream that reads its source in a background thread into a fixed number of chunks.<br>
+ * Used for compressed files, so that decompression overlaps with XML parsing.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	private static final ExecutorService READERS = Executors.newCachedThreadPool(new ThreadFactory() {
+		private int count = 0;
+		@Override
+		public synchronized Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "page-read-ahead-"+(++count));
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	private InputStream source;
+	private BlockingQueue<Chunk> free;
+	private BlockingQueue<Chunk> filled;
+	private Future<?> reader;
+	private volatile IOException readError = null;
+	private volatile boolean closed = false;
+	private Chunk current = null;
+	private int position = 0;
+	private boolean endOfStream = false;
+	
+	/**
+	 * Constructor
+	 * @param source Stream to read from (closed when this stream is closed)
+	 * @param chunkSize Size of a chunk in bytes
+	 * @param chunkCount Number of chunks (the reader stays at most this many chunks ahead)
+	 */
+	public ReadAheadInputStream(InputStream source, int chunkSize, int chunkCount) {
+		this.source = source;
+		free = new ArrayBlockingQueue<Chunk>(chunkCount);
+		filled = new ArrayBlockingQueue<Chunk>(chunkCount + 1);
+		for (int i=0; i<chunkCount; i++)
+			free.add(new Chunk(chunkSize));
+		reader = READERS.submit(new Runnable() {
+			@Override
+			public void run() {
+				readAhead();
+			}
+		});
+	}
+	
+	/**
+	 * Reads the source into free chunks until the end of the stream (background thread)
+	 */
+	private void readAhead() {
+		try {
+			while (true) {
+				Chunk chunk = free.take();
+				chunk.length = 0;
+				int read = 0;
+				while (chunk.length < chunk.data.length
+						&& (read = source.read(chunk.data, chunk.length, chunk.data.length - chunk.length)) >= 0)
+					chunk.length += read;
+				if (chunk.length > 0)
+					filled.put(chunk);
+				if (read < 0)
+					break;
+			}
+		} catch (IOException e) {
+			if (!closed)
+				readError = e;
+		} catch (InterruptedException e) {
+			//Closed
+			return;
+		}
+		try {
+			filled.put(Chunk.END);
+		} catch (InterruptedException e) {
+			//Closed
+		}
+	}
+	
+	/**
+	 * Makes the next filled chunk the current one
+	 * @return <code>false</code> if the end of the stream has been reached
+	 */
+	private boolean nextChunk() throws IOException {
+		if (endOfStream)
+			return false;
+		if (current != null)
+			free.add(current);
+		try {
+			current = filled.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Read interrupted");
+		}
+		position = 0;
+		if (current == Chunk.END) {
+			current = null;
+			endOfStream = true;
+			if (readError != null)
+				throw readError;
+			return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		if ((current == null || position >= current.length) && !nextChunk())
+			return -1;
+		return current.data[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if ((current == null || position >= current.length) && !nextChunk())
+			return -1;
+		int count = Math.min(len, current.length - position);
+		System.arraycopy(current.data, position, b, off, count);
+		position += count;
+		return count;
+	}
+	
+	@Override
+	public int available() {
+		return current != null ? current.length - position : 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		reader.cancel(true);
+		source.close();
+	}
+	
+	
+	/**
+	 * Buffer with the number of bytes used
+	 */
+	private static class Chunk {
+		/** End of stream marker */
+		static final Chunk END = new Chunk(0);
+		
+		final byte[] data;
+		int length = 0;
+		
+		Chunk(int size) {
+			data = new byte[size];
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PAGE XML document provided by an open stream (e.g. an archive entry) that can be read only once.
+ * Closing the stream returned by {@link #openStream()} does not close the underlying stream.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class StreamPageInput implements PageInput {
+
+	private String name;
+	private InputStream stream;
+	private boolean opened = false;
+	
+	/**
+	 * Constructor
+	 * @param name Name of the input
+	 * @param stream Stream positioned at the start of the XML content
+	 */
+	public StreamPageInput(String name, InputStream stream) {
+		this.name = name;
+		this.stream = stream;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public InputStream openStream() throws IOException {
+		if (opened)
+			throw new IOException("Input can only be read once: "+name);
+		opened = true;
+		return new FilterInputStream(stream) {
+			@Override
+			public void close() {
+				//Keep the underlying stream open
+			}
+		};
+	}
+
+	@Override
+	public boolean isReopenable() {
+		return false;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Unsynchronised UTF-8 writer with large buffers that writes to a byte channel.<br>
+ * Characters are collected in a char buffer and encoded in bulk, 
+ * so the channel is only written to when the byte buffer is full or on flush.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ChannelWriter extends Writer {
+
+	/** Default buffer size (bytes) */
+	public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	
+	private WritableByteChannel channel;
+	private OutputStream stream;
+	private CharsetEncoder encoder;
+	private CharBuffer chars;
+	private ByteBuffer bytes;
+	
+	/**
+	 * Constructor
+	 * @param channel Target channel
+	 * @param bufferSize Size of the byte buffer
+	 */
+	public ChannelWriter(WritableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		encoder = Charset.forName("UTF-8").newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		chars = CharBuffer.allocate(bufferSize / 4);
+		bytes = ByteBuffer.allocate(bufferSize);
+	}
+	
+	/**
+	 * Constructor for a stream target (the stream is flushed when this writer is flushed)
+	 */
+	public ChannelWriter(OutputStream stream, int bufferSize) {
+		this(Channels.newChannel(stream), bufferSize);
+		this.stream = stream;
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		if (!chars.hasRemaining())
+			encodeChars(false);
+		chars.put((char)c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		while (len > 0) {
+			if (!chars.hasRemaining())
+				encodeChars(false);
+			int count = Math.min(len, chars.remaining());
+			chars.put(cbuf, off, count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		while (len > 0) {
+			if (!chars.hasRemaining())
+				encodeChars(false);
+			int count = Math.min(len, chars.remaining());
+			chars.put(str, off, off + count);
+			off += count;
+			len -= count;
+		}
+	}
+	
+	/**
+	 * Encodes the buffered characters into the byte buffer (writing the byte buffer to the channel when full)
+	 */
+	private void encodeChars(boolean endOfInput) throws IOException {
+		chars.flip();
+		while (true) {
+			CoderResult result = encoder.encode(chars, bytes, endOfInput);
+			if (!result.isOverflow())
+				break;
+			writeBytes();
+		}
+		//Keeps an incomplete surrogate pair
+		chars.compact();
+	}
+	
+	/**
+	 * Writes the byte buffer to the channel
+	 */
+	private void writeBytes() throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining())
+			channel.write(bytes);
+		bytes.clear();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		encodeChars(false);
+		writeBytes();
+		if (stream != null)
+			stream.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!channel.isOpen())
+			return;
+		encodeChars(true);
+		while (encoder.flush(bytes).isOverflow())
+			writeBytes();
+		writeBytes();
+		channel.close();
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.output;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Constants and primitive encodings of the columnar scan result format.<br>
+ * <br>
+ * File layout: magic, version, column count, column names, then row groups.
+ * A row group starts with its row count (0 marks the end of the file), followed by one chunk per column.
+ * A chunk consists of its length in bytes (int), the encoding (byte), flags (byte), a null bitmap
+ * (if flagged; bit set = null) and the encoded non-null values.
+ * 
+ * @author Christian Clausner
+ *
+ */
+final class ColumnarFormat {
+
+	static final int MAGIC = 0x50534346; //'PSCF'
+	static final int VERSION = 1;
+	
+	/** All values are null */
+	static final byte ENCODING_NULL = 0;
+	/** Zigzag varints */
+	static final byte ENCODING_LONG_PLAIN = 1;
+	/** Runs of (run length, zigzag varint value) */
+	static final byte ENCODING_LONG_RLE = 2;
+	/** Raw 8 byte values */
+	static final byte ENCODING_DOUBLE = 3;
+	/** Front coded strings (length of prefix shared with the previous value, suffix) */
+	static final byte ENCODING_STRING_PLAIN = 4;
+	/** Dictionary of distinct strings and runs of (run length, dictionary index) */
+	static final byte ENCODING_STRING_DICTIONARY = 5;
+	/** Per value: number of code points, counts flag, delta coded code points (and counts) */
+	static final byte ENCODING_CODE_POINTS = 6;
+	/** Per value: type (see ScanRow) and value */
+	static final byte ENCODING_MIXED = 7;
+	
+	static final int FLAG_NULLS = 1;
+	/** String values are string sets (items separated by a zero character) */
+	static final int FLAG_STRING_SET = 2;
+	
+	static final char SET_SEPARATOR = '\u0000';
+	
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private ColumnarFormat() {
+	}
+	
+	static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int)value);
+	}
+	
+	static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+	
+	static void writeZigzag(DataOutput out, long value) throws IOException {
+		writeVarLong(out, (value << 1) ^ (value >> 63));
+	}
+	
+	static long readZigzag(DataInput in) throws IOException {
+		long value = readVarLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	static void writeString(DataOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(UTF8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes);
+	}
+	
+	static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[(int)readVarLong(in)];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+}
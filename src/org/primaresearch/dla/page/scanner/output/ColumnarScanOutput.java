@@ -0,0 +1,479 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.output;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.primaresearch.dla.page.scanner.result.ScanRow;
+import org.primaresearch.dla.page.scanner.result.ScanRowCodec;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+
+/**
+ * Binary columnar output (see {@link ColumnarFormat}). Rows are collected in row groups;
+ * each column of a row group is written as one typed chunk, run-length or dictionary encoded where
+ * this is smaller (e.g. for counts that are mostly zero, languages and scripts).<br>
+ * Use {@link ColumnarScanReader} to load the results.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ColumnarScanOutput extends ScanOutput {
+
+	/** Number of rows per row group */
+	static final int ROW_GROUP_SIZE = 32768;
+	
+	private DataOutputStream out;
+	private ColumnBuilder[] builders = null;
+	private int rowCount = 0;
+	private int column = 0;
+	private ByteArrayOutputStream chunkBuffer = new ByteArrayOutputStream(64 * 1024);
+	private DataOutputStream chunkOut = new DataOutputStream(chunkBuffer);
+	
+	/** Adds the values of the current row to the column builders */
+	private ScanValueWriter cellWriter = new ScanValueWriter() {
+		@Override
+		public void writeNull() {
+			nextColumn().add(ScanRow.TYPE_NULL, 0L, null);
+		}
+		
+		@Override
+		public void writeLong(long value) {
+			nextColumn().add(ScanRow.TYPE_LONG, value, null);
+		}
+		
+		@Override
+		public void writeDouble(double value) {
+			nextColumn().add(ScanRow.TYPE_DOUBLE, Double.doubleToRawLongBits(value), null);
+		}
+		
+		@Override
+		public void writeString(String value) {
+			if (value == null)
+				writeNull();
+			else
+				nextColumn().add(ScanRow.TYPE_STRING, 0L, value);
+		}
+		
+		@Override
+		public void writeStringSet(Collection<String> values) {
+			nextColumn().add(ScanRow.TYPE_STRING_SET, 0L, joinSet(values));
+		}
+		
+		@Override
+		public void writeCodePoints(int[] codePoints, long[] counts, int length, boolean rowPerCode) {
+			nextColumn().add(ScanRow.TYPE_CODE_POINTS, 0L, new CodePoints(Arrays.copyOf(codePoints, length), 
+						counts != null ? Arrays.copyOf(counts, length) : null));
+		}
+	};
+	
+	/**
+	 * Constructor
+	 * @param out Target stream
+	 */
+	public ColumnarScanOutput(OutputStream out) {
+		super(null);
+		this.out = new DataOutputStream(new BufferedOutputStream(out, ChannelWriter.DEFAULT_BUFFER_SIZE));
+	}
+
+	@Override
+	public void writeHeader() throws IOException {
+		if (builders != null)
+			return;
+		out.writeInt(ColumnarFormat.MAGIC);
+		out.writeInt(ColumnarFormat.VERSION);
+		out.writeInt(columns.length);
+		for (int i=0; i<columns.length; i++)
+			ColumnarFormat.writeString(out, columns[i]);
+		builders = new ColumnBuilder[columns.length];
+		for (int i=0; i<builders.length; i++)
+			builders[i] = new ColumnBuilder();
+	}
+
+	@Override
+	public ScanValueWriter createValueWriter(StringBuilder target) {
+		//Typed values are passed on in encoded form
+		return ScanRowCodec.createEncoder(target);
+	}
+
+	@Override
+	public void writeRow(String name, CharSequence values) throws IOException {
+		ScanRowCodec.decode(values, beginRow(name));
+		endRow();
+	}
+
+	@Override
+	public ScanValueWriter beginRow(String name) throws IOException {
+		writeHeader();
+		column = 0;
+		cellWriter.writeString(name);
+		return cellWriter;
+	}
+
+	@Override
+	public void endRow() throws IOException {
+		//Columns without value (e.g. the count column of the one column histogram layout)
+		while (column < builders.length)
+			cellWriter.writeNull();
+		rowCount++;
+		if (rowCount >= ROW_GROUP_SIZE)
+			writeRowGroup();
+		rowWritten();
+	}
+	
+	private ColumnBuilder nextColumn() {
+		if (column >= builders.length)
+			throw new IllegalStateException("More values than columns ("+builders.length+")");
+		return builders[column++];
+	}
+	
+	/**
+	 * Joins the items of a string set (the separator is not expected in the items)
+	 */
+	private static String joinSet(Collection<String> values) {
+		StringBuilder str = new StringBuilder();
+		for (Iterator<String> it = values.iterator(); it.hasNext(); ) {
+			str.append(it.next());
+			if (it.hasNext())
+				str.append(ColumnarFormat.SET_SEPARATOR);
+		}
+		return str.toString();
+	}
+	
+	/**
+	 * Writes the collected rows as row group
+	 */
+	private void writeRowGroup() throws IOException {
+		if (rowCount == 0)
+			return;
+		out.writeInt(rowCount);
+		for (int i=0; i<builders.length; i++) {
+			chunkBuffer.reset();
+			builders[i].writeChunk(chunkOut);
+			chunkOut.flush();
+			out.writeInt(chunkBuffer.size());
+			chunkBuffer.writeTo(out);
+			builders[i].clear();
+		}
+		rowCount = 0;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		//Rows are written per row group
+		out.flush();
+		flushed();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writeHeader();
+		writeRowGroup();
+		//End marker
+		out.writeInt(0);
+		out.close();
+	}
+	
+	
+	/**
+	 * Collects the values of one column for the current row group and encodes them
+	 */
+	private static class ColumnBuilder {
+		private byte[] types = new byte[1024];
+		private long[] numbers = null;
+		private Object[] objects = null;
+		private int size = 0;
+		
+		void add(int type, long number, Object object) {
+			if (size == types.length)
+				types = Arrays.copyOf(types, size * 2);
+			types[size] = (byte)type;
+			if (type == ScanRow.TYPE_LONG || type == ScanRow.TYPE_DOUBLE) {
+				if (numbers == null)
+					numbers = new long[types.length];
+				else if (numbers.length < types.length)
+					numbers = Arrays.copyOf(numbers, types.length);
+				numbers[size] = number;
+			} else if (object != null) {
+				if (objects == null)
+					objects = new Object[types.length];
+				else if (objects.length < types.length)
+					objects = Arrays.copyOf(objects, types.length);
+				objects[size] = object;
+			}
+			size++;
+		}
+		
+		void clear() {
+			if (objects != null)
+				Arrays.fill(objects, 0, size, null);
+			size = 0;
+		}
+		
+		/**
+		 * Writes encoding, flags, null bitmap and values
+		 */
+		void writeChunk(DataOutputStream out) throws IOException {
+			int type = -1;
+			boolean mixed = false;
+			int nonNullCount = 0;
+			for (int i=0; i<size; i++) {
+				if (types[i] == ScanRow.TYPE_NULL)
+					continue;
+				nonNullCount++;
+				if (type < 0)
+					type = types[i];
+				else if (type != types[i])
+					mixed = true;
+			}
+			
+			int flags = nonNullCount < size ? ColumnarFormat.FLAG_NULLS : 0;
+			if (type == ScanRow.TYPE_STRING_SET)
+				flags |= ColumnarFormat.FLAG_STRING_SET;
+			
+			if (nonNullCount == 0) {
+				out.writeByte(ColumnarFormat.ENCODING_NULL);
+				out.writeByte(0);
+				return;
+			}
+			
+			byte encoding;
+			Map<String, Integer> dictionary = null;
+			if (mixed)
+				encoding = ColumnarFormat.ENCODING_MIXED;
+			else if (type == ScanRow.TYPE_LONG)
+				encoding = countRuns() * 2 < nonNullCount ? ColumnarFormat.ENCODING_LONG_RLE : ColumnarFormat.ENCODING_LONG_PLAIN;
+			else if (type == ScanRow.TYPE_DOUBLE)
+				encoding = ColumnarFormat.ENCODING_DOUBLE;
+			else if (type == ScanRow.TYPE_CODE_POINTS)
+				encoding = ColumnarFormat.ENCODING_CODE_POINTS;
+			else {
+				dictionary = buildDictionary(Math.max(256, nonNullCount / 4));
+				encoding = dictionary != null ? ColumnarFormat.ENCODING_STRING_DICTIONARY : ColumnarFormat.ENCODING_STRING_PLAIN;
+			}
+			
+			out.writeByte(encoding);
+			out.writeByte(flags);
+			if ((flags & ColumnarFormat.FLAG_NULLS) != 0)
+				writeNullBitmap(out);
+			
+			switch (encoding) {
+				case ColumnarFormat.ENCODING_LONG_PLAIN:
+					for (int i=0; i<size; i++) {
+						if (types[i] != ScanRow.TYPE_NULL)
+							ColumnarFormat.writeZigzag(out, numbers[i]);
+					}
+					break;
+				case ColumnarFormat.ENCODING_LONG_RLE:
+					writeLongRuns(out);
+					break;
+				case ColumnarFormat.ENCODING_DOUBLE:
+					for (int i=0; i<size; i++) {
+						if (types[i] != ScanRow.TYPE_NULL)
+							out.writeLong(numbers[i]);
+					}
+					break;
+				case ColumnarFormat.ENCODING_STRING_DICTIONARY:
+					writeDictionary(out, dictionary);
+					break;
+				case ColumnarFormat.ENCODING_STRING_PLAIN:
+					writeFrontCoded(out);
+					break;
+				case ColumnarFormat.ENCODING_CODE_POINTS:
+					for (int i=0; i<size; i++) {
+						if (types[i] != ScanRow.TYPE_NULL)
+							writeCodePoints(out, (CodePoints)objects[i]);
+					}
+					break;
+				default:
+					writeMixed(out);
+			}
+		}
+		
+		private void writeNullBitmap(DataOutputStream out) throws IOException {
+			for (int i=0; i<size; i += 8) {
+				int bits = 0;
+				for (int b=0; b<8 && i+b<size; b++) {
+					if (types[i+b] == ScanRow.TYPE_NULL)
+						bits |= 1 << b;
+				}
+				out.writeByte(bits);
+			}
+		}
+		
+		/**
+		 * Counts the runs of equal values (non-null values only)
+		 */
+		private int countRuns() {
+			int runs = 0;
+			boolean first = true;
+			long last = 0;
+			for (int i=0; i<size; i++) {
+				if (types[i] == ScanRow.TYPE_NULL)
+					continue;
+				if (first || numbers[i] != last)
+					runs++;
+				last = numbers[i];
+				first = false;
+			}
+			return runs;
+		}
+		
+		private void writeLongRuns(DataOutputStream out) throws IOException {
+			long runValue = 0;
+			int runLength = 0;
+			for (int i=0; i<size; i++) {
+				if (types[i] == ScanRow.TYPE_NULL)
+					continue;
+				if (runLength > 0 && numbers[i] == runValue) {
+					runLength++;
+					continue;
+				}
+				if (runLength > 0) {
+					ColumnarFormat.writeVarLong(out, runLength);
+					ColumnarFormat.writeZigzag(out, runValue);
+				}
+				runValue = numbers[i];
+				runLength = 1;
+			}
+			ColumnarFormat.writeVarLong(out, runLength);
+			ColumnarFormat.writeZigzag(out, runValue);
+		}
+		
+		/**
+		 * Creates a dictionary of the distinct strings
+		 * @return Dictionary or <code>null</code> if there are more than the given number of distinct values
+		 */
+		private Map<String, Integer> buildDictionary(int maxSize) {
+			Map<String, Integer> dictionary = new HashMap<String, Integer>();
+			for (int i=0; i<size; i++) {
+				if (types[i] == ScanRow.TYPE_NULL)
+					continue;
+				String value = (String)objects[i];
+				if (!dictionary.containsKey(value)) {
+					if (dictionary.size() >= maxSize)
+						return null;
+					dictionary.put(value, Integer.valueOf(dictionary.size()));
+				}
+			}
+			return dictionary;
+		}
+		
+		private void writeDictionary(DataOutputStream out, Map<String, Integer> dictionary) throws IOException {
+			String[] entries = new String[dictionary.size()];
+			for (Iterator<Map.Entry<String, Integer>> it = dictionary.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<String, Integer> entry = it.next();
+				entries[entry.getValue().intValue()] = entry.getKey();
+			}
+			ColumnarFormat.writeVarLong(out, entries.length);
+			for (int i=0; i<entries.length; i++)
+				ColumnarFormat.writeString(out, entries[i]);
+			
+			//Runs of dictionary indices
+			int runIndex = -1;
+			int runLength = 0;
+			for (int i=0; i<size; i++) {
+				if (types[i] == ScanRow.TYPE_NULL)
+					continue;
+				int index = dictionary.get(objects[i]).intValue();
+				if (index == runIndex) {
+					runLength++;
+					continue;
+				}
+				if (runLength > 0) {
+					ColumnarFormat.writeVarLong(out, runLength);
+					ColumnarFormat.writeVarLong(out, runIndex);
+				}
+				runIndex = index;
+				runLength = 1;
+			}
+			ColumnarFormat.writeVarLong(out, runLength);
+			ColumnarFormat.writeVarLong(out, runIndex);
+		}
+		
+		private void writeFrontCoded(DataOutputStream out) throws IOException {
+			String previous = "";
+			for (int i=0; i<size; i++) {
+				if (types[i] == ScanRow.TYPE_NULL)
+					continue;
+				String value = (String)objects[i];
+				int prefix = 0;
+				int max = Math.min(previous.length(), value.length());
+				while (prefix < max && previous.charAt(prefix) == value.charAt(prefix))
+					prefix++;
+				//Don't split surrogate pairs
+				if (prefix > 0 && Character.isHighSurrogate(value.charAt(prefix-1)))
+					prefix--;
+				ColumnarFormat.writeVarLong(out, prefix);
+				ColumnarFormat.writeString(out, value.substring(prefix));
+				previous = value;
+			}
+		}
+		
+		private void writeMixed(DataOutputStream out) throws IOException {
+			for (int i=0; i<size; i++) {
+				int type = types[i];
+				if (type == ScanRow.TYPE_NULL)
+					continue;
+				out.writeByte(type);
+				if (type == ScanRow.TYPE_LONG)
+					ColumnarFormat.writeZigzag(out, numbers[i]);
+				else if (type == ScanRow.TYPE_DOUBLE)
+					out.writeLong(numbers[i]);
+				else if (type == ScanRow.TYPE_CODE_POINTS)
+					writeCodePoints(out, (CodePoints)objects[i]);
+				else
+					ColumnarFormat.writeString(out, (String)objects[i]);
+			}
+		}
+		
+		private static void writeCodePoints(DataOutputStream out, CodePoints codePoints) throws IOException {
+			ColumnarFormat.writeVarLong(out, codePoints.codePoints.length);
+			out.writeByte(codePoints.counts != null ? 1 : 0);
+			//Ascending, so the differences are small
+			int previous = 0;
+			for (int i=0; i<codePoints.codePoints.length; i++) {
+				ColumnarFormat.writeVarLong(out, codePoints.codePoints[i] - previous);
+				previous = codePoints.codePoints[i];
+			}
+			if (codePoints.counts != null) {
+				for (int i=0; i<codePoints.counts.length; i++)
+					ColumnarFormat.writeVarLong(out, codePoints.counts[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Code point list value
+	 */
+	static class CodePoints {
+		final int[] codePoints;
+		final long[] counts;
+		
+		CodePoints(int[] codePoints, long[] counts) {
+			this.codePoints = codePoints;
+			this.counts = counts;
+		}
+	}
+}
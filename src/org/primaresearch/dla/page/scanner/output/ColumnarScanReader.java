@@ -0,0 +1,358 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.output;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.primaresearch.dla.page.scanner.result.ScanRow;
+
+/**
+ * Reads scan results written by {@link ColumnarScanOutput} (optionally gzip compressed).
+ * Only the requested columns are decoded; the chunks of all other columns are skipped.<br>
+ * <br>
+ * Example:
+ * <pre>
+ * ColumnarScanReader reader = new ColumnarScanReader(new File("scan.psc"));
+ * ColumnarScanReader.Column[] columns = reader.readColumns("File", "TextRegion Count");
+ * reader.close();
+ * </pre>
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ColumnarScanReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+	
+	private DataInputStream in;
+	private String[] columnNames;
+	
+	/**
+	 * Constructor (reads the file header)
+	 */
+	public ColumnarScanReader(File file) throws IOException {
+		this(new FileInputStream(file));
+	}
+	
+	/**
+	 * Constructor (reads the header)
+	 * @param stream Columnar scan results, plain or gzip compressed
+	 */
+	public ColumnarScanReader(InputStream stream) throws IOException {
+		InputStream buffered = new BufferedInputStream(stream, BUFFER_SIZE);
+		buffered.mark(2);
+		boolean gzip = buffered.read() == 0x1f && buffered.read() == 0x8b;
+		buffered.reset();
+		if (gzip)
+			buffered = new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+		in = new DataInputStream(buffered);
+		
+		if (in.readInt() != ColumnarFormat.MAGIC)
+			throw new IOException("Not a columnar scan result file");
+		int version = in.readInt();
+		if (version != ColumnarFormat.VERSION)
+			throw new IOException("Unsupported columnar scan result version: "+version);
+		columnNames = new String[in.readInt()];
+		for (int i=0; i<columnNames.length; i++)
+			columnNames[i] = ColumnarFormat.readString(in);
+	}
+	
+	/**
+	 * Returns the names of all columns in the file
+	 */
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+	
+	/**
+	 * Reads the given columns of all rows (can only be called once)
+	 * @param names Column names (none for all columns)
+	 * @return Columns in the requested order
+	 */
+	public Column[] readColumns(String... names) throws IOException {
+		if (names == null || names.length == 0)
+			names = columnNames;
+		Column[] result = new Column[names.length];
+		Column[] byFileIndex = new Column[columnNames.length];
+		for (int i=0; i<names.length; i++) {
+			int index = Arrays.asList(columnNames).indexOf(names[i]);
+			if (index < 0)
+				throw new IllegalArgumentException("Unknown column: "+names[i]);
+			if (byFileIndex[index] == null)
+				byFileIndex[index] = new Column(names[i]);
+			result[i] = byFileIndex[index];
+		}
+		
+		int rowCount;
+		while ((rowCount = in.readInt()) > 0) {
+			for (int c=0; c<columnNames.length; c++) {
+				int length = in.readInt();
+				if (byFileIndex[c] == null)
+					skipFully(length);
+				else
+					byFileIndex[c].readChunk(in, rowCount);
+			}
+		}
+		return result;
+	}
+	
+	private void skipFully(int length) throws IOException {
+		while (length > 0) {
+			int skipped = in.skipBytes(length);
+			if (skipped <= 0)
+				throw new IOException("Unexpected end of file");
+			length -= skipped;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+	
+	
+	/**
+	 * Values of one column (types as in {@link ScanRow})
+	 */
+	public static class Column {
+		private String name;
+		private int size = 0;
+		private byte[] types = new byte[1024];
+		private long[] numbers = null;
+		private Object[] objects = null;
+		
+		Column(String name) {
+			this.name = name;
+		}
+		
+		/**
+		 * Returns the column name
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * Returns the number of rows
+		 */
+		public int getRowCount() {
+			return size;
+		}
+		
+		/**
+		 * Returns the value type of the given row (see ScanRow.TYPE_...)
+		 */
+		public int getType(int row) {
+			return types[checkRow(row)];
+		}
+		
+		public boolean isNull(int row) {
+			return types[checkRow(row)] == ScanRow.TYPE_NULL;
+		}
+		
+		public long getLong(int row) {
+			return numbers[checkType(row, ScanRow.TYPE_LONG)];
+		}
+		
+		public double getDouble(int row) {
+			return Double.longBitsToDouble(numbers[checkType(row, ScanRow.TYPE_DOUBLE)]);
+		}
+		
+		public String getString(int row) {
+			return (String)objects[checkType(row, ScanRow.TYPE_STRING)];
+		}
+		
+		public List<String> getStringSet(int row) {
+			return Arrays.asList((String[])objects[checkType(row, ScanRow.TYPE_STRING_SET)]);
+		}
+		
+		public int[] getCodePoints(int row) {
+			return ((ColumnarScanOutput.CodePoints)objects[checkType(row, ScanRow.TYPE_CODE_POINTS)]).codePoints;
+		}
+		
+		/**
+		 * Returns the number of occurrences per code point (<code>null</code> if not recorded)
+		 */
+		public long[] getCodePointCounts(int row) {
+			return ((ColumnarScanOutput.CodePoints)objects[checkType(row, ScanRow.TYPE_CODE_POINTS)]).counts;
+		}
+		
+		private int checkRow(int row) {
+			if (row < 0 || row >= size)
+				throw new IndexOutOfBoundsException("Row "+row+", size "+size);
+			return row;
+		}
+		
+		private int checkType(int row, int type) {
+			if (types[checkRow(row)] != type)
+				throw new IllegalStateException("Row "+row+" of column '"+name+"' has type "+types[row]+", not "+type);
+			return row;
+		}
+		
+		/**
+		 * Decodes a column chunk (without the length) and appends its values
+		 */
+		void readChunk(DataInputStream in, int rowCount) throws IOException {
+			byte encoding = in.readByte();
+			int flags = in.readByte();
+			int start = size;
+			ensureCapacity(size + rowCount);
+			size += rowCount;
+			
+			//Null bitmap
+			boolean[] nulls = new boolean[rowCount];
+			if (encoding == ColumnarFormat.ENCODING_NULL)
+				Arrays.fill(nulls, true);
+			else if ((flags & ColumnarFormat.FLAG_NULLS) != 0) {
+				for (int i=0; i<rowCount; i += 8) {
+					int bits = in.readUnsignedByte();
+					for (int b=0; b<8 && i+b<rowCount; b++)
+						nulls[i+b] = (bits & (1 << b)) != 0;
+				}
+			}
+			boolean stringSet = (flags & ColumnarFormat.FLAG_STRING_SET) != 0;
+			int stringType = stringSet ? ScanRow.TYPE_STRING_SET : ScanRow.TYPE_STRING;
+			
+			long runValue = 0;
+			long runLength = 0;
+			Object[] dictionary = null;
+			String previous = "";
+			if (encoding == ColumnarFormat.ENCODING_STRING_DICTIONARY) {
+				dictionary = new Object[(int)ColumnarFormat.readVarLong(in)];
+				for (int d=0; d<dictionary.length; d++)
+					dictionary[d] = toValue(ColumnarFormat.readString(in), stringSet);
+			}
+			
+			for (int i=0; i<rowCount; i++) {
+				int row = start + i;
+				if (nulls[i]) {
+					types[row] = ScanRow.TYPE_NULL;
+					continue;
+				}
+				switch (encoding) {
+					case ColumnarFormat.ENCODING_LONG_PLAIN:
+						setNumber(row, ScanRow.TYPE_LONG, ColumnarFormat.readZigzag(in));
+						break;
+					case ColumnarFormat.ENCODING_LONG_RLE:
+						if (runLength == 0) {
+							runLength = ColumnarFormat.readVarLong(in);
+							runValue = ColumnarFormat.readZigzag(in);
+						}
+						setNumber(row, ScanRow.TYPE_LONG, runValue);
+						runLength--;
+						break;
+					case ColumnarFormat.ENCODING_DOUBLE:
+						setNumber(row, ScanRow.TYPE_DOUBLE, in.readLong());
+						break;
+					case ColumnarFormat.ENCODING_STRING_DICTIONARY:
+						if (runLength == 0) {
+							runLength = ColumnarFormat.readVarLong(in);
+							runValue = ColumnarFormat.readVarLong(in);
+						}
+						setObject(row, stringType, dictionary[(int)runValue]);
+						runLength--;
+						break;
+					case ColumnarFormat.ENCODING_STRING_PLAIN:
+						int prefix = (int)ColumnarFormat.readVarLong(in);
+						String value = previous.substring(0, prefix) + ColumnarFormat.readString(in);
+						setObject(row, stringType, toValue(value, stringSet));
+						previous = value;
+						break;
+					case ColumnarFormat.ENCODING_CODE_POINTS:
+						setObject(row, ScanRow.TYPE_CODE_POINTS, readCodePoints(in));
+						break;
+					case ColumnarFormat.ENCODING_MIXED:
+						readMixed(in, row);
+						break;
+					default:
+						throw new IOException("Unknown column encoding: "+encoding);
+				}
+			}
+		}
+		
+		private void readMixed(DataInputStream in, int row) throws IOException {
+			int type = in.readByte();
+			if (type == ScanRow.TYPE_LONG)
+				setNumber(row, type, ColumnarFormat.readZigzag(in));
+			else if (type == ScanRow.TYPE_DOUBLE)
+				setNumber(row, type, in.readLong());
+			else if (type == ScanRow.TYPE_CODE_POINTS)
+				setObject(row, type, readCodePoints(in));
+			else
+				setObject(row, type, toValue(ColumnarFormat.readString(in), type == ScanRow.TYPE_STRING_SET));
+		}
+		
+		private static ColumnarScanOutput.CodePoints readCodePoints(DataInputStream in) throws IOException {
+			int length = (int)ColumnarFormat.readVarLong(in);
+			boolean hasCounts = in.readByte() != 0;
+			int[] codePoints = new int[length];
+			int previous = 0;
+			for (int i=0; i<length; i++) {
+				previous += (int)ColumnarFormat.readVarLong(in);
+				codePoints[i] = previous;
+			}
+			long[] counts = null;
+			if (hasCounts) {
+				counts = new long[length];
+				for (int i=0; i<length; i++)
+					counts[i] = ColumnarFormat.readVarLong(in);
+			}
+			return new ColumnarScanOutput.CodePoints(codePoints, counts);
+		}
+		
+		private static Object toValue(String value, boolean stringSet) {
+			if (!stringSet)
+				return value;
+			if (value.isEmpty())
+				return new String[0];
+			return value.split(String.valueOf(ColumnarFormat.SET_SEPARATOR), -1);
+		}
+		
+		private void setNumber(int row, int type, long value) {
+			types[row] = (byte)type;
+			if (numbers == null)
+				numbers = new long[types.length];
+			numbers[row] = value;
+		}
+		
+		private void setObject(int row, int type, Object value) {
+			types[row] = (byte)type;
+			if (objects == null)
+				objects = new Object[types.length];
+			objects[row] = value;
+		}
+		
+		private void ensureCapacity(int capacity) {
+			if (capacity <= types.length)
+				return;
+			int newCapacity = Math.max(capacity, types.length * 2);
+			types = Arrays.copyOf(types, newCapacity);
+			if (numbers != null)
+				numbers = Arrays.copyOf(numbers, newCapacity);
+			if (objects != null)
+				objects = Arrays.copyOf(objects, newCapacity);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.output;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.primaresearch.dla.page.scanner.result.CsvValueWriter;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+import org.primaresearch.dla.page.scanner.result.TsvValueWriter;
+
+/**
+ * Output as comma separated values (quoted where necessary) or tab separated values (escaped).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class CsvScanOutput extends ScanOutput {
+
+	private char separator;
+	private CsvValueWriter rowWriter;
+	
+	/**
+	 * Constructor
+	 * @param separator ',' for CSV or '\t' for TSV
+	 */
+	public CsvScanOutput(Writer writer, char separator) {
+		super(writer);
+		this.separator = separator;
+		rowWriter = createValueWriter(writer);
+	}
+	
+	private CsvValueWriter createValueWriter(Appendable target) {
+		return separator == '\t' ? new TsvValueWriter(target) : new CsvValueWriter(target, separator);
+	}
+
+	@Override
+	public void writeHeader() throws IOException {
+		for (int i=0; i<columns.length; i++) {
+			if (i > 0)
+				writer.write(separator);
+			rowWriter.appendText(columns[i]);
+		}
+		writer.write('\n');
+	}
+
+	@Override
+	public ScanValueWriter createValueWriter(StringBuilder target) {
+		return createValueWriter((Appendable)target);
+	}
+
+	@Override
+	public void writeRow(String name, CharSequence values) throws IOException {
+		rowWriter.appendText(name);
+		writer.append(values);
+		writer.write('\n');
+		rowWritten();
+	}
+
+	@Override
+	public ScanValueWriter beginRow(String name) throws IOException {
+		rowWriter.appendText(name);
+		return rowWriter;
+	}
+
+	@Override
+	public void endRow() throws IOException {
+		writer.write('\n');
+		rowWritten();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.output;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.primaresearch.dla.page.scanner.result.JsonValueWriter;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+
+/**
+ * Output as JSON Lines (one object per row, the column names as keys; no header).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class JsonLinesScanOutput extends ScanOutput {
+
+	/**
+	 * Constructor
+	 */
+	public JsonLinesScanOutput(Writer writer) {
+		super(writer);
+	}
+
+	@Override
+	public void writeHeader() {
+		//No header
+	}
+
+	@Override
+	public ScanValueWriter createValueWriter(StringBuilder target) {
+		return new JsonValueWriter(target, columns);
+	}
+
+	@Override
+	public void writeRow(String name, CharSequence values) throws IOException {
+		writeName(name);
+		writer.append(values);
+		writer.write("}\n");
+		rowWritten();
+	}
+
+	@Override
+	public ScanValueWriter beginRow(String name) throws IOException {
+		writeName(name);
+		return new JsonValueWriter(writer, columns);
+	}
+
+	@Override
+	public void endRow() throws IOException {
+		writer.write("}\n");
+		rowWritten();
+	}
+	
+	/**
+	 * Starts the object with the first column
+	 */
+	private void writeName(String name) throws IOException {
+		writer.write('{');
+		JsonValueWriter.appendString(writer, columns.length > 0 ? columns[0] : "File");
+		writer.write(':');
+		JsonValueWriter.appendString(writer, name);
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.output;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+import org.primaresearch.dla.page.scanner.result.ScanRowWriter;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+
+/**
+ * Output sink for scan results (one header and one row per page) in a specific format.<br>
+ * Rows can be written directly ({@link #beginRow(String)}) or pre-rendered in worker threads
+ * ({@link #createValueWriter(StringBuilder)}, {@link #writeRow(String, CharSequence)}).<br>
+ * The output is buffered; it is flushed according to the flush policy and when the output is closed.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public abstract class ScanOutput implements ScanRowWriter, Closeable {
+
+	/** Comma separated values (RFC 4180 quoting) */
+	public static final String FORMAT_CSV = "csv";
+	/** Tab separated values (escaped text) */
+	public static final String FORMAT_TSV = "tsv";
+	/** One JSON object per line */
+	public static final String FORMAT_JSON_LINES = "jsonl";
+	/** Binary columnar format (see {@link ColumnarScanOutput}) */
+	public static final String FORMAT_COLUMNAR = "columnar";
+	
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+	
+	protected Writer writer;
+	protected String[] columns = new String[0];
+	private int flushRows = 0;
+	private long flushMillis = 0L;
+	private int rowsSinceFlush = 0;
+	private long lastFlush = System.currentTimeMillis();
+	
+	/**
+	 * Constructor
+	 * @param writer Target (<code>null</code> for binary formats, which have to override {@link #flush()} - calling {@link #flushed()} - and {@link #close()})
+	 */
+	protected ScanOutput(Writer writer) {
+		this.writer = writer;
+	}
+	
+	/**
+	 * Creates an output in the given format
+	 * @param format 'csv', 'tsv', 'jsonl' or 'columnar'
+	 * @param out Target stream (closed when the output is closed)
+	 * @param gzip Compress the output
+	 */
+	public static ScanOutput create(String format, OutputStream out, boolean gzip) throws IOException {
+		if (gzip)
+			out = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+		if (FORMAT_COLUMNAR.equals(format))
+			return new ColumnarScanOutput(out);
+		Writer writer = new ChannelWriter(out, ChannelWriter.DEFAULT_BUFFER_SIZE);
+		if (FORMAT_CSV.equals(format))
+			return new CsvScanOutput(writer, ',');
+		if (FORMAT_TSV.equals(format))
+			return new CsvScanOutput(writer, '\t');
+		if (FORMAT_JSON_LINES.equals(format))
+			return new JsonLinesScanOutput(writer);
+		throw new IllegalArgumentException("Unknown output format: "+format);
+	}
+	
+	/**
+	 * Returns a stream for STDOUT that is flushed but not closed when it is closed
+	 * (bypasses System.out, which flushes on every line)
+	 */
+	public static OutputStream getStandardOutput() {
+		return new FilterOutputStream(new FileOutputStream(FileDescriptor.out)) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+			
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		};
+	}
+	
+	/**
+	 * Sets when the output is flushed, in addition to when the buffer is full and on close
+	 * @param rows Flush after this number of rows (0 for no row-based flushing)
+	 * @param millis Flush after a row if this many milliseconds have passed since the last flush (0 for no time-based flushing)
+	 */
+	public void setFlushPolicy(int rows, long millis) {
+		this.flushRows = rows;
+		this.flushMillis = millis;
+	}
+	
+	/**
+	 * Sets the column names (including the first column, e.g. 'File')
+	 */
+	public void setColumns(String[] columns) {
+		this.columns = columns;
+	}
+	
+	/**
+	 * Writes the header (if the format has one)
+	 */
+	public abstract void writeHeader() throws IOException;
+	
+	/**
+	 * Creates a writer that renders the values of a row (without name) for {@link #writeRow(String, CharSequence)}.
+	 * The writer should only be used for one row.
+	 */
+	public abstract ScanValueWriter createValueWriter(StringBuilder target);
+	
+	/**
+	 * Writes a row with values rendered via {@link #createValueWriter(StringBuilder)}
+	 * @param name Value of the first column (e.g. file name)
+	 */
+	public abstract void writeRow(String name, CharSequence values) throws IOException;
+	
+	/**
+	 * Called after each row; flushes according to the flush policy
+	 */
+	protected void rowWritten() throws IOException {
+		rowsSinceFlush++;
+		if ((flushRows > 0 && rowsSinceFlush >= flushRows)
+				|| (flushMillis > 0 && System.currentTimeMillis() - lastFlush >= flushMillis))
+			flush();
+	}
+	
+	/**
+	 * Writes all buffered data
+	 */
+	public void flush() throws IOException {
+		writer.flush();
+		flushed();
+	}
+	
+	/**
+	 * Resets the flush policy counters (to be called by subclasses that override {@link #flush()})
+	 */
+	protected void flushed() {
+		rowsSinceFlush = 0;
+		lastFlush = System.currentTimeMillis();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.result;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Renders scan values as CSV into an Appendable (e.g. StringBuilder or Writer).
+ * Each value is preceded by the separator (the file name is expected to be the first column).<br>
+ * Text values containing the separator, quotes or line breaks are quoted (RFC 4180).
+ * Numbers are formatted without creating strings.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class CsvValueWriter implements ScanValueWriter {
+
+	protected Appendable out;
+	protected char separator;
+	private char[] digits = null;
+	private StringBuilder setBuffer = null;
+	
+	/**
+	 * Constructor (comma separated)
+	 */
+	public CsvValueWriter(Appendable out) {
+		this(out, ',');
+	}
+	
+	/**
+	 * Constructor
+	 * @param separator Value separator
+	 */
+	public CsvValueWriter(Appendable out, char separator) {
+		this.out = out;
+		this.separator = separator;
+	}
+
+	/**
+	 * Changes the target (allows reusing the writer)
+	 */
+	public void setOutput(Appendable out) {
+		this.out = out;
+	}
+	
+	@Override
+	public void writeNull() throws IOException {
+		out.append(separator);
+	}
+
+	@Override
+	public void writeLong(long value) throws IOException {
+		out.append(separator);
+		appendLong(value);
+	}
+
+	@Override
+	public void writeDouble(double value) throws IOException {
+		out.append(separator);
+		String str = Double.toString(value);
+		//No exponent notation
+		if (str.indexOf('E') >= 0 && !Double.isInfinite(value))
+			str = BigDecimal.valueOf(value).toPlainString();
+		out.append(str);
+	}
+
+	@Override
+	public void writeString(String value) throws IOException {
+		out.append(separator);
+		if (value != null)
+			appendText(value);
+	}
+
+	@Override
+	public void writeStringSet(Collection<String> values) throws IOException {
+		//Semicolon separated
+		out.append(separator);
+		if (setBuffer == null)
+			setBuffer = new StringBuilder();
+		setBuffer.setLength(0);
+		for (Iterator<String> it = values.iterator(); it.hasNext(); ) {
+			setBuffer.append(it.next());
+			if (it.hasNext())
+				setBuffer.append(';');
+		}
+		appendText(setBuffer);
+	}
+	
+	/**
+	 * Appends the given text, quoted if it contains the separator, quotes or line breaks
+	 */
+	public void appendText(CharSequence text) throws IOException {
+		appendQuoted(out, text, separator);
+	}
+	
+	/**
+	 * Appends the given text to the given target, quoted if it contains the separator, quotes or line breaks
+	 */
+	public static void appendQuoted(Appendable out, CharSequence text, char separator) throws IOException {
+		int length = text.length();
+		boolean quote = false;
+		for (int i=0; i<length && !quote; i++) {
+			char c = text.charAt(i);
+			quote = c == separator || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			out.append(text);
+			return;
+		}
+		out.append('"');
+		for (int i=0; i<length; i++) {
+			char c = text.charAt(i);
+			if (c == '"')
+				out.append('"');
+			out.append(c);
+		}
+		out.append('"');
+	}
+
+	@Override
+	public void writeCodePoints(int[] codePoints, long[] counts, int length, boolean rowPerCode) throws IOException {
+		//Examples: '65,66' or '65\n,66' (one column) or '65:3,66:1' or '65,3\n,66,1' (one column)
+		out.append(separator);
+		for (int i=0; i<length; i++) {
+			if (i > 0) {
+				if (rowPerCode)
+					out.append('\n');
+				out.append(separator);
+			}
+			appendLong(codePoints[i]);
+			if (counts != null) {
+				out.append(rowPerCode ? separator : ':');
+				appendLong(counts[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Appends the decimal representation of the given number
+	 */
+	protected void appendLong(long value) throws IOException {
+		if (out instanceof StringBuilder) {
+			((StringBuilder)out).append(value);
+			return;
+		}
+		if (value == Long.MIN_VALUE) {
+			out.append(Long.toString(value));
+			return;
+		}
+		if (digits == null)
+			digits = new char[20];
+		int pos = digits.length;
+		boolean negative = value < 0;
+		if (negative)
+			value = -value;
+		do {
+			digits[--pos] = (char)('0' + (value % 10));
+			value /= 10;
+		} while (value != 0);
+		if (negative)
+			digits[--pos] = '-';
+		if (out instanceof Writer) {
+			((Writer)out).write(digits, pos, digits.length - pos);
+		} else {
+			for (; pos < digits.length; pos++)
+				out.append(digits[pos]);
+		}
+	}
+}
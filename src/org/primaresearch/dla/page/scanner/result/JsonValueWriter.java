@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.result;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Renders scan values as JSON object members (<code>,"column":value</code>), using the given column names in order.<br>
+ * String sets are written as arrays, code point lists as arrays of numbers or, with counts, as objects
+ * mapping the code point to its number of occurrences.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class JsonValueWriter implements ScanValueWriter {
+
+	private Appendable out;
+	private String[] columns;
+	private int column = 1;
+	
+	/**
+	 * Constructor
+	 * @param columns Names of the values (the first name is skipped; it is the name of the row, e.g. 'File')
+	 */
+	public JsonValueWriter(Appendable out, String[] columns) {
+		this.out = out;
+		this.columns = columns;
+	}
+	
+	/**
+	 * Writes the member name of the next value
+	 */
+	private void writeName() throws IOException {
+		out.append(',');
+		appendString(out, column < columns.length ? columns[column] : "Column "+(column+1));
+		out.append(':');
+		column++;
+	}
+	
+	@Override
+	public void writeNull() throws IOException {
+		writeName();
+		out.append("null");
+	}
+
+	@Override
+	public void writeLong(long value) throws IOException {
+		writeName();
+		out.append(Long.toString(value));
+	}
+
+	@Override
+	public void writeDouble(double value) throws IOException {
+		writeName();
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			out.append("null");
+		else
+			out.append(Double.toString(value));
+	}
+
+	@Override
+	public void writeString(String value) throws IOException {
+		writeName();
+		if (value == null)
+			out.append("null");
+		else
+			appendString(out, value);
+	}
+
+	@Override
+	public void writeStringSet(Collection<String> values) throws IOException {
+		writeName();
+		out.append('[');
+		for (Iterator<String> it = values.iterator(); it.hasNext(); ) {
+			appendString(out, it.next());
+			if (it.hasNext())
+				out.append(',');
+		}
+		out.append(']');
+	}
+
+	@Override
+	public void writeCodePoints(int[] codePoints, long[] counts, int length, boolean rowPerCode) throws IOException {
+		writeName();
+		//Code and count have separate columns in the one column layout
+		if (rowPerCode && counts != null)
+			column++;
+		out.append(counts != null ? '{' : '[');
+		for (int i=0; i<length; i++) {
+			if (i > 0)
+				out.append(',');
+			if (counts != null) {
+				out.append('"').append(Integer.toString(codePoints[i])).append("\":");
+				out.append(Long.toString(counts[i]));
+			} else
+				out.append(Integer.toString(codePoints[i]));
+		}
+		out.append(counts != null ? '}' : ']');
+	}
+
+	/**
+	 * Appends the given text as JSON string (quoted and escaped)
+	 */
+	public static void appendString(Appendable out, CharSequence text) throws IOException {
+		out.append('"');
+		int length = text.length();
+		for (int i=0; i<length; i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '"': out.append("\\\""); break;
+				case '\\': out.append("\\\\"); break;
+				case '\n': out.append("\\n"); break;
+				case '\r': out.append("\\r"); break;
+				case '\t': out.append("\\t"); break;
+				default:
+					if (c < 0x20) {
+						String hex = Integer.toHexString(c);
+						out.append("\\u");
+						for (int p=hex.length(); p<4; p++)
+							out.append('0');
+						out.append(hex);
+					} else
+						out.append(c);
+			}
+		}
+		out.append('"');
+	}
+}
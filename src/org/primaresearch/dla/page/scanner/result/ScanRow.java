@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.result;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reusable buffer for the typed values of one scanned page (one cell per written value).<br>
+ * For callers that process the scan results in-process, without formatting and parsing CSV.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ScanRow implements ScanValueWriter {
+
+	public static final int TYPE_NULL = 0;
+	public static final int TYPE_LONG = 1;
+	public static final int TYPE_DOUBLE = 2;
+	public static final int TYPE_STRING = 3;
+	public static final int TYPE_STRING_SET = 4;
+	public static final int TYPE_CODE_POINTS = 5;
+	
+	private String name = null;
+	private int size = 0;
+	private byte[] types = new byte[64];
+	/** Long values and raw bits of double values */
+	private long[] numbers = new long[64];
+	/** Strings, string arrays (sets) and code point lists */
+	private Object[] objects = new Object[64];
+	
+	/**
+	 * Removes all cells (the buffers are kept)
+	 */
+	public void clear() {
+		Arrays.fill(objects, 0, size, null);
+		size = 0;
+		name = null;
+	}
+	
+	/**
+	 * Sets the name of the scanned page (file name)
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * Returns the name of the scanned page (file name)
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Returns the number of cells
+	 */
+	public int getCellCount() {
+		return size;
+	}
+	
+	/**
+	 * Returns the type of the specified cell (see TYPE_... constants)
+	 */
+	public int getType(int cell) {
+		checkIndex(cell);
+		return types[cell];
+	}
+	
+	/**
+	 * Returns the value of a long cell
+	 */
+	public long getLong(int cell) {
+		checkType(cell, TYPE_LONG);
+		return numbers[cell];
+	}
+	
+	/**
+	 * Returns the value of a double cell
+	 */
+	public double getDouble(int cell) {
+		checkType(cell, TYPE_DOUBLE);
+		return Double.longBitsToDouble(numbers[cell]);
+	}
+	
+	/**
+	 * Returns the value of a string cell
+	 */
+	public String getString(int cell) {
+		checkType(cell, TYPE_STRING);
+		return (String)objects[cell];
+	}
+	
+	/**
+	 * Returns the values of a string set cell
+	 */
+	public List<String> getStringSet(int cell) {
+		checkType(cell, TYPE_STRING_SET);
+		return Arrays.asList((String[])objects[cell]);
+	}
+	
+	/**
+	 * Returns the code points of a code point cell
+	 */
+	public int[] getCodePoints(int cell) {
+		checkType(cell, TYPE_CODE_POINTS);
+		return ((CodePoints)objects[cell]).codePoints;
+	}
+	
+	/**
+	 * Returns the number of occurrences per code point of a code point cell (<code>null</code> if not available)
+	 */
+	public long[] getCodePointCounts(int cell) {
+		checkType(cell, TYPE_CODE_POINTS);
+		return ((CodePoints)objects[cell]).counts;
+	}
+	
+	/**
+	 * Writes all cells to the given writer (e.g. to render the row)
+	 */
+	public void writeTo(ScanValueWriter writer) throws IOException {
+		for (int i=0; i<size; i++) {
+			switch (types[i]) {
+				case TYPE_LONG: 
+					writer.writeLong(numbers[i]); 
+					break;
+				case TYPE_DOUBLE: 
+					writer.writeDouble(Double.longBitsToDouble(numbers[i])); 
+					break;
+				case TYPE_STRING: 
+					writer.writeString((String)objects[i]); 
+					break;
+				case TYPE_STRING_SET: 
+					writer.writeStringSet(Arrays.asList((String[])objects[i])); 
+					break;
+				case TYPE_CODE_POINTS:
+					CodePoints codePoints = (CodePoints)objects[i];
+					writer.writeCodePoints(codePoints.codePoints, codePoints.counts, codePoints.codePoints.length, codePoints.rowPerCode);
+					break;
+				default: 
+					writer.writeNull();
+			}
+		}
+	}
+
+	@Override
+	public void writeNull() {
+		add(TYPE_NULL, 0L, null);
+	}
+
+	@Override
+	public void writeLong(long value) {
+		add(TYPE_LONG, value, null);
+	}
+
+	@Override
+	public void writeDouble(double value) {
+		add(TYPE_DOUBLE, Double.doubleToRawLongBits(value), null);
+	}
+
+	@Override
+	public void writeString(String value) {
+		if (value == null)
+			writeNull();
+		else
+			add(TYPE_STRING, 0L, value);
+	}
+
+	@Override
+	public void writeStringSet(Collection<String> values) {
+		//Copy, since the scan elements reuse their collections
+		add(TYPE_STRING_SET, 0L, values.toArray(new String[values.size()]));
+	}
+
+	@Override
+	public void writeCodePoints(int[] codePoints, long[] counts, int length, boolean rowPerCode) {
+		add(TYPE_CODE_POINTS, 0L, new CodePoints(Arrays.copyOf(codePoints, length), 
+					counts != null ? Arrays.copyOf(counts, length) : null, rowPerCode));
+	}
+	
+	private void add(int type, long number, Object object) {
+		if (size == types.length) {
+			types = Arrays.copyOf(types, size * 2);
+			numbers = Arrays.copyOf(numbers, size * 2);
+			objects = Arrays.copyOf(objects, size * 2);
+		}
+		types[size] = (byte)type;
+		numbers[size] = number;
+		objects[size] = object;
+		size++;
+	}
+	
+	private void checkIndex(int cell) {
+		if (cell < 0 || cell >= size)
+			throw new IndexOutOfBoundsException("Cell "+cell+", size "+size);
+	}
+	
+	private void checkType(int cell, int type) {
+		checkIndex(cell);
+		if (types[cell] != type)
+			throw new IllegalStateException("Cell "+cell+" has type "+types[cell]+", not "+type);
+	}
+	
+	
+	/**
+	 * Code point list cell
+	 */
+	private static class CodePoints {
+		final int[] codePoints;
+		final long[] counts;
+		final boolean rowPerCode;
+		
+		CodePoints(int[] codePoints, long[] counts, boolean rowPerCode) {
+			this.codePoints = codePoints;
+			this.counts = counts;
+			this.rowPerCode = rowPerCode;
+		}
+	}
+}
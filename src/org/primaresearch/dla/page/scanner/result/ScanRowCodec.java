@@ -0,0 +1,201 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.result;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Encodes typed scan values as compact text and decodes them again.<br>
+ * Used to pass typed rows from worker threads (and through the result cache) to
+ * outputs that need the typed values rather than rendered text (e.g. the columnar output).<br>
+ * <br>
+ * Cell encoding: <code>N</code> (null), <code>L&lt;value&gt;;</code>, <code>D&lt;hex bits&gt;;</code>, 
+ * <code>S&lt;length&gt;:&lt;text&gt;</code>, <code>T&lt;count&gt;:</code> followed by the strings, 
+ * <code>C&lt;counts 0/1&gt;&lt;row per code 0/1&gt;&lt;count&gt;:</code> followed by <code>&lt;code&gt;;</code> 
+ * (and <code>&lt;count&gt;;</code>) per code point.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class ScanRowCodec {
+
+	/**
+	 * Creates a writer that encodes the values into the given target
+	 */
+	public static ScanValueWriter createEncoder(StringBuilder target) {
+		return new Encoder(target);
+	}
+	
+	/**
+	 * Decodes the given encoded values and writes them to the given writer
+	 */
+	public static void decode(CharSequence encoded, ScanValueWriter writer) throws IOException {
+		new Decoder(encoded).decode(writer);
+	}
+	
+	
+	/**
+	 * Value writer producing the encoded text
+	 */
+	private static class Encoder implements ScanValueWriter {
+		private StringBuilder out;
+		
+		Encoder(StringBuilder out) {
+			this.out = out;
+		}
+		
+		@Override
+		public void writeNull() {
+			out.append('N');
+		}
+
+		@Override
+		public void writeLong(long value) {
+			out.append('L').append(value).append(';');
+		}
+
+		@Override
+		public void writeDouble(double value) {
+			out.append('D').append(Long.toHexString(Double.doubleToRawLongBits(value))).append(';');
+		}
+
+		@Override
+		public void writeString(String value) {
+			if (value == null) {
+				writeNull();
+				return;
+			}
+			appendString(value);
+		}
+		
+		private void appendString(String value) {
+			out.append('S').append(value.length()).append(':').append(value);
+		}
+
+		@Override
+		public void writeStringSet(Collection<String> values) {
+			out.append('T').append(values.size()).append(':');
+			for (Iterator<String> it = values.iterator(); it.hasNext(); )
+				appendString(it.next());
+		}
+
+		@Override
+		public void writeCodePoints(int[] codePoints, long[] counts, int length, boolean rowPerCode) {
+			out.append('C').append(counts != null ? '1' : '0').append(rowPerCode ? '1' : '0');
+			out.append(length).append(':');
+			for (int i=0; i<length; i++) {
+				out.append(codePoints[i]).append(';');
+				if (counts != null)
+					out.append(counts[i]).append(';');
+			}
+		}
+	}
+	
+	/**
+	 * Parser for the encoded text
+	 */
+	private static class Decoder {
+		private CharSequence in;
+		private int pos = 0;
+		
+		Decoder(CharSequence in) {
+			this.in = in;
+		}
+		
+		void decode(ScanValueWriter writer) throws IOException {
+			while (pos < in.length()) {
+				char type = in.charAt(pos++);
+				switch (type) {
+					case 'N':
+						writer.writeNull();
+						break;
+					case 'L':
+						writer.writeLong(readNumber(';'));
+						break;
+					case 'D':
+						writer.writeDouble(Double.longBitsToDouble(readHex(';')));
+						break;
+					case 'S':
+						writer.writeString(readString());
+						break;
+					case 'T': {
+						int count = (int)readNumber(':');
+						List<String> values = new ArrayList<String>(count);
+						for (int i=0; i<count; i++) {
+							expect('S');
+							values.add(readString());
+						}
+						writer.writeStringSet(values);
+						break;
+					}
+					case 'C': {
+						boolean hasCounts = in.charAt(pos++) == '1';
+						boolean rowPerCode = in.charAt(pos++) == '1';
+						int length = (int)readNumber(':');
+						int[] codePoints = new int[length];
+						long[] counts = hasCounts ? new long[length] : null;
+						for (int i=0; i<length; i++) {
+							codePoints[i] = (int)readNumber(';');
+							if (hasCounts)
+								counts[i] = readNumber(';');
+						}
+						writer.writeCodePoints(codePoints, counts, length, rowPerCode);
+						break;
+					}
+					default:
+						throw new IllegalArgumentException("Invalid encoded scan row at position "+(pos-1));
+				}
+			}
+		}
+		
+		private void expect(char c) {
+			if (in.charAt(pos++) != c)
+				throw new IllegalArgumentException("Invalid encoded scan row at position "+(pos-1));
+		}
+		
+		private String readString() {
+			int length = (int)readNumber(':');
+			String value = in.subSequence(pos, pos + length).toString();
+			pos += length;
+			return value;
+		}
+		
+		private long readNumber(char terminator) {
+			long value = 0;
+			boolean negative = false;
+			if (in.charAt(pos) == '-') {
+				negative = true;
+				pos++;
+			}
+			char c;
+			while ((c = in.charAt(pos++)) != terminator)
+				value = value * 10 + (c - '0');
+			return negative ? -value : value;
+		}
+		
+		private long readHex(char terminator) {
+			long value = 0;
+			char c;
+			while ((c = in.charAt(pos++)) != terminator)
+				value = (value << 4) | Character.digit(c, 16);
+			return value;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.result;
+
+import java.io.IOException;
+
+/**
+ * Receives rows of typed values (e.g. the summary rows of an aggregated scan).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public interface ScanRowWriter {
+
+	/**
+	 * Starts a new row
+	 * @param name Value of the first column (e.g. file or group name)
+	 * @return Writer for the remaining values of the row (valid until {@link #endRow()})
+	 */
+	public ScanValueWriter beginRow(String name) throws IOException;
+	
+	/**
+	 * Finishes the current row
+	 */
+	public void endRow() throws IOException;
+}
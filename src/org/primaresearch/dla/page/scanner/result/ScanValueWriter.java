@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.result;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Receives the typed values of the scan elements for one page (in column order).<br>
+ * Implementations render the values (e.g. as CSV) or store them (see {@link ScanRow}).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public interface ScanValueWriter {
+
+	/**
+	 * Writes an empty value (e.g. missing metadata)
+	 */
+	public void writeNull() throws IOException;
+	
+	/**
+	 * Writes an integer value (counts, sizes, ...)
+	 */
+	public void writeLong(long value) throws IOException;
+	
+	/**
+	 * Writes a floating point value
+	 */
+	public void writeDouble(double value) throws IOException;
+	
+	/**
+	 * Writes a text value (<code>null</code> is written as empty value)
+	 */
+	public void writeString(String value) throws IOException;
+	
+	/**
+	 * Writes a set of text values (e.g. languages; semicolon separated in CSV)
+	 */
+	public void writeStringSet(Collection<String> values) throws IOException;
+	
+	/**
+	 * Writes a list of Unicode code points in ascending order, optionally with the number of occurrences.
+	 * @param codePoints Code points (only the first <code>length</code> entries are used)
+	 * @param counts Number of occurrences per code point or <code>null</code>
+	 * @param length Number of code points
+	 * @param rowPerCode If <code>true</code>, tabular formats should output one row per code point (one column layout)
+	 */
+	public void writeCodePoints(int[] codePoints, long[] counts, int length, boolean rowPerCode) throws IOException;
+}
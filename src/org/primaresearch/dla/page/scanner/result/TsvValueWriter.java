@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.result;
+
+import java.io.IOException;
+
+/**
+ * Renders scan values as tab separated values. Tabs, line breaks and backslashes in text values
+ * are escaped (<code>\t</code>, <code>\n</code>, <code>\r</code>, <code>\\</code>).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class TsvValueWriter extends CsvValueWriter {
+
+	/**
+	 * Constructor
+	 */
+	public TsvValueWriter(Appendable out) {
+		super(out, '\t');
+	}
+
+	@Override
+	public void appendText(CharSequence text) throws IOException {
+		appendEscaped(out, text);
+	}
+	
+	/**
+	 * Appends the given text to the given target, escaping tabs, line breaks and backslashes
+	 */
+	public static void appendEscaped(Appendable out, CharSequence text) throws IOException {
+		int length = text.length();
+		for (int i=0; i<length; i++) {
+			char c = text.charAt(i);
+			if (c == '\t')
+				out.append("\\t");
+			else if (c == '\n')
+				out.append("\\n");
+			else if (c == '\r')
+				out.append("\\r");
+			else if (c == '\\')
+				out.append("\\\\");
+			else
+				out.append(c);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.stream;
+
+import java.util.Date;
+
+/**
+ * Page level data collected by the streaming scan engine:
+ * metadata, page size, border, print space, reading order and layers.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class PageHeader {
+
+	String gtsId;
+	boolean hasMetaData;
+	String creator;
+	Date created;
+	Date lastModified;
+	int width;
+	int height;
+	double borderLength = -1.0;
+	double printSpaceLength = -1.0;
+	int readingOrderRegionRefCount;
+	int layersRegionRefCount;
+	
+	/**
+	 * Clears all values
+	 */
+	void clear() {
+		gtsId = null;
+		hasMetaData = false;
+		creator = null;
+		created = null;
+		lastModified = null;
+		width = 0;
+		height = 0;
+		borderLength = -1.0;
+		printSpaceLength = -1.0;
+		readingOrderRegionRefCount = 0;
+		layersRegionRefCount = 0;
+	}
+
+	/**
+	 * Returns the PcGts ID or <code>null</code> 
+	 */
+	public String getGtsId() {
+		return gtsId;
+	}
+
+	/**
+	 * Returns <code>true</code> if the document has a metadata element
+	 */
+	public boolean hasMetaData() {
+		return hasMetaData;
+	}
+
+	/**
+	 * Returns the metadata creator or <code>null</code> 
+	 */
+	public String getCreator() {
+		return creator;
+	}
+
+	/**
+	 * Returns the creation time or <code>null</code> 
+	 */
+	public Date getCreated() {
+		return created;
+	}
+
+	/**
+	 * Returns the last modification time or <code>null</code> 
+	 */
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Returns the page (image) width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the page (image) height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the perimeter of the border polygon or -1 if there is no border 
+	 */
+	public double getBorderLength() {
+		return borderLength;
+	}
+
+	/**
+	 * Returns the perimeter of the print space polygon or -1 if there is no print space 
+	 */
+	public double getPrintSpaceLength() {
+		return printSpaceLength;
+	}
+
+	/**
+	 * Returns the number of region references in the reading order
+	 */
+	public int getReadingOrderRegionRefCount() {
+		return readingOrderRegionRefCount;
+	}
+
+	/**
+	 * Returns the number of region references in all layers
+	 */
+	public int getLayersRegionRefCount() {
+		return layersRegionRefCount;
+	}
+}
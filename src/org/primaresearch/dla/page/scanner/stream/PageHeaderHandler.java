@@ -0,0 +1,32 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.stream;
+
+/**
+ * Interface for scan elements that only need page level data (metadata, border, print space,
+ * reading order and layers) and can therefore be used with the streaming scan engine.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public interface PageHeaderHandler {
+
+	/**
+	 * Initialisation with the page level data read by the streaming scan engine
+	 * (replaces <code>ScanElement.init(Page)</code>).
+	 */
+	public void init(PageHeader header);
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.stream;
+
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
+import org.primaresearch.dla.page.scanner.TypedContentHandler;
+
+/**
+ * Interface for scan elements that can handle layout content objects read by the streaming
+ * scan engine (without a page object model).<br>
+ * Only objects of the types declared via {@link #handlesContentType} are passed to the handler.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public interface StreamingContentHandler extends TypedContentHandler {
+
+	/**
+	 * Handles a layout content object (region, text line, word or glyph).
+	 * @param type Content type of the object
+	 * @param attributes XML attributes of the object (only valid during this call)
+	 * @param text Text content of the object (first text equivalent) or <code>null</code>
+	 */
+	public void handleContent(ContentType type, ContentAttributes attributes, String text);
+}
@@ -0,0 +1,519 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.primaresearch.dla.page.layout.physical.shared.ContentType;
+import org.primaresearch.dla.page.layout.physical.shared.LowLevelTextType;
+import org.primaresearch.dla.page.layout.physical.shared.RegionType;
+import org.primaresearch.dla.page.scanner.ContentHandlerIndex;
+import org.primaresearch.dla.page.scanner.TraversalPlan;
+import org.primaresearch.dla.page.scanner.element.ScanElement;
+
+/**
+ * Scan engine that drives the scan elements directly from a StAX event stream over the PAGE XML,
+ * without building the page object model.<br>
+ * <br>
+ * Only the content object currently being read (and its ancestors) is held in memory,
+ * so memory usage does not grow with the size of the document.
+ * Content objects are passed to the handlers when their XML element has been read completely.
+ * Content objects below the deepest level needed by the handlers (see {@link TraversalPlan}) are skipped
+ * as a whole, without reading their attributes or text. If no content objects are needed at all,
+ * reading stops at the first region (the page level data precedes the regions in PAGE XML),
+ * so only the beginning of the file is read.
+ * The document is not validated against the PAGE schema.<br>
+ * <br>
+ * An instance is not thread safe (use one engine per thread).
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class StreamingPageScanner {
+
+	/** Content types by XML element name */
+	private static final Map<String, ContentType> CONTENT_TYPES = new HashMap<String, ContentType>();
+	static {
+		CONTENT_TYPES.put("ChartRegion", RegionType.ChartRegion);
+		CONTENT_TYPES.put("GraphicRegion", RegionType.GraphicRegion);
+		CONTENT_TYPES.put("ImageRegion", RegionType.ImageRegion);
+		CONTENT_TYPES.put("LineDrawingRegion", RegionType.LineDrawingRegion);
+		CONTENT_TYPES.put("MathsRegion", RegionType.MathsRegion);
+		CONTENT_TYPES.put("AdvertRegion", RegionType.AdvertRegion);
+		CONTENT_TYPES.put("ChemRegion", RegionType.ChemRegion);
+		CONTENT_TYPES.put("MusicRegion", RegionType.MusicRegion);
+		CONTENT_TYPES.put("NoiseRegion", RegionType.NoiseRegion);
+		CONTENT_TYPES.put("SeparatorRegion", RegionType.SeparatorRegion);
+		CONTENT_TYPES.put("TableRegion", RegionType.TableRegion);
+		CONTENT_TYPES.put("TextRegion", RegionType.TextRegion);
+		CONTENT_TYPES.put("UnknownRegion", RegionType.UnknownRegion);
+		CONTENT_TYPES.put("TextLine", LowLevelTextType.TextLine);
+		CONTENT_TYPES.put("Word", LowLevelTextType.Word);
+		CONTENT_TYPES.put("Glyph", LowLevelTextType.Glyph);
+	}
+	
+	//Page level sections
+	private static final int SECTION_NONE 			= 0;
+	private static final int SECTION_METADATA 		= 1;
+	private static final int SECTION_BORDER 		= 2;
+	private static final int SECTION_PRINT_SPACE 	= 3;
+	private static final int SECTION_READING_ORDER 	= 4;
+	private static final int SECTION_LAYERS 		= 5;
+	
+	private XMLInputFactory inputFactory;
+	private DatatypeFactory datatypeFactory;
+	private ContentHandlerIndex<StreamingContentHandler> contentHandlers;
+	private PageHeaderHandler[] headerHandlers;
+	private TraversalPlan plan;
+	
+	//Parser state
+	private PageHeader header = new PageHeader();
+	private int depth;
+	private int section;
+	private int sectionDepth;
+	private PolygonLength polygon = new PolygonLength();
+	private StringBuilder valueText = new StringBuilder();
+	private String valueName;
+	private StringBuilder textTarget;
+	private int textTargetDepth;
+	private Frame[] frames = new Frame[8];
+	private int frameCount;
+	private boolean headerComplete;
+	
+	/**
+	 * Constructor
+	 * @param scanElements The scan elements to drive. All elements have to implement
+	 * 			{@link StreamingContentHandler} and/or {@link PageHeaderHandler}.
+	 * @throws IllegalArgumentException An element is not supported by the streaming engine
+	 */
+	public StreamingPageScanner(List<ScanElement> scanElements) {
+		List<StreamingContentHandler> contentHandlers = new ArrayList<StreamingContentHandler>();
+		List<PageHeaderHandler> headerHandlers = new ArrayList<PageHeaderHandler>();
+		for (int i=0; i<scanElements.size(); i++) {
+			ScanElement scanElement = scanElements.get(i);
+			if (!(scanElement instanceof StreamingContentHandler) && !(scanElement instanceof PageHeaderHandler))
+				throw new IllegalArgumentException("Scan element not supported by the streaming engine: "+scanElement.getCsvHeader());
+			if (scanElement instanceof StreamingContentHandler)
+				contentHandlers.add((StreamingContentHandler)scanElement);
+			if (scanElement instanceof PageHeaderHandler)
+				headerHandlers.add((PageHeaderHandler)scanElement);
+		}
+		this.contentHandlers = new ContentHandlerIndex<StreamingContentHandler>(contentHandlers);
+		this.headerHandlers = headerHandlers.toArray(new PageHeaderHandler[headerHandlers.size()]);
+		this.plan = new TraversalPlan(this.contentHandlers);
+		
+		inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		try {
+			datatypeFactory = DatatypeFactory.newInstance();
+		} catch (DatatypeConfigurationException e) {
+			throw new IllegalStateException(e);
+		}
+		for (int i=0; i<frames.length; i++)
+			frames[i] = new Frame();
+	}
+	
+	/**
+	 * Scans the PAGE XML document provided by the given stream (the stream is not closed).
+	 * The scan elements have to be reset beforehand.
+	 */
+	public void scan(InputStream input) throws IOException {
+		header.clear();
+		depth = 0;
+		section = SECTION_NONE;
+		frameCount = 0;
+		textTarget = null;
+		headerComplete = false;
+		
+		XMLStreamReader xml = null;
+		try {
+			xml = inputFactory.createXMLStreamReader(input);
+			while (xml.hasNext()) {
+				int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+					if (!startElement(xml)) {
+						if (headerComplete)
+							break;
+						skipElement(xml);
+						depth--;
+					}
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT) {
+					endElement(xml.getLocalName());
+					depth--;
+				}
+				else if (textTarget != null 
+						&& (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+					textTarget.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Error reading PAGE XML: "+e.getMessage(), e);
+		} finally {
+			if (xml != null) {
+				try {
+					xml.close();
+				} catch (XMLStreamException e) {
+				}
+			}
+		}
+		
+		for (int i=0; i<headerHandlers.length; i++)
+			headerHandlers[i].init(header);
+	}
+	
+	/**
+	 * Handles the start of an element
+	 * @return <code>false</code> if the element (including its children) is not needed and has to be skipped
+	 */
+	private boolean startElement(XMLStreamReader xml) throws IOException {
+		String name = xml.getLocalName();
+		
+		if (depth == 1) {
+			if (!"PcGts".equals(name))
+				throw new IOException("Not a PAGE XML document (root element: "+name+")");
+			header.gtsId = xml.getAttributeValue(null, "pcGtsId");
+			return true;
+		}
+		
+		ContentType contentType = CONTENT_TYPES.get(name);
+		if (contentType != null && !plan.includes(contentType)) {
+			//Only page level data needed (everything after the first region can be ignored)
+			if (plan.getLevel() == TraversalPlan.LEVEL_NONE)
+				headerComplete = true;
+			return false;
+		}
+		
+		//Inside content object
+		if (frameCount > 0) {
+			Frame top = frames[frameCount-1];
+			if (contentType != null)
+				pushFrame(contentType, xml);
+			else if (depth == top.depth+1 && !top.textEquivDone && "TextEquiv".equals(name))
+				top.inTextEquiv = true;
+			else if (depth == top.depth+2 && top.inTextEquiv && "Unicode".equals(name)) {
+				top.hasText = true;
+				textTarget = top.text;
+				textTargetDepth = depth;
+			}
+			return true;
+		}
+		
+		//Top level region
+		if (contentType != null) {
+			pushFrame(contentType, xml);
+			return true;
+		}
+		
+		//Page level data
+		if (section == SECTION_NONE) {
+			if ("Metadata".equals(name)) {
+				header.hasMetaData = true;
+				startSection(SECTION_METADATA);
+			}
+			else if ("Page".equals(name)) {
+				header.width = parseInt(xml.getAttributeValue(null, "imageWidth"));
+				header.height = parseInt(xml.getAttributeValue(null, "imageHeight"));
+			}
+			else if ("Border".equals(name))
+				startSection(SECTION_BORDER);
+			else if ("PrintSpace".equals(name))
+				startSection(SECTION_PRINT_SPACE);
+			else if ("ReadingOrder".equals(name))
+				startSection(SECTION_READING_ORDER);
+			else if ("Layers".equals(name))
+				startSection(SECTION_LAYERS);
+		}
+		else if (section == SECTION_METADATA) {
+			if (depth == sectionDepth+1 
+					&& ("Creator".equals(name) || "Created".equals(name) || "LastChange".equals(name))) {
+				valueName = name;
+				valueText.setLength(0);
+				textTarget = valueText;
+				textTargetDepth = depth;
+			}
+		}
+		else if (section == SECTION_BORDER || section == SECTION_PRINT_SPACE) {
+			if ("Coords".equals(name)) {
+				String points = xml.getAttributeValue(null, "points");
+				if (points != null)
+					polygon.addPoints(points);
+			}
+			else if ("Point".equals(name)) {
+				polygon.addPoint(parseInt(xml.getAttributeValue(null, "x")), parseInt(xml.getAttributeValue(null, "y")));
+			}
+		}
+		else if (section == SECTION_READING_ORDER) {
+			//RegionRef, RegionRefIndexed
+			if (name.startsWith("RegionRef"))
+				header.readingOrderRegionRefCount++;
+		}
+		else if (section == SECTION_LAYERS) {
+			if ("RegionRef".equals(name))
+				header.layersRegionRefCount++;
+		}
+		return true;
+	}
+	
+	private void endElement(String name) {
+		if (textTarget != null && depth == textTargetDepth) {
+			if (textTarget == valueText)
+				setMetaDataValue();
+			textTarget = null;
+		}
+		
+		//Inside content object
+		if (frameCount > 0) {
+			Frame top = frames[frameCount-1];
+			if (depth == top.depth) {
+				handleContent(top);
+				frameCount--;
+			}
+			else if (depth == top.depth+1 && top.inTextEquiv) {
+				top.inTextEquiv = false;
+				top.textEquivDone = true;
+			}
+			return;
+		}
+		
+		if (section != SECTION_NONE && depth == sectionDepth) {
+			if (section == SECTION_BORDER)
+				header.borderLength = polygon.getLength();
+			else if (section == SECTION_PRINT_SPACE)
+				header.printSpaceLength = polygon.getLength();
+			section = SECTION_NONE;
+		}
+	}
+	
+	/**
+	 * Skips the current element including all its children (the reader is left at its end tag)
+	 */
+	private static void skipElement(XMLStreamReader xml) throws XMLStreamException {
+		int open = 1;
+		while (open > 0) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				open++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				open--;
+		}
+	}
+	
+	/**
+	 * Returns the traversal plan (deepest content level read)
+	 */
+	public TraversalPlan getPlan() {
+		return plan;
+	}
+	
+	private void startSection(int section) {
+		this.section = section;
+		sectionDepth = depth;
+		polygon.clear();
+	}
+	
+	private void setMetaDataValue() {
+		String value = valueText.toString().trim();
+		if ("Creator".equals(valueName))
+			header.creator = value;
+		else if ("Created".equals(valueName))
+			header.created = parseDate(value);
+		else if ("LastChange".equals(valueName))
+			header.lastModified = parseDate(value);
+	}
+	
+	/**
+	 * Passes the given content object to all handlers for its type
+	 */
+	private void handleContent(Frame frame) {
+		List<StreamingContentHandler> handlers = contentHandlers.getHandlers(frame.type);
+		if (handlers.isEmpty())
+			return;
+		String text = frame.hasText ? frame.text.toString() : null;
+		for (int i=0; i<handlers.size(); i++)
+			handlers.get(i).handleContent(frame.type, frame, text);
+	}
+	
+	/**
+	 * Starts a new content object
+	 */
+	private void pushFrame(ContentType type, XMLStreamReader xml) {
+		if (frameCount == frames.length) {
+			Frame[] newFrames = new Frame[frames.length * 2];
+			System.arraycopy(frames, 0, newFrames, 0, frames.length);
+			for (int i=frames.length; i<newFrames.length; i++)
+				newFrames[i] = new Frame();
+			frames = newFrames;
+		}
+		frames[frameCount++].init(type, depth, xml);
+	}
+	
+	/**
+	 * Parses an xsd:dateTime value (returns null if invalid)
+	 */
+	private Date parseDate(String value) {
+		if (value.isEmpty())
+			return null;
+		try {
+			return datatypeFactory.newXMLGregorianCalendar(value).toGregorianCalendar().getTime();
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+	
+	private static int parseInt(String value) {
+		if (value == null)
+			return 0;
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+	
+	
+	/**
+	 * A content object currently being read (the XML attributes are copied, the child elements are not)
+	 */
+	private static class Frame implements ContentAttributes {
+		ContentType type;
+		int depth;
+		String[] attributeNames = new String[8];
+		String[] attributeValues = new String[8];
+		int attributeCount;
+		StringBuilder text = new StringBuilder();
+		boolean hasText;
+		boolean inTextEquiv;
+		boolean textEquivDone;
+		
+		void init(ContentType type, int depth, XMLStreamReader xml) {
+			this.type = type;
+			this.depth = depth;
+			text.setLength(0);
+			hasText = false;
+			inTextEquiv = false;
+			textEquivDone = false;
+			
+			attributeCount = xml.getAttributeCount();
+			if (attributeCount > attributeNames.length) {
+				attributeNames = new String[attributeCount];
+				attributeValues = new String[attributeCount];
+			}
+			for (int i=0; i<attributeCount; i++) {
+				attributeNames[i] = xml.getAttributeLocalName(i);
+				attributeValues[i] = xml.getAttributeValue(i);
+			}
+		}
+
+		@Override
+		public String getValue(String attributeName) {
+			for (int i=0; i<attributeCount; i++) {
+				if (attributeName.equals(attributeNames[i]))
+					return attributeValues[i];
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * Calculates the perimeter of a polygon point by point (without storing the points)
+	 */
+	private static class PolygonLength {
+		int pointCount;
+		int firstX, firstY, lastX, lastY;
+		double length;
+		int[] coord = new int[2];
+		
+		void clear() {
+			pointCount = 0;
+			length = 0.0;
+		}
+		
+		void addPoint(int x, int y) {
+			if (pointCount == 0) {
+				firstX = x;
+				firstY = y;
+			} else
+				length += distance(lastX, lastY, x, y);
+			lastX = x;
+			lastY = y;
+			pointCount++;
+		}
+		
+		/**
+		 * Adds the points of a PAGE points attribute ("x1,y1 x2,y2 ...")
+		 */
+		void addPoints(String points) {
+			int len = points.length();
+			int pos = 0;
+			int c = 0;
+			while (pos < len) {
+				char ch = points.charAt(pos);
+				if (ch == '-' || (ch >= '0' && ch <= '9')) {
+					boolean negative = ch == '-';
+					int value = 0;
+					if (negative)
+						pos++;
+					while (pos < len && (ch = points.charAt(pos)) >= '0' && ch <= '9') {
+						value = value * 10 + (ch - '0');
+						pos++;
+					}
+					//Ignore fractional digits
+					if (pos < len && points.charAt(pos) == '.') {
+						pos++;
+						while (pos < len && (ch = points.charAt(pos)) >= '0' && ch <= '9')
+							pos++;
+					}
+					coord[c++] = negative ? -value : value;
+					if (c == 2) {
+						addPoint(coord[0], coord[1]);
+						c = 0;
+					}
+				}
+				else
+					pos++;
+			}
+		}
+		
+		double getLength() {
+			if (pointCount < 2)
+				return length;
+			return length + distance(lastX, lastY, firstX, firstY);
+		}
+		
+		private static double distance(int x1, int y1, int x2, int y2) {
+			double dx = x2 - x1;
+			double dy = y2 - y1;
+			return Math.sqrt(dx * dx + dy * dy);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.util;
+
+import java.util.Arrays;
+
+/**
+ * Occurrence count per Unicode code point, stored in sparse pages of primitive counters.<br>
+ * Pages (4096 code points each) are only allocated when a code point in their range is counted
+ * and are kept on {@link #clear()}.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class CodePointHistogram {
+
+	private long[][] pages = new long[CodePointSet.PAGE_COUNT][];
+	
+	/**
+	 * Increases the count of the given code point by one
+	 */
+	public void add(int codePoint) {
+		add(codePoint, 1L);
+	}
+
+	/**
+	 * Increases the count of the given code point
+	 */
+	public void add(int codePoint, long count) {
+		long[] page = pages[codePoint >>> CodePointSet.PAGE_BITS];
+		if (page == null)
+			page = pages[codePoint >>> CodePointSet.PAGE_BITS] = new long[CodePointSet.PAGE_SIZE];
+		page[codePoint & (CodePointSet.PAGE_SIZE - 1)] += count;
+	}
+	
+	/**
+	 * Adds the counts of the given histogram
+	 */
+	public void addAll(CodePointHistogram other) {
+		for (int p=0; p<CodePointSet.PAGE_COUNT; p++) {
+			long[] otherPage = other.pages[p];
+			if (otherPage == null)
+				continue;
+			if (pages[p] == null)
+				pages[p] = new long[CodePointSet.PAGE_SIZE];
+			for (int i=0; i<CodePointSet.PAGE_SIZE; i++)
+				pages[p][i] += otherPage[i];
+		}
+	}
+	
+	/**
+	 * Returns the count of the given code point
+	 */
+	public long get(int codePoint) {
+		if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT)
+			return 0L;
+		long[] page = pages[codePoint >>> CodePointSet.PAGE_BITS];
+		return page != null ? page[codePoint & (CodePointSet.PAGE_SIZE - 1)] : 0L;
+	}
+	
+	/**
+	 * Returns the smallest code point with a count greater than zero that is greater than or equal 
+	 * to the given code point, or -1 if there is none.
+	 */
+	public int next(int fromCodePoint) {
+		if (fromCodePoint < 0)
+			fromCodePoint = 0;
+		for (int p=fromCodePoint >>> CodePointSet.PAGE_BITS; p<CodePointSet.PAGE_COUNT; p++) {
+			long[] page = pages[p];
+			if (page == null)
+				continue;
+			int first = p == (fromCodePoint >>> CodePointSet.PAGE_BITS) ? fromCodePoint & (CodePointSet.PAGE_SIZE - 1) : 0;
+			for (int i=first; i<CodePointSet.PAGE_SIZE; i++) {
+				if (page[i] != 0L)
+					return (p << CodePointSet.PAGE_BITS) + i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Resets all counts to zero (allocated pages are kept for reuse)
+	 */
+	public void clear() {
+		for (int p=0; p<CodePointSet.PAGE_COUNT; p++) {
+			if (pages[p] != null)
+				Arrays.fill(pages[p], 0L);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of Unicode code points, stored as a sparse bit set.<br>
+ * The Unicode range is split into pages of 4096 code points (64 longs). 
+ * Pages are only allocated when a code point in their range is added and are 
+ * kept on {@link #clear()}, so adding is allocation free once the pages are in place.
+ * 
+ * @author Christian Clausner
+ *
+ */
+public class CodePointSet {
+
+	static final int PAGE_BITS = 12;
+	static final int PAGE_SIZE = 1 << PAGE_BITS;
+	static final int PAGE_COUNT = (Character.MAX_CODE_POINT + 1) >>> PAGE_BITS;
+	private static final int WORDS_PER_PAGE = PAGE_SIZE >>> 6;
+	
+	private long[][] pages = new long[PAGE_COUNT][];
+	
+	/**
+	 * Adds the given code point
+	 */
+	public void add(int codePoint) {
+		long[] page = pages[codePoint >>> PAGE_BITS];
+		if (page == null)
+			page = pages[codePoint >>> PAGE_BITS] = new long[WORDS_PER_PAGE];
+		page[(codePoint >>> 6) & (WORDS_PER_PAGE - 1)] |= 1L << codePoint;
+	}
+	
+	/**
+	 * Adds all code points of the given text (surrogate pairs are combined)
+	 */
+	public void addAll(CharSequence text) {
+		int length = text.length();
+		for (int i=0; i<length; ) {
+			int codePoint = Character.codePointAt(text, i);
+			add(codePoint);
+			i += Character.charCount(codePoint);
+		}
+	}
+	
+	/**
+	 * Adds all code points of the given set
+	 */
+	public void addAll(CodePointSet other) {
+		for (int p=0; p<PAGE_COUNT; p++) {
+			long[] otherPage = other.pages[p];
+			if (otherPage == null)
+				continue;
+			if (pages[p] == null)
+				pages[p] = new long[WORDS_PER_PAGE];
+			for (int w=0; w<WORDS_PER_PAGE; w++)
+				pages[p][w] |= otherPage[w];
+		}
+	}
+	
+	/**
+	 * Returns <code>true</code> if the set contains the given code point
+	 */
+	public boolean contains(int codePoint) {
+		if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT)
+			return false;
+		long[] page = pages[codePoint >>> PAGE_BITS];
+		return page != null && (page[(codePoint >>> 6) & (WORDS_PER_PAGE - 1)] & (1L << codePoint)) != 0;
+	}
+	
+	/**
+	 * Returns the smallest code point in the set that is greater than or equal to the given code point,
+	 * or -1 if there is none.
+	 */
+	public int next(int fromCodePoint) {
+		if (fromCodePoint < 0)
+			fromCodePoint = 0;
+		for (int p=fromCodePoint >>> PAGE_BITS; p<PAGE_COUNT; p++) {
+			long[] page = pages[p];
+			if (page == null)
+				continue;
+			int firstWord = p == (fromCodePoint >>> PAGE_BITS) ? (fromCodePoint >>> 6) & (WORDS_PER_PAGE - 1) : 0;
+			for (int w=firstWord; w<WORDS_PER_PAGE; w++) {
+				long word = page[w];
+				//Mask out bits below the start position
+				if (p == (fromCodePoint >>> PAGE_BITS) && w == firstWord)
+					word &= -1L << fromCodePoint;
+				if (word != 0)
+					return (p << PAGE_BITS) + (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the number of code points in the set
+	 */
+	public int size() {
+		int size = 0;
+		for (int p=0; p<PAGE_COUNT; p++) {
+			if (pages[p] != null) {
+				for (int w=0; w<WORDS_PER_PAGE; w++)
+					size += Long.bitCount(pages[p][w]);
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the set contains no code points
+	 */
+	public boolean isEmpty() {
+		return next(0) < 0;
+	}
+	
+	/**
+	 * Removes all code points (allocated pages are kept for reuse)
+	 */
+	public void clear() {
+		for (int p=0; p<PAGE_COUNT; p++) {
+			if (pages[p] != null)
+				Arrays.fill(pages[p], 0L);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.util;
+
+import java.util.Arrays;
+
+/**
+ * Calculates the exact area of the intersection of two simple polygons (convex or concave, even-odd rule).<br>
+ * The overlap of the x ranges of both polygons is split into vertical slabs at all vertices and edge crossings.
+ * Within a slab no edges cross, so the parts inside both polygons are trapezoids bounded by two edges.<br>
+ * The work buffers are kept for reuse; an instance is not thread safe.
+ *
+ * @author Christian Clausner
+ *
+ */
+public class PolygonIntersection {
+
+	/** Slab boundaries (x) */
+	private double[] slabs = new double[16];
+	private int slabCount;
+	/** Edges crossing the middle of the current slab, per polygon (edge start index and y at the middle) */
+	private int[][] crossingEdges = { new int[8], new int[8] };
+	private double[][] crossingY = { new double[8], new double[8] };
+	private int[] crossingCount = new int[2];
+
+	/**
+	 * Returns the area of the given polygon (absolute value, shoelace formula)
+	 * @param n Number of points
+	 */
+	public static double getArea(int[] x, int[] y, int n) {
+		if (n < 3)
+			return 0.0;
+		long twiceArea = 0L;
+		for (int i=0, j=n-1; i<n; j=i++)
+			twiceArea += (long)x[j] * y[i] - (long)x[i] * y[j];
+		return Math.abs(twiceArea) / 2.0;
+	}
+
+	/**
+	 * Returns the area of the intersection of polygons a and b (0 if they do not overlap or only touch)
+	 * @param an Number of points of a
+	 * @param bn Number of points of b
+	 */
+	public double getIntersectionArea(int[] ax, int[] ay, int an, int[] bx, int[] by, int bn) {
+		if (an < 3 || bn < 3)
+			return 0.0;
+
+		//Common x range
+		double minX = Math.max(min(ax, an), min(bx, bn));
+		double maxX = Math.min(max(ax, an), max(bx, bn));
+		if (minX >= maxX)
+			return 0.0;
+
+		//Slab boundaries: range limits, vertices and edge crossings within the range
+		slabCount = 0;
+		addSlab(minX, minX, maxX);
+		addSlab(maxX, minX, maxX);
+		for (int i=0; i<an; i++)
+			addSlab(ax[i], minX, maxX);
+		for (int i=0; i<bn; i++)
+			addSlab(bx[i], minX, maxX);
+		for (int i=0; i<an; i++) {
+			int i2 = i+1 < an ? i+1 : 0;
+			if (Math.max(ax[i], ax[i2]) < minX || Math.min(ax[i], ax[i2]) > maxX)
+				continue;
+			for (int j=0; j<bn; j++) {
+				int j2 = j+1 < bn ? j+1 : 0;
+				addCrossing(ax[i], ay[i], ax[i2], ay[i2], bx[j], by[j], bx[j2], by[j2], minX, maxX);
+			}
+		}
+		Arrays.sort(slabs, 0, slabCount);
+
+		//Trapezoids inside both polygons per slab
+		double area = 0.0;
+		for (int s=0; s+1<slabCount; s++) {
+			double x0 = slabs[s];
+			double x1 = slabs[s+1];
+			if (x1 - x0 <= 0.0)
+				continue;
+			double middle = (x0 + x1) / 2.0;
+			findCrossings(0, ax, ay, an, middle);
+			findCrossings(1, bx, by, bn, middle);
+
+			//Intersect the inside intervals (pairs of crossings) of both polygons
+			int ia = 0, ib = 0;
+			while (ia+1 < crossingCount[0] && ib+1 < crossingCount[1]) {
+				double aLow = crossingY[0][ia], aHigh = crossingY[0][ia+1];
+				double bLow = crossingY[1][ib], bHigh = crossingY[1][ib+1];
+				if (Math.min(aHigh, bHigh) > Math.max(aLow, bLow)) {
+					boolean lowFromA = aLow >= bLow;
+					boolean highFromA = aHigh <= bHigh;
+					int lowEdge = lowFromA ? crossingEdges[0][ia] : crossingEdges[1][ib];
+					int highEdge = highFromA ? crossingEdges[0][ia+1] : crossingEdges[1][ib+1];
+					double height0 = yAt(highFromA ? ax : bx, highFromA ? ay : by, highFromA ? an : bn, highEdge, x0)
+									- yAt(lowFromA ? ax : bx, lowFromA ? ay : by, lowFromA ? an : bn, lowEdge, x0);
+					double height1 = yAt(highFromA ? ax : bx, highFromA ? ay : by, highFromA ? an : bn, highEdge, x1)
+									- yAt(lowFromA ? ax : bx, lowFromA ? ay : by, lowFromA ? an : bn, lowEdge, x1);
+					area += (x1 - x0) * (height0 + height1) / 2.0;
+				}
+				if (aHigh < bHigh)
+					ia += 2;
+				else
+					ib += 2;
+			}
+		}
+		return area;
+	}
+
+	/**
+	 * Adds a slab boundary (if within the range)
+	 */
+	private void addSlab(double x, double minX, double maxX) {
+		if (x < minX || x > maxX)
+			return;
+		if (slabCount == slabs.length)
+			slabs = Arrays.copyOf(slabs, slabs.length * 2);
+		slabs[slabCount++] = x;
+	}
+
+	/**
+	 * Adds the x position of the crossing of segments p1-p2 and q1-q2 as slab boundary (if they cross)
+	 */
+	private void addCrossing(int p1x, int p1y, int p2x, int p2y, int q1x, int q1y, int q2x, int q2y,
+								double minX, double maxX) {
+		long dpx = p2x - p1x, dpy = p2y - p1y;
+		long dqx = q2x - q1x, dqy = q2y - q1y;
+		long denominator = dpx * dqy - dpy * dqx;
+		if (denominator == 0L)
+			return; //Parallel
+		long ex = q1x - p1x, ey = q1y - p1y;
+		double t = (double)(ex * dqy - ey * dqx) / denominator;
+		double u = (double)(ex * dpy - ey * dpx) / denominator;
+		if (t < 0.0 || t > 1.0 || u < 0.0 || u > 1.0)
+			return;
+		addSlab(p1x + t * dpx, minX, maxX);
+	}
+
+	/**
+	 * Finds the edges of the given polygon crossing the vertical line at x (sorted by y)
+	 * @param polygon 0 or 1 (buffer index)
+	 */
+	private void findCrossings(int polygon, int[] x, int[] y, int n, double atX) {
+		int count = 0;
+		for (int i=0; i<n; i++) {
+			int i2 = i+1 < n ? i+1 : 0;
+			if ((x[i] < atX) == (x[i2] < atX))
+				continue;
+			if (count == crossingEdges[polygon].length) {
+				crossingEdges[polygon] = Arrays.copyOf(crossingEdges[polygon], count * 2);
+				crossingY[polygon] = Arrays.copyOf(crossingY[polygon], count * 2);
+			}
+			//Insertion sort by y (few crossings per line)
+			double edgeY = yAt(x, y, n, i, atX);
+			int pos = count;
+			while (pos > 0 && crossingY[polygon][pos-1] > edgeY) {
+				crossingY[polygon][pos] = crossingY[polygon][pos-1];
+				crossingEdges[polygon][pos] = crossingEdges[polygon][pos-1];
+				pos--;
+			}
+			crossingY[polygon][pos] = edgeY;
+			crossingEdges[polygon][pos] = i;
+			count++;
+		}
+		crossingCount[polygon] = count;
+	}
+
+	/**
+	 * Returns the y position of the given edge (start index) at x (the edge must not be vertical)
+	 */
+	private static double yAt(int[] x, int[] y, int n, int edge, double atX) {
+		int edge2 = edge+1 < n ? edge+1 : 0;
+		return y[edge] + (double)(y[edge2] - y[edge]) * (atX - x[edge]) / (x[edge2] - x[edge]);
+	}
+
+	private static int min(int[] values, int n) {
+		int min = values[0];
+		for (int i=1; i<n; i++)
+			min = Math.min(min, values[i]);
+		return min;
+	}
+
+	private static int max(int[] values, int n) {
+		int max = values[0];
+		for (int i=1; i<n; i++)
+			max = Math.max(max, values[i]);
+		return max;
+	}
+}
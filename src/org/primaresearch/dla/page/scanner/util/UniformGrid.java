@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.util;
+
+/**
+ * Spatial index for finding overlapping bounding boxes, based on a uniform grid.<br>
+ * Each box is registered in all grid cells it covers; only boxes sharing a cell are compared.
+ * The grid size grows with the square root of the number of boxes, so evenly distributed boxes
+ * (e.g. the regions of a dense page) are found in about linear time instead of comparing all pairs.<br>
+ * The arrays are kept for reuse (building the grid for the next page is allocation free once they are large enough).
+ *
+ * @author Christian Clausner
+ *
+ */
+public class UniformGrid {
+
+	/** Maximum number of cells per axis */
+	private static final int MAX_CELLS_PER_AXIS = 512;
+
+	private int[] left = new int[0];
+	private int[] top = new int[0];
+	private int[] right = new int[0];
+	private int[] bottom = new int[0];
+	private int boxCount;
+
+	private int originX, originY;
+	private int cellWidth, cellHeight;
+	private int columns, rows;
+	/** Start of the entries of each cell (index into the entries; one more than the number of cells) */
+	private int[] cellStart = new int[0];
+	/** Box indices per cell (in ascending order within a cell) */
+	private int[] entries = new int[0];
+
+	/** Found pairs (first0, second0, first1, second1, ...) */
+	private int[] pairs = new int[0];
+	private int pairCount;
+
+	/**
+	 * Builds the grid for the given boxes (the arrays are copied; right and bottom are the maximum coordinates)
+	 * @param count Number of boxes
+	 */
+	public void build(int[] left, int[] top, int[] right, int[] bottom, int count) {
+		if (this.left.length < count) {
+			this.left = new int[count];
+			this.top = new int[count];
+			this.right = new int[count];
+			this.bottom = new int[count];
+		}
+		System.arraycopy(left, 0, this.left, 0, count);
+		System.arraycopy(top, 0, this.top, 0, count);
+		System.arraycopy(right, 0, this.right, 0, count);
+		System.arraycopy(bottom, 0, this.bottom, 0, count);
+		boxCount = count;
+		pairCount = 0;
+		if (count == 0) {
+			columns = rows = 0;
+			return;
+		}
+
+		//Grid over the extent of all boxes
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i=0; i<count; i++) {
+			minX = Math.min(minX, left[i]);
+			minY = Math.min(minY, top[i]);
+			maxX = Math.max(maxX, right[i]);
+			maxY = Math.max(maxY, bottom[i]);
+		}
+		int cellsPerAxis = Math.min(MAX_CELLS_PER_AXIS, Math.max(1, (int)Math.ceil(Math.sqrt(count))));
+		originX = minX;
+		originY = minY;
+		cellWidth = Math.max(1, (int)(((long)maxX - minX + cellsPerAxis) / cellsPerAxis));
+		cellHeight = Math.max(1, (int)(((long)maxY - minY + cellsPerAxis) / cellsPerAxis));
+		columns = (int)(((long)maxX - minX) / cellWidth) + 1;
+		rows = (int)(((long)maxY - minY) / cellHeight) + 1;
+
+		//Count the entries per cell
+		int cellCount = columns * rows;
+		if (cellStart.length < cellCount + 1)
+			cellStart = new int[cellCount + 1];
+		for (int c=0; c<=cellCount; c++)
+			cellStart[c] = 0;
+		int entryCount = 0;
+		for (int i=0; i<count; i++) {
+			for (int y=cellY(top[i]); y<=cellY(bottom[i]); y++) {
+				for (int x=cellX(left[i]); x<=cellX(right[i]); x++) {
+					cellStart[y * columns + x + 1]++;
+					entryCount++;
+				}
+			}
+		}
+		for (int c=0; c<cellCount; c++)
+			cellStart[c+1] += cellStart[c];
+
+		//Fill the cells (the start of each cell is used as insert position and shifted back afterwards)
+		if (entries.length < entryCount)
+			entries = new int[entryCount];
+		for (int i=0; i<count; i++) {
+			for (int y=cellY(top[i]); y<=cellY(bottom[i]); y++) {
+				for (int x=cellX(left[i]); x<=cellX(right[i]); x++)
+					entries[cellStart[y * columns + x]++] = i;
+			}
+		}
+		for (int c=cellCount; c>0; c--)
+			cellStart[c] = cellStart[c-1];
+		cellStart[0] = 0;
+	}
+
+	private int cellX(int x) {
+		return (int)(((long)x - originX) / cellWidth);
+	}
+
+	private int cellY(int y) {
+		return (int)(((long)y - originY) / cellHeight);
+	}
+
+	/**
+	 * Finds all pairs of boxes whose intersection has a positive area (touching boxes are not included).
+	 * Each pair is found once (see {@link #getPairs()}).
+	 * @return Number of pairs
+	 */
+	public int findOverlappingPairs() {
+		pairCount = 0;
+		for (int cell=0; cell<columns*rows; cell++) {
+			int end = cellStart[cell+1];
+			for (int e1=cellStart[cell]; e1<end; e1++) {
+				int a = entries[e1];
+				for (int e2=e1+1; e2<end; e2++) {
+					int b = entries[e2];
+					int intersectionLeft = Math.max(left[a], left[b]);
+					int intersectionTop = Math.max(top[a], top[b]);
+					if (intersectionLeft >= Math.min(right[a], right[b]) || intersectionTop >= Math.min(bottom[a], bottom[b]))
+						continue;
+					//Report the pair only in the cell containing the top left corner of the intersection
+					if (cellY(intersectionTop) * columns + cellX(intersectionLeft) != cell)
+						continue;
+					addPair(a, b);
+				}
+			}
+		}
+		return pairCount;
+	}
+
+	private void addPair(int a, int b) {
+		if (pairs.length < (pairCount + 1) * 2) {
+			int[] newPairs = new int[Math.max(64, pairs.length * 2)];
+			System.arraycopy(pairs, 0, newPairs, 0, pairCount * 2);
+			pairs = newPairs;
+		}
+		pairs[pairCount * 2] = a;
+		pairs[pairCount * 2 + 1] = b;
+		pairCount++;
+	}
+
+	/**
+	 * Returns the pairs found by the last call of {@link #findOverlappingPairs()}
+	 * as box indices (first0, second0, first1, second1, ...; the first index is the smaller one).
+	 * The array can be larger than needed.
+	 */
+	public int[] getPairs() {
+		return pairs;
+	}
+
+	/**
+	 * Returns the number of boxes
+	 */
+	public int getBoxCount() {
+		return boxCount;
+	}
+}
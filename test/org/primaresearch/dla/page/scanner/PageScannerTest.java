@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.primaresearch.dla.page.scanner.io.ByteArrayPageInput;
+import org.primaresearch.dla.page.scanner.result.ScanRow;
+import org.primaresearch.io.UnsupportedFormatVersionException;
+
+/**
+ * Tests for {@link PageScanner} (consistency of the scan engines and of headers and values).
+ *
+ * @author Christian Clausner
+ *
+ */
+public class PageScannerTest {
+
+	/** Page with a table region containing two nested text regions */
+	private static final String NESTED_REGIONS_PAGE =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<PcGts xmlns=\"http://schema.primaresearch.org/PAGE/gts/pagecontent/2019-07-15\" pcGtsId=\"nested\">\n"
+			+ "<Metadata><Creator>Test</Creator><Created>2019-07-15T10:00:00</Created><LastChange>2019-07-15T10:00:00</LastChange></Metadata>\n"
+			+ "<Page imageFilename=\"nested.tif\" imageWidth=\"1000\" imageHeight=\"1000\">\n"
+			+ "<TextRegion id=\"r1\" type=\"heading\"><Coords points=\"10,10 990,10 990,90 10,90\"/>\n"
+			+ " <TextLine id=\"r1l1\"><Coords points=\"20,20 980,20 980,80 20,80\"/><TextEquiv><Unicode>Title</Unicode></TextEquiv></TextLine>\n"
+			+ " <TextEquiv><Unicode>Title</Unicode></TextEquiv></TextRegion>\n"
+			+ "<TableRegion id=\"t1\"><Coords points=\"10,100 990,100 990,500 10,500\"/>\n"
+			+ " <TextRegion id=\"c1\" type=\"paragraph\"><Coords points=\"10,100 500,100 500,500 10,500\"/>\n"
+			+ "  <TextLine id=\"c1l1\"><Coords points=\"20,110 490,110 490,150 20,150\"/>\n"
+			+ "   <Word id=\"c1w1\"><Coords points=\"20,110 200,110 200,150 20,150\"/><TextEquiv><Unicode>Cell</Unicode></TextEquiv></Word>\n"
+			+ "   <Word id=\"c1w2\"><Coords points=\"220,110 490,110 490,150 220,150\"/><TextEquiv><Unicode>one</Unicode></TextEquiv></Word>\n"
+			+ "   <TextEquiv><Unicode>Cell one</Unicode></TextEquiv></TextLine>\n"
+			+ "  <TextEquiv><Unicode>Cell one</Unicode></TextEquiv></TextRegion>\n"
+			+ " <TextRegion id=\"c2\" type=\"paragraph\"><Coords points=\"500,100 990,100 990,500 500,500\"/>\n"
+			+ "  <TextLine id=\"c2l1\"><Coords points=\"510,110 980,110 980,150 510,150\"/><TextEquiv><Unicode>Cell two</Unicode></TextEquiv></TextLine>\n"
+			+ "  <TextEquiv><Unicode>Cell two</Unicode></TextEquiv></TextRegion>\n"
+			+ "</TableRegion>\n"
+			+ "</Page>\n"
+			+ "</PcGts>\n";
+
+	@Test
+	public void testNestedRegionsStreamEngine() throws Exception {
+		PageScanner scanner = new PageScanner();
+		scanner.setEngine(PageScanner.ENGINE_STREAM);
+		scanner.setColumns(Arrays.asList("Region Count", "TextLine Count", "Word Count"));
+		ScanRow row = scan(scanner, NESTED_REGIONS_PAGE);
+		assertEquals(Arrays.asList("File", "Region Count", "TextLine Count", "Word Count"), Arrays.asList(scanner.getColumnNames()));
+		assertEquals(4L, row.getLong(0));
+		assertEquals(3L, row.getLong(1));
+		assertEquals(2L, row.getLong(2));
+	}
+
+	@Test
+	public void testNestedRegionsSameOnBothEngines() throws Exception {
+		assertEquals(scanValues(PageScanner.ENGINE_STREAM, null), scanValues(PageScanner.ENGINE_MODEL, null));
+	}
+
+	@Test
+	public void testNestedRegionsSameOnBothEnginesWithoutWords() throws Exception {
+		//The traversal stops at text lines
+		List<String> columns = Arrays.asList("Region Count", "TextRegion Count", "TextLine Count");
+		List<Object> values = scanValues(PageScanner.ENGINE_MODEL, columns);
+		assertEquals(Arrays.<Object>asList(Long.valueOf(4L), Long.valueOf(3L), Long.valueOf(3L)), values);
+		assertEquals(scanValues(PageScanner.ENGINE_STREAM, columns), values);
+	}
+
+	@Test
+	public void testHeadersMatchValues() throws Exception {
+		//One header per value (plus the file name), also for elements without columns
+		PageScanner scanner = new PageScanner();
+		scanner.setEngine(PageScanner.ENGINE_STREAM);
+		ScanRow row = scan(scanner, NESTED_REGIONS_PAGE);
+		String[] columns = scanner.getColumnNames();
+		assertEquals(row.getCellCount() + 1, columns.length);
+		for (int i=0; i<columns.length; i++)
+			assertFalse(columns[i].isEmpty());
+	}
+
+	@Test
+	public void testNestedRegionsIntraPage() throws Exception {
+		PageScanner scanner = new PageScanner();
+		scanner.setValidation(false);
+		scanner.setColumns(Arrays.asList("Region Count", "TextRegion Count", "TextLine Count"));
+		scanner.setIntraPageThreshold(1);
+		assertEquals(Arrays.<Object>asList(Long.valueOf(4L), Long.valueOf(3L), Long.valueOf(3L)),
+				toList(scan(scanner, NESTED_REGIONS_PAGE)));
+	}
+
+
+	/**
+	 * Scans the test page with the given engine and returns all values
+	 * @param columns Selected columns (<code>null</code> for all)
+	 */
+	private static List<Object> scanValues(String engine, List<String> columns) throws Exception {
+		PageScanner scanner = new PageScanner();
+		scanner.setEngine(engine);
+		scanner.setValidation(false);
+		if (columns != null)
+			scanner.setColumns(columns);
+		return toList(scan(scanner, NESTED_REGIONS_PAGE));
+	}
+
+	private static ScanRow scan(PageScanner scanner, String xml) throws UnsupportedFormatVersionException, IOException {
+		ScanRow row = new ScanRow();
+		scanner.scan(new ByteArrayPageInput("page.xml", xml.getBytes("UTF-8")), row);
+		return row;
+	}
+
+	/**
+	 * Returns the values of the given row as comparable objects
+	 */
+	private static List<Object> toList(ScanRow row) {
+		List<Object> values = new ArrayList<Object>();
+		for (int i=0; i<row.getCellCount(); i++) {
+			switch (row.getType(i)) {
+				case ScanRow.TYPE_LONG:
+					values.add(Long.valueOf(row.getLong(i)));
+					break;
+				case ScanRow.TYPE_DOUBLE:
+					values.add(Double.valueOf(row.getDouble(i)));
+					break;
+				case ScanRow.TYPE_STRING:
+					values.add(row.getString(i));
+					break;
+				case ScanRow.TYPE_STRING_SET:
+					values.add(new ArrayList<String>(row.getStringSet(i)));
+					break;
+				case ScanRow.TYPE_CODE_POINTS:
+					values.add(Arrays.toString(row.getCodePoints(i)) + Arrays.toString(row.getCodePointCounts(i)));
+					break;
+				default:
+					values.add(null);
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.primaresearch.dla.page.scanner.ScanResultCache.FileState;
+
+/**
+ * Tests for {@link ScanResultCache} (persistence, invalidation, resuming after damaged records and compaction).
+ *
+ * @author Christian Clausner
+ *
+ */
+public class ScanResultCacheTest {
+
+	private static final String CONFIGURATION = "default,model,all";
+	private static final long MODIFIED = 1500000000000L;
+
+	private File folder;
+	private File cacheFile;
+
+	@Before
+	public void setUp() throws IOException {
+		folder = Files.createTempDirectory("scancache").toFile();
+		cacheFile = new File(folder, "scan.cache");
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = folder.listFiles();
+		for (int i=0; files != null && i<files.length; i++)
+			files[i].delete();
+		folder.delete();
+	}
+
+	@Test
+	public void testReopenAndHit() throws IOException {
+		File page1 = createPage("page1.xml", "<PcGts>1</PcGts>");
+		File page2 = createPage("page2.xml", "<PcGts>22</PcGts>");
+		ScanResultCache cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		assertNull(cache.get(page1.getPath(), cache.getFileState(page1.getPath())));
+		cache.put(page1.getPath(), cache.getFileState(page1.getPath()), "page1.xml,1,2");
+		cache.put(page2.getPath(), cache.getFileState(page2.getPath()), "page2.xml,3,\u00e4");
+		cache.close();
+
+		cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		assertEquals(2, cache.size());
+		assertEquals("page1.xml,1,2", cache.get(page1.getPath(), cache.getFileState(page1.getPath())));
+		assertEquals("page2.xml,3,\u00e4", cache.get(page2.getPath(), cache.getFileState(page2.getPath())));
+		assertEquals(2L, cache.getHitCount());
+		assertEquals(0L, cache.getMissCount());
+		cache.close();
+	}
+
+	@Test
+	public void testConfigurationChange() throws IOException {
+		File page = createPage("page.xml", "<PcGts/>");
+		ScanResultCache cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		cache.put(page.getPath(), cache.getFileState(page.getPath()), "page.xml,1");
+		cache.close();
+
+		cache = new ScanResultCache(cacheFile, "default,stream,all", false);
+		assertEquals(0, cache.size());
+		assertNull(cache.get(page.getPath(), cache.getFileState(page.getPath())));
+		cache.close();
+	}
+
+	@Test
+	public void testSizeAndModificationTimeInvalidation() throws IOException {
+		File page = createPage("page.xml", "<PcGts>1</PcGts>");
+		ScanResultCache cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		cache.put(page.getPath(), cache.getFileState(page.getPath()), "page.xml,1");
+		cache.close();
+
+		cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		//Other modification time
+		assertTrue(page.setLastModified(MODIFIED + 2000L));
+		assertNull(cache.get(page.getPath(), cache.getFileState(page.getPath())));
+		assertTrue(page.setLastModified(MODIFIED));
+		assertEquals("page.xml,1", cache.get(page.getPath(), cache.getFileState(page.getPath())));
+		//Other size (same modification time)
+		createPage("page.xml", "<PcGts>12</PcGts>");
+		assertNull(cache.get(page.getPath(), cache.getFileState(page.getPath())));
+		//Changed content of the same size is not detected without content hash
+		createPage("page.xml", "<PcGts>2</PcGts>");
+		assertEquals("page.xml,1", cache.get(page.getPath(), cache.getFileState(page.getPath())));
+		assertEquals(2L, cache.getHitCount());
+		assertEquals(2L, cache.getMissCount());
+		cache.close();
+	}
+
+	@Test
+	public void testContentHashInvalidation() throws IOException {
+		File page = createPage("page.xml", "<PcGts>1</PcGts>");
+		ScanResultCache cache = new ScanResultCache(cacheFile, CONFIGURATION, true);
+		cache.put(page.getPath(), cache.getFileState(page.getPath()), "page.xml,1");
+		cache.close();
+
+		cache = new ScanResultCache(cacheFile, CONFIGURATION, true);
+		//Same content, other modification time
+		assertTrue(page.setLastModified(MODIFIED + 2000L));
+		assertEquals("page.xml,1", cache.get(page.getPath(), cache.getFileState(page.getPath())));
+		//Other content of the same size and with the same modification time
+		createPage("page.xml", "<PcGts>2</PcGts>");
+		assertNull(cache.get(page.getPath(), cache.getFileState(page.getPath())));
+		cache.close();
+	}
+
+	@Test
+	public void testTruncatedLastRecord() throws IOException {
+		File[] pages = createPages(3);
+		fillCache(pages, "row");
+		//Interrupted while writing the last record
+		RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw");
+		raf.setLength(raf.length() - 3);
+		raf.close();
+
+		ScanResultCache cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		assertEquals(2, cache.size());
+		assertEquals("row0", cache.get(pages[0].getPath(), cache.getFileState(pages[0].getPath())));
+		assertEquals("row1", cache.get(pages[1].getPath(), cache.getFileState(pages[1].getPath())));
+		assertNull(cache.get(pages[2].getPath(), cache.getFileState(pages[2].getPath())));
+		//Resumed: the new record replaces the damaged end
+		cache.put(pages[2].getPath(), cache.getFileState(pages[2].getPath()), "row2");
+		cache.close();
+
+		cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		assertEquals(3, cache.size());
+		assertEquals("row2", cache.get(pages[2].getPath(), cache.getFileState(pages[2].getPath())));
+		cache.close();
+	}
+
+	@Test
+	public void testCorruptedLastRecord() throws IOException {
+		File[] pages = createPages(3);
+		fillCache(pages, "row");
+		//Damaged row of the last record (checksum mismatch)
+		RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw");
+		long position = raf.length() - 4 - 1;
+		raf.seek(position);
+		int b = raf.read();
+		raf.seek(position);
+		raf.write(b ^ 0xFF);
+		raf.close();
+
+		ScanResultCache cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		assertEquals(2, cache.size());
+		assertEquals("row1", cache.get(pages[1].getPath(), cache.getFileState(pages[1].getPath())));
+		assertNull(cache.get(pages[2].getPath(), cache.getFileState(pages[2].getPath())));
+		cache.close();
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		File[] pages = createPages(3);
+		ScanResultCache cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		for (int r=0; r<5; r++) {
+			for (int i=0; i<pages.length; i++)
+				cache.put(pages[i].getPath(), cache.getFileState(pages[i].getPath()), "row"+i+"-"+r);
+		}
+		assertTrue(pages[1].delete());
+		long length = cacheFile.length();
+		cache.compact();
+		assertTrue(cacheFile.length() < length);
+		assertEquals(2, cache.size());
+		assertEquals("row0-4", cache.get(pages[0].getPath(), cache.getFileState(pages[0].getPath())));
+		//Still usable for appending
+		cache.put(pages[2].getPath(), cache.getFileState(pages[2].getPath()), "row2-5");
+		cache.close();
+
+		cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		assertEquals(2, cache.size());
+		assertEquals("row0-4", cache.get(pages[0].getPath(), cache.getFileState(pages[0].getPath())));
+		assertEquals("row2-5", cache.get(pages[2].getPath(), cache.getFileState(pages[2].getPath())));
+		cache.compact();
+		cache.close();
+
+		//Only the latest record per file is kept
+		File expectedFile = new File(folder, "expected.cache");
+		ScanResultCache expected = new ScanResultCache(expectedFile, CONFIGURATION, false);
+		expected.put(pages[0].getPath(), expected.getFileState(pages[0].getPath()), "row0-4");
+		expected.put(pages[2].getPath(), expected.getFileState(pages[2].getPath()), "row2-5");
+		expected.close();
+		assertEquals(expectedFile.length(), cacheFile.length());
+	}
+
+
+	/**
+	 * Writes a file with the given content into the test folder (with a fixed modification time)
+	 */
+	private File createPage(String name, String content) throws IOException {
+		File page = new File(folder, name);
+		FileOutputStream out = new FileOutputStream(page);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		assertTrue(page.setLastModified(MODIFIED));
+		return page;
+	}
+
+	private File[] createPages(int count) throws IOException {
+		File[] pages = new File[count];
+		for (int i=0; i<count; i++)
+			pages[i] = createPage("page"+i+".xml", "<PcGts>"+i+"</PcGts>");
+		return pages;
+	}
+
+	/**
+	 * Stores a row (prefix and index) for each of the given files and closes the cache
+	 */
+	private void fillCache(File[] pages, String prefix) throws IOException {
+		ScanResultCache cache = new ScanResultCache(cacheFile, CONFIGURATION, false);
+		for (int i=0; i<pages.length; i++) {
+			FileState state = cache.getFileState(pages[i].getPath());
+			cache.put(pages[i].getPath(), state, prefix+i);
+		}
+		cache.close();
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link NioFileReader} (mapped and buffered reading, release of mappings).
+ *
+ * @author Christian Clausner
+ *
+ */
+public class NioFileReaderTest {
+
+	/** Memory mappings of this process (Linux only) */
+	private static final File PROCESS_MAPS = new File("/proc/self/maps");
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("niotest", ".xml");
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			for (int i=0; i<10000; i++)
+				out.write(("<Line>"+i+"</Line>\n").getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testMappedAndBuffered() throws IOException {
+		assertEquals(file.length(), count(NioFileReader.open(file, 1L)));
+		assertEquals(file.length(), count(NioFileReader.open(file, Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void testMappingReleasedOnClose() throws IOException {
+		InputStream in = NioFileReader.open(file, 1L);
+		assertEquals('<', in.read());
+		if (PROCESS_MAPS.exists())
+			assertTrue(isMapped(file));
+		in.close();
+		assertEquals(-1, in.read());
+		if (PROCESS_MAPS.exists())
+			assertFalse(isMapped(file));
+	}
+
+
+	/**
+	 * Reads and closes the given stream and returns the number of bytes
+	 */
+	private static long count(InputStream in) throws IOException {
+		try {
+			long count = 0L;
+			byte[] buffer = new byte[1000];
+			int n;
+			while ((n = in.read(buffer, 0, buffer.length)) > 0)
+				count += n;
+			return count;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static boolean isMapped(File file) throws IOException {
+		String maps = new String(Files.readAllBytes(PROCESS_MAPS.toPath()), Charset.defaultCharset());
+		return maps.contains(file.getCanonicalPath());
+	}
+}
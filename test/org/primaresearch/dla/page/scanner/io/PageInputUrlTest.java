@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PageInputUrl}.
+ *
+ * @author Christian Clausner
+ *
+ */
+public class PageInputUrlTest {
+
+	@Test
+	public void testNameWithUrlCharacters() throws IOException {
+		PageInput input = new ByteArrayPageInput("scans/page #1?.xml", "<PcGts/>".getBytes("UTF-8"));
+		URL url = PageInputUrl.create(input);
+		assertNull(url.getRef());
+		assertNull(url.getQuery());
+		//Can be opened more than once
+		assertEquals("<PcGts/>", read(url));
+		assertEquals("<PcGts/>", read(url));
+	}
+
+
+	private static String read(URL url) throws IOException {
+		InputStream in = url.openStream();
+		try {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buffer = new byte[256];
+			int n;
+			while ((n = in.read(buffer)) > 0)
+				content.write(buffer, 0, n);
+			return content.toString("UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+}
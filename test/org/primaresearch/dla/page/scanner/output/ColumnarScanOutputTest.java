@@ -0,0 +1,364 @@
+/*
+ * Copyright 2019 PRImA Research Lab, University of Salford, United Kingdom
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.primaresearch.dla.page.scanner.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.primaresearch.dla.page.scanner.result.ScanRow;
+import org.primaresearch.dla.page.scanner.result.ScanValueWriter;
+
+/**
+ * Round trip tests for {@link ColumnarScanOutput} and {@link ColumnarScanReader},
+ * including the chunk encoding chosen for each kind of column.
+ *
+ * @author Christian Clausner
+ *
+ */
+public class ColumnarScanOutputTest {
+
+	/** Target of the last created output */
+	private ByteArrayOutputStream bytes;
+
+	@Test
+	public void testLongRunLengthEncoding() throws IOException {
+		//Mostly zero counts
+		ColumnarScanOutput output = createOutput("File", "Count");
+		for (int i=0; i<100; i++) {
+			ScanValueWriter row = output.beginRow("p"+i);
+			row.writeLong(i % 40 == 0 ? -i : 0L);
+			output.endRow();
+		}
+		byte[] data = close(output);
+
+		assertEquals(ColumnarFormat.ENCODING_LONG_RLE, getChunkEncodings(data)[1]);
+		ColumnarScanReader.Column column = read(data, "Count")[0];
+		assertEquals(100, column.getRowCount());
+		for (int i=0; i<100; i++)
+			assertEquals(i % 40 == 0 ? -i : 0L, column.getLong(i));
+	}
+
+	@Test
+	public void testLongPlainEncoding() throws IOException {
+		ColumnarScanOutput output = createOutput("File", "Area");
+		for (int i=0; i<50; i++) {
+			output.beginRow("p"+i).writeLong(i * 1000003L - 25000000L);
+			output.endRow();
+		}
+		byte[] data = close(output);
+
+		assertEquals(ColumnarFormat.ENCODING_LONG_PLAIN, getChunkEncodings(data)[1]);
+		ColumnarScanReader.Column column = read(data, "Area")[0];
+		for (int i=0; i<50; i++)
+			assertEquals(i * 1000003L - 25000000L, column.getLong(i));
+	}
+
+	@Test
+	public void testDictionaryEncoding() throws IOException {
+		String[] languages = {"English", "German", "English", "English", "French", "German"};
+		ColumnarScanOutput output = createOutput("File", "Language");
+		for (int i=0; i<300; i++) {
+			output.beginRow("p"+i).writeString(languages[i % languages.length]);
+			output.endRow();
+		}
+		byte[] data = close(output);
+
+		assertEquals(ColumnarFormat.ENCODING_STRING_DICTIONARY, getChunkEncodings(data)[1]);
+		ColumnarScanReader.Column column = read(data, "Language")[0];
+		for (int i=0; i<300; i++)
+			assertEquals(languages[i % languages.length], column.getString(i));
+	}
+
+	@Test
+	public void testFrontCodedEncoding() throws IOException {
+		//More distinct values than the dictionary limit, with shared prefixes (including surrogate pairs)
+		List<String> values = new ArrayList<String>();
+		for (int i=0; i<400; i++)
+			values.add((i % 3 == 0 ? "\uD835\uDC00" : "") + "/data/pages/page" + i + (i % 2 == 0 ? "\uD835\uDC01" : ".xml"));
+		values.set(7, "");
+		ColumnarScanOutput output = createOutput("File", "Path");
+		for (int i=0; i<values.size(); i++) {
+			output.beginRow("p"+i).writeString(values.get(i));
+			output.endRow();
+		}
+		byte[] data = close(output);
+
+		assertEquals(ColumnarFormat.ENCODING_STRING_PLAIN, getChunkEncodings(data)[1]);
+		ColumnarScanReader.Column column = read(data, "Path")[0];
+		for (int i=0; i<values.size(); i++)
+			assertEquals(values.get(i), column.getString(i));
+	}
+
+	@Test
+	public void testStringSets() throws IOException {
+		ColumnarScanOutput output = createOutput("File", "Scripts");
+		output.beginRow("a").writeStringSet(Arrays.asList("Latn", "Grek"));
+		output.endRow();
+		output.beginRow("b").writeStringSet(new ArrayList<String>());
+		output.endRow();
+		output.beginRow("c").writeStringSet(Arrays.asList("Latn", "Grek"));
+		output.endRow();
+		byte[] data = close(output);
+
+		assertTrue((getChunkFlags(data)[1] & ColumnarFormat.FLAG_STRING_SET) != 0);
+		ColumnarScanReader.Column column = read(data, "Scripts")[0];
+		assertEquals(ScanRow.TYPE_STRING_SET, column.getType(0));
+		assertEquals(Arrays.asList("Latn", "Grek"), column.getStringSet(0));
+		assertEquals(0, column.getStringSet(1).size());
+		assertEquals(Arrays.asList("Latn", "Grek"), column.getStringSet(2));
+	}
+
+	@Test
+	public void testCodePointEncoding() throws IOException {
+		int[] codePoints = {32, 65, 66, 0x1D400, 0x1D401};
+		long[] counts = {10L, 3L, 1L, 7L, 123456789L};
+		ColumnarScanOutput output = createOutput("File", "Characters");
+		//Only the first 'length' entries are used
+		output.beginRow("a").writeCodePoints(Arrays.copyOf(codePoints, 8), Arrays.copyOf(counts, 8), codePoints.length, false);
+		output.endRow();
+		output.beginRow("b").writeCodePoints(new int[] {228, 246}, null, 2, false);
+		output.endRow();
+		output.beginRow("c").writeCodePoints(new int[0], null, 0, false);
+		output.endRow();
+		byte[] data = close(output);
+
+		assertEquals(ColumnarFormat.ENCODING_CODE_POINTS, getChunkEncodings(data)[1]);
+		ColumnarScanReader.Column column = read(data, "Characters")[0];
+		assertArrayEquals(codePoints, column.getCodePoints(0));
+		assertArrayEquals(counts, column.getCodePointCounts(0));
+		assertArrayEquals(new int[] {228, 246}, column.getCodePoints(1));
+		assertNull(column.getCodePointCounts(1));
+		assertEquals(0, column.getCodePoints(2).length);
+	}
+
+	@Test
+	public void testNullBitmap() throws IOException {
+		//Nulls at various bit positions (more than one bitmap byte)
+		ColumnarScanOutput output = createOutput("File", "Width", "Missing");
+		for (int i=0; i<21; i++) {
+			ScanValueWriter row = output.beginRow("p"+i);
+			if (i % 3 == 0 || i == 20)
+				row.writeNull();
+			else
+				row.writeLong(i);
+			row.writeString(null);
+			output.endRow();
+		}
+		byte[] data = close(output);
+
+		assertTrue((getChunkFlags(data)[1] & ColumnarFormat.FLAG_NULLS) != 0);
+		assertEquals(ColumnarFormat.ENCODING_NULL, getChunkEncodings(data)[2]);
+		ColumnarScanReader.Column[] columns = read(data, "Width", "Missing");
+		for (int i=0; i<21; i++) {
+			assertEquals(i % 3 == 0 || i == 20, columns[0].isNull(i));
+			if (!columns[0].isNull(i))
+				assertEquals(i, columns[0].getLong(i));
+			assertTrue(columns[1].isNull(i));
+		}
+	}
+
+	@Test
+	public void testMixedTypes() throws IOException {
+		ColumnarScanOutput output = createOutput("File", "Value");
+		output.beginRow("a").writeLong(-5L);
+		output.endRow();
+		output.beginRow("b").writeDouble(0.25);
+		output.endRow();
+		output.beginRow("c").writeNull();
+		output.endRow();
+		output.beginRow("d").writeString("text");
+		output.endRow();
+		output.beginRow("e").writeStringSet(Arrays.asList("x", "y"));
+		output.endRow();
+		output.beginRow("f").writeCodePoints(new int[] {97, 98}, new long[] {1L, 2L}, 2, false);
+		output.endRow();
+		byte[] data = close(output);
+
+		assertEquals(ColumnarFormat.ENCODING_MIXED, getChunkEncodings(data)[1]);
+		ColumnarScanReader.Column column = read(data, "Value")[0];
+		assertEquals(-5L, column.getLong(0));
+		assertEquals(0.25, column.getDouble(1), 0.0);
+		assertTrue(column.isNull(2));
+		assertEquals("text", column.getString(3));
+		assertEquals(Arrays.asList("x", "y"), column.getStringSet(4));
+		assertArrayEquals(new int[] {97, 98}, column.getCodePoints(5));
+		assertArrayEquals(new long[] {1L, 2L}, column.getCodePointCounts(5));
+	}
+
+	@Test
+	public void testDoublesAndMissingValues() throws IOException {
+		ColumnarScanOutput output = createOutput("File", "Ratio", "Extra");
+		//Values not written for the last column are null
+		output.beginRow("a").writeDouble(Double.NaN);
+		output.endRow();
+		output.beginRow("b").writeDouble(-1.5);
+		output.endRow();
+		byte[] data = close(output);
+
+		assertEquals(ColumnarFormat.ENCODING_DOUBLE, getChunkEncodings(data)[1]);
+		ColumnarScanReader.Column[] columns = read(data, "Ratio", "Extra");
+		assertTrue(Double.isNaN(columns[0].getDouble(0)));
+		assertEquals(-1.5, columns[0].getDouble(1), 0.0);
+		assertTrue(columns[1].isNull(0));
+		assertTrue(columns[1].isNull(1));
+	}
+
+	@Test
+	public void testRowGroupsAndColumnSelection() throws IOException {
+		//More than one row group, compressed, only some columns read
+		int rows = ColumnarScanOutput.ROW_GROUP_SIZE + 10;
+		bytes = new ByteArrayOutputStream();
+		ScanOutput output = ScanOutput.create(ScanOutput.FORMAT_COLUMNAR, bytes, true);
+		output.setColumns(new String[] {"File", "Index", "Parity"});
+		output.writeHeader();
+		for (int i=0; i<rows; i++) {
+			ScanValueWriter row = output.beginRow("p"+i);
+			row.writeLong(i);
+			row.writeString(i % 2 == 0 ? "even" : "odd");
+			output.endRow();
+		}
+		output.close();
+
+		ColumnarScanReader reader = new ColumnarScanReader(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals(Arrays.asList("File", "Index", "Parity"), Arrays.asList(reader.getColumnNames()));
+		ColumnarScanReader.Column[] columns = reader.readColumns("Parity", "File");
+		reader.close();
+		assertEquals(rows, columns[0].getRowCount());
+		assertEquals(rows, columns[1].getRowCount());
+		for (int i=0; i<rows; i+=997) {
+			assertEquals(i % 2 == 0 ? "even" : "odd", columns[0].getString(i));
+			assertEquals("p"+i, columns[1].getString(i));
+		}
+		assertEquals("p"+(rows-1), columns[1].getString(rows-1));
+	}
+
+	@Test
+	public void testEmptyOutput() throws IOException {
+		byte[] data = close(createOutput("File", "Count"));
+		ColumnarScanReader.Column[] columns = read(data);
+		assertEquals(2, columns.length);
+		assertEquals(0, columns[0].getRowCount());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		new ColumnarScanReader(new ByteArrayInputStream("File,Count\n".getBytes("UTF-8")));
+	}
+
+	@Test
+	public void testVarLongs() throws IOException {
+		long[] values = {0L, 1L, -1L, 63L, -64L, 64L, 300L, Long.MAX_VALUE, Long.MIN_VALUE};
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(buffer);
+		for (int i=0; i<values.length; i++)
+			ColumnarFormat.writeZigzag(out, values[i]);
+		out.flush();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+		for (int i=0; i<values.length; i++)
+			assertEquals(values[i], ColumnarFormat.readZigzag(in));
+		assertFalse(in.available() > 0);
+	}
+
+	@Test
+	public void testFlushPolicy() throws IOException {
+		final int[] flushes = new int[1];
+		ColumnarScanOutput output = new ColumnarScanOutput(new ByteArrayOutputStream() {
+			@Override
+			public void flush() {
+				flushes[0]++;
+			}
+		});
+		output.setColumns(new String[] {"File", "Count"});
+		output.setFlushPolicy(4, 0L);
+		for (int i=0; i<10; i++) {
+			output.beginRow("p"+i).writeLong(i);
+			output.endRow();
+		}
+		//After rows 4 and 8
+		assertEquals(2, flushes[0]);
+	}
+
+
+	private ColumnarScanOutput createOutput(String... columns) throws IOException {
+		bytes = new ByteArrayOutputStream();
+		ColumnarScanOutput output = new ColumnarScanOutput(bytes);
+		output.setColumns(columns);
+		output.writeHeader();
+		return output;
+	}
+
+	/**
+	 * Closes the given output and returns the written data
+	 */
+	private byte[] close(ColumnarScanOutput output) throws IOException {
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	private static ColumnarScanReader.Column[] read(byte[] data, String... columns) throws IOException {
+		ColumnarScanReader reader = new ColumnarScanReader(new ByteArrayInputStream(data));
+		try {
+			return reader.readColumns(columns);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Returns the encoding of each column chunk of the first row group
+	 */
+	private static byte[] getChunkEncodings(byte[] data) throws IOException {
+		return readChunkHeaders(data)[0];
+	}
+
+	/**
+	 * Returns the flags of each column chunk of the first row group
+	 */
+	private static byte[] getChunkFlags(byte[] data) throws IOException {
+		return readChunkHeaders(data)[1];
+	}
+
+	private static byte[][] readChunkHeaders(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		assertEquals(ColumnarFormat.MAGIC, in.readInt());
+		assertEquals(ColumnarFormat.VERSION, in.readInt());
+		int columnCount = in.readInt();
+		for (int i=0; i<columnCount; i++)
+			ColumnarFormat.readString(in);
+		assertTrue(in.readInt() > 0);
+		byte[][] headers = new byte[2][columnCount];
+		for (int i=0; i<columnCount; i++) {
+			int length = in.readInt();
+			headers[0][i] = in.readByte();
+			headers[1][i] = in.readByte();
+			in.skipBytes(length - 2);
+		}
+		return headers;
+	}
+}